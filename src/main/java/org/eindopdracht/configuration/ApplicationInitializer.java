@@ -1,5 +1,10 @@
 package org.eindopdracht.configuration;
 
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
 public class ApplicationInitializer extends AbstractAnnotationConfigDispatcherServletInitializer {
@@ -17,4 +22,29 @@ public class ApplicationInitializer extends AbstractAnnotationConfigDispatcherSe
     protected String[] getServletMappings() {
         return new String[]{"/"};
     }
+
+    /**
+     * Profile the startup, see {@link StartupProfiler}. The context only hands the profiler to its bean factory
+     * when that is created by the context itself, this one creates it on refresh.
+     */
+    @Override
+    protected WebApplicationContext createRootApplicationContext() {
+        StartupProfiler profiler = new StartupProfiler();
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext() {
+            @Override
+            protected void customizeBeanFactory(DefaultListableBeanFactory beanFactory) {
+                super.customizeBeanFactory(beanFactory);
+                beanFactory.setApplicationStartup(getApplicationStartup());
+            }
+        };
+        context.setApplicationStartup(profiler);
+        context.register(getRootConfigClasses());
+        context.addApplicationListener(new ApplicationListener<ServletRequestHandledEvent>() {
+            @Override
+            public void onApplicationEvent(ServletRequestHandledEvent event) {
+                profiler.requestHandled();
+            }
+        });
+        return context;
+    }
 }
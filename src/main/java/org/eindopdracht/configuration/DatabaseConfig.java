@@ -1,20 +1,42 @@
 package org.eindopdracht.configuration;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 import liquibase.integration.spring.SpringLiquibase;
+import org.eindopdracht.database.CircuitBreaker;
+import org.eindopdracht.database.FingerprintLiquibase;
+import org.eindopdracht.database.PoolMetrics;
+import org.eindopdracht.database.ReplicaRoutingDataSource;
+import org.eindopdracht.database.SqlMetrics;
+import org.ehcache.config.CacheConfiguration;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.util.ObjectUtils;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 @EnableTransactionManagement
@@ -28,23 +50,161 @@ public class DatabaseConfig {
     private String databasePassword;
     @Value("${database.url}")
     private String databaseUrl;
+    @Value("${database.pool.minimumIdle:2}")
+    private int poolMinimumIdle;
+    @Value("${database.pool.maximumSize:10}")
+    private int poolMaximumSize;
+    @Value("${database.pool.connectionTimeout:5000}")
+    private long poolConnectionTimeout;
+    @Value("${database.pool.validationTimeout:1000}")
+    private long poolValidationTimeout;
+    @Value("${database.pool.idleTimeout:600000}")
+    private long poolIdleTimeout;
+    @Value("${database.pool.maxLifetime:1800000}")
+    private long poolMaxLifetime;
+    @Value("${database.pool.leakDetectionThreshold:60000}")
+    private long poolLeakDetectionThreshold;
+    @Value("${database.replica.urls:}")
+    private String[] replicaUrls;
+    @Value("${database.replica.username:${database.username}}")
+    private String replicaName;
+    @Value("${database.replica.password:${database.password}}")
+    private String replicaPassword;
+    @Value("${database.replica.lagQuery:}")
+    private String replicaLagQuery;
+    @Value("${database.replica.maxLagSeconds:5}")
+    private long replicaMaxLagSeconds;
+    @Value("${database.replica.healthCheckInterval:5000}")
+    private long replicaHealthCheckInterval;
+    @Value("${database.cache.referenceTtl:600}")
+    private long cacheReferenceTtl;
+    @Value("${database.cache.settingsTtl:60}")
+    private long cacheSettingsTtl;
+    @Value("${database.cache.queryTtl:300}")
+    private long cacheQueryTtl;
+    @Value("${database.cache.heapEntries:500}")
+    private long cacheHeapEntries;
+    @Value("${database.liquibase.enabled:true}")
+    private boolean liquibaseEnabled;
+    @Value("${database.liquibase.fingerprint:true}")
+    private boolean liquibaseFingerprint;
 
+    /**
+     * A HikariCP pool instead of opening a new MySQL connection for every transaction.
+     * Connections are validated with {@link java.sql.Connection#isValid(int)} before they are handed out,
+     * and a connection that is held longer than the leak detection threshold is logged with the stack trace
+     * of the code that borrowed it.
+     * <p>
+     * When database.replica.urls is set every replica gets its own pool and read-only transactions are
+     * routed to them, see {@link ReplicaRoutingDataSource}.
+     *
+     * <p>
+     * Every statement is timed by {@link SqlMetrics}, slow ones are logged. When the database is down the
+     * {@link CircuitBreaker} stops asking for connections until it is back.
+     *
+     * @param poolMetrics collects wait times and timeouts of the primary pool, exposed on /metrics/pool
+     * @param sqlMetrics  collects the time per statement, exposed on /metrics/sql
+     * @param circuitBreaker fails fast while the database is unavailable
+     * @return the pooled data source
+     */
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource ds = new DriverManagerDataSource();
-        ds.setDriverClassName("com.mysql.jdbc.Driver");
+    public DataSource dataSource(PoolMetrics poolMetrics, SqlMetrics sqlMetrics, CircuitBreaker circuitBreaker) {
+        HikariDataSource primary = createPool("dashboard", databaseUrl, databaseName, databasePassword, poolMetrics);
 
-        ds.setUrl(databaseUrl);
-        ds.setUsername(databaseName);
-        ds.setPassword(databasePassword);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            if (!url.trim().isEmpty()) {
+                String name = "replica-" + (replicas.size() + 1);
+                replicas.put(name, createPool("dashboard-" + name, url.trim(), replicaName, replicaPassword, null));
+            }
+        }
 
-        return ds;
+        if (replicas.isEmpty()) {
+            return sqlMetrics.wrap(circuitBreaker.wrap(primary));
+        }
+
+        // Read-only transactions (GET requests) go to a replica, the rest to the primary
+        return sqlMetrics.wrap(circuitBreaker.wrap(new ReplicaRoutingDataSource(primary, replicas,
+                replicaLagQuery, replicaMaxLagSeconds, replicaHealthCheckInterval)));
+    }
+
+    private HikariDataSource createPool(String poolName, String url, String username, String password,
+                                        MetricsTrackerFactory metricsTrackerFactory) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName("com.mysql.jdbc.Driver");
+
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+
+        config.setMinimumIdle(poolMinimumIdle);
+        config.setMaximumPoolSize(poolMaximumSize);
+        config.setConnectionTimeout(poolConnectionTimeout);
+        config.setValidationTimeout(poolValidationTimeout);
+        config.setIdleTimeout(poolIdleTimeout);
+        config.setMaxLifetime(poolMaxLifetime);
+        config.setLeakDetectionThreshold(poolLeakDetectionThreshold);
+        config.setMetricsTrackerFactory(metricsTrackerFactory);
+
+        // Let the driver reuse parsed statements on each pooled connection
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Turn a JDBC batch into multi-row statements instead of one round trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Regions of the Hibernate second-level and query cache.
+     * Hibernate keeps the entity regions in sync on every persist, merge and remove, and invalidates the cached
+     * queries of a table when it is written to. The time to live only bounds how long a change made outside of
+     * the application, for example directly in the database, stays invisible.
+     * <p>
+     * Every region holds at most database.cache.&lt;region&gt;.heapEntries entries, database.cache.heapEntries
+     * when that isn't set.
+     *
+     * @param environment properties with the sizes of the regions
+     * @return JCache manager handed to Hibernate
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment environment) {
+        Map<String, Long> regions = new LinkedHashMap<>();
+        regions.put("contentType", cacheReferenceTtl);
+        regions.put("role", cacheReferenceTtl);
+        regions.put("globalSettings", cacheSettingsTtl);
+        regions.put("contentType.queries", cacheQueryTtl);
+        regions.put("role.queries", cacheQueryTtl);
+        regions.put("globalSettings.queries", Math.min(cacheQueryTtl, cacheSettingsTtl));
+        regions.put("default-query-results-region", cacheQueryTtl);
+        // Last write per table, cached queries are checked against it so it must never expire
+        regions.put("default-update-timestamps-region", 0L);
+
+        ConfigurationBuilder configuration = ConfigurationBuilder.newConfigurationBuilder();
+        for (Map.Entry<String, Long> region : regions.entrySet()) {
+            long heapEntries = environment.getProperty("database.cache." + region.getKey() + ".heapEntries", Long.class, cacheHeapEntries);
+            configuration = configuration.withCache(region.getKey(), cacheRegion(region.getValue(), heapEntries));
+        }
+
+        // A manager of its own for every context, closing one context leaves the regions of another one alone
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        return provider.getCacheManager(URI.create("urn:dashboard:hibernate:" + ObjectUtils.getIdentityHexString(this)), configuration.build());
+    }
+
+    private static CacheConfiguration<Object, Object> cacheRegion(long ttlSeconds, long heapEntries) {
+        return CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(heapEntries))
+                .withExpiry(ttlSeconds > 0
+                        ? ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttlSeconds))
+                        : ExpiryPolicyBuilder.noExpiration())
+                .build();
     }
 
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource, CacheManager hibernateCacheManager) {
         final HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
-        vendorAdapter.setShowSql(true);
         vendorAdapter.setGenerateDdl(true);
 
         final LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
@@ -53,6 +213,7 @@ public class DatabaseConfig {
         em.setDataSource(dataSource);
         em.setPersistenceUnitName("EmFactory");
         em.setJpaProperties(additionalProperties());
+        em.getJpaPropertyMap().put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
 
         return em;
     }
@@ -68,14 +229,40 @@ public class DatabaseConfig {
         Properties properties = new Properties();
         properties.setProperty("hibernate.hbm2ddl.auto", "none");
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+
+        // Second-level and query cache for the reference tables, the regions come from hibernateCacheManager
+        properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.setProperty("hibernate.cache.use_query_cache", "true");
+        properties.setProperty("hibernate.cache.region.factory_class", "jcache");
+        properties.setProperty("hibernate.javax.cache.missing_cache_strategy", "fail");
+        properties.setProperty("hibernate.generate_statistics", "true");
+
+        // Group inserts and updates per table. Only the bulk repositories send them in JDBC batches, they switch
+        // it on for their session: a batch of one row is slower than a plain insert
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+
+        // Hold the connection until the session closes at the end of the transaction. Spring marks the connection
+        // of a read-only transaction read-only and resets it afterwards, which needs the session to still hold it.
+        properties.setProperty("hibernate.connection.handling_mode", "DELAYED_ACQUISITION_AND_HOLD");
         return properties;
     }
 
+    /**
+     * Liquibase only runs when the changelog changed since it was last applied, see {@link FingerprintLiquibase}.
+     * With database.liquibase.enabled=false it never runs, the migrations are applied ahead of the deploy with
+     * {@link org.eindopdracht.database.Migrate}.
+     *
+     * @param dataSource the primary data source
+     * @return Liquibase, run when the bean is initialised
+     */
     @Bean
     public SpringLiquibase liquibase(DataSource dataSource) {
-        SpringLiquibase liquibase = new SpringLiquibase();
+        FingerprintLiquibase liquibase = new FingerprintLiquibase();
         liquibase.setDataSource(dataSource);
         liquibase.setChangeLog("classpath:changelog_master.xml");
+        liquibase.setShouldRun(liquibaseEnabled);
+        liquibase.setFingerprintEnabled(liquibaseFingerprint);
         return liquibase;
     }
 }
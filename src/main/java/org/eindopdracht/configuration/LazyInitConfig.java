@@ -0,0 +1,98 @@
+package org.eindopdracht.configuration;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+import springfox.documentation.spring.web.plugins.DocumentationPluginsBootstrapper;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shortens the startup by creating the beans that aren't needed to serve the first request on first use.
+ * Opt-in with the lazy profile, -Dspring.profiles.active=lazy.
+ * <p>
+ * The controllers, services and mappers are created by the first request that needs them, the other ones
+ * are never created. Beans with scheduled methods stay eager, scheduling is set up when they are created.
+ * Swagger scans every endpoint when the context starts, that scan runs on its own thread after the start,
+ * the documentation shows up a moment later.
+ */
+@Configuration
+@Profile("lazy")
+public class LazyInitConfig {
+    private static final List<String> LAZY_PACKAGES = Collections.unmodifiableList(Arrays.asList(
+            "org.eindopdracht.resource.controller.",
+            "org.eindopdracht.resource.service.",
+            "org.eindopdracht.resource.mapper."
+    ));
+
+    /**
+     * Static, so it runs before the other beans of this configuration are created.
+     */
+    @Bean
+    public static LazyInitPostProcessor lazyInitPostProcessor() {
+        return new LazyInitPostProcessor();
+    }
+
+    @EventListener
+    public void scanDocumentation(ContextRefreshedEvent event) {
+        if (event.getApplicationContext().getParent() != null) {
+            return;
+        }
+        event.getApplicationContext().getBeanProvider(DocumentationPluginsBootstrapper.class).ifAvailable(bootstrapper -> {
+            Thread thread = new Thread(bootstrapper::start, "swagger-scan");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Marks the beans of the lazy packages lazy and turns off the Swagger scan at startup.
+     */
+    public static class LazyInitPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+        private Environment environment;
+
+        @Override
+        public void setEnvironment(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            for (String beanName : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+                String className = definition.getBeanClassName();
+                if (className != null && LAZY_PACKAGES.stream().anyMatch(className::startsWith) && !isScheduled(className, beanFactory)) {
+                    definition.setLazyInit(true);
+                }
+            }
+
+            if (environment instanceof ConfigurableEnvironment) {
+                ((ConfigurableEnvironment) environment).getPropertySources().addFirst(new MapPropertySource("lazyInit",
+                        Collections.singletonMap("springfox.documentation.auto-startup", "false")));
+            }
+        }
+
+        private static boolean isScheduled(String className, ConfigurableListableBeanFactory beanFactory) {
+            Class<?> type = ClassUtils.resolveClassName(className, beanFactory.getBeanClassLoader());
+            return !MethodIntrospector.selectMethods(type,
+                    (MethodIntrospector.MetadataLookup<Method>) method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class) ? method : null
+            ).isEmpty();
+        }
+    }
+}
@@ -146,15 +146,21 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         http
                 .authorizeRequests()
                 .antMatchers("/signup/**").permitAll()
+                // The exports contain everything, they're not public like the other GET endpoints
+                .antMatchers(HttpMethod.GET, "/*/export").hasRole("USER")
                 .antMatchers(HttpMethod.GET, "/consultation/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/content/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/contenttype/**").permitAll()
+                .antMatchers(HttpMethod.GET, "/dashboard").permitAll()
                 .antMatchers(HttpMethod.GET, "/event/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/globalsettings/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/powerpoint/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/role/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/rssfeed/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/schedule/**").permitAll()
+                .antMatchers(HttpMethod.GET, "/screen").permitAll()
+                .antMatchers(HttpMethod.GET, "/stream").permitAll()
+                .antMatchers(HttpMethod.GET, "/sync").permitAll()
                 .antMatchers(HttpMethod.GET, "/useravailability/**").permitAll();
 
         // First we configure it to allow authentication and authorization in REST
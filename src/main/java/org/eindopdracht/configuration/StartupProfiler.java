@@ -0,0 +1,179 @@
+package org.eindopdracht.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Records how long the application context spends per startup phase and per bean, see /metrics/startup.
+ * <p>
+ * Spring reports every phase of the refresh and every bean it creates as a {@link StartupStep}. The time of a
+ * bean leaves out the beans it depends on, which are created while it is being created, so the slow bean itself
+ * stands out. Lazy beans are recorded when they are created by the first request that needs them.
+ * <p>
+ * The slowest phases and beans are logged once the context is refreshed, and the time until the first request
+ * was handled when that happens.
+ */
+public class StartupProfiler implements ApplicationStartup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupProfiler.class);
+    private static final String BEAN_STEP = "spring.beans.instantiate";
+    private static final String REFRESH_STEP = "spring.context.refresh";
+    private static final String BEAN_NAME_TAG = "beanName";
+    private static final int LOGGED = 10;
+
+    private final long created = System.nanoTime();
+    private final AtomicLong ids = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> phases = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> beans = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deque<Step>> open = ThreadLocal.withInitial(ArrayDeque::new);
+    private volatile long refreshNanos = -1;
+    private volatile long firstRequestNanos = -1;
+
+    @Override
+    public StartupStep start(String name) {
+        Deque<Step> steps = open.get();
+        Step parent = steps.peekLast();
+        Step step = new Step(ids.incrementAndGet(), parent == null ? null : parent.id, name);
+        steps.addLast(step);
+        return step;
+    }
+
+    /**
+     * Called after every request, only the first one counts.
+     */
+    public void requestHandled() {
+        if (firstRequestNanos < 0) {
+            firstRequestNanos = System.nanoTime() - created;
+            LOGGER.info("First request handled {} ms after the start", TimeUnit.NANOSECONDS.toMillis(firstRequestNanos));
+        }
+    }
+
+    /**
+     * @return milliseconds the refresh of the context took, -1 while it runs
+     */
+    public long getRefreshMillis() {
+        return refreshNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(refreshNanos);
+    }
+
+    /**
+     * @return milliseconds from the start until the first request was handled, -1 before that
+     */
+    public long getFirstRequestMillis() {
+        return firstRequestNanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(firstRequestNanos);
+    }
+
+    /**
+     * @return milliseconds per phase, phases include the phases within them, slowest first
+     */
+    public Map<String, Long> getPhases() {
+        return slowest(phases, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param limit maximum number of beans
+     * @return milliseconds per bean without its dependencies, slowest first
+     */
+    public Map<String, Long> getBeans(int limit) {
+        return slowest(beans, limit);
+    }
+
+    private static Map<String, Long> slowest(Map<String, AtomicLong> nanos, int limit) {
+        Map<String, Long> slowest = new LinkedHashMap<>();
+        nanos.entrySet().stream()
+                .sorted(Map.Entry.<String, AtomicLong>comparingByValue((a, b) -> Long.compare(b.get(), a.get())))
+                .limit(limit)
+                .forEach(entry -> slowest.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue().get())));
+        return slowest;
+    }
+
+    private void ended(Step step, long nanos) {
+        Deque<Step> steps = open.get();
+        steps.remove(step);
+        Step parent = steps.peekLast();
+        if (parent != null) {
+            parent.children += nanos;
+        }
+
+        if (BEAN_STEP.equals(step.name)) {
+            if (step.beanName != null) {
+                beans.computeIfAbsent(step.beanName, key -> new AtomicLong()).addAndGet(nanos - step.children);
+            }
+            return;
+        }
+
+        phases.computeIfAbsent(step.name, key -> new AtomicLong()).addAndGet(nanos);
+        if (REFRESH_STEP.equals(step.name) && parent == null) {
+            refreshNanos = nanos;
+            LOGGER.info("Context refreshed in {} ms, slowest phases {}, slowest beans {}", getRefreshMillis(),
+                    slowest(phases, LOGGED), getBeans(LOGGED));
+        }
+    }
+
+    private class Step implements StartupStep {
+        private final long id;
+        private final Long parentId;
+        private final String name;
+        private final long start = System.nanoTime();
+        private String beanName;
+        private long children;
+
+        Step(long id, Long parentId, String name) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public Long getParentId() {
+            return parentId;
+        }
+
+        @Override
+        public StartupStep tag(String key, String value) {
+            if (BEAN_NAME_TAG.equals(key)) {
+                beanName = value;
+            }
+            return this;
+        }
+
+        /**
+         * Only the bean name is kept, the other tags aren't worth computing.
+         */
+        @Override
+        public StartupStep tag(String key, Supplier<String> value) {
+            return BEAN_NAME_TAG.equals(key) ? tag(key, value.get()) : this;
+        }
+
+        @Override
+        public Tags getTags() {
+            return Collections::emptyIterator;
+        }
+
+        @Override
+        public void end() {
+            ended(this, System.nanoTime() - start);
+        }
+    }
+}
@@ -1,14 +1,139 @@
 package org.eindopdracht.configuration;
 
+import org.eindopdracht.database.EndpointInterceptor;
+import org.eindopdracht.database.StatementHeaderAdvice;
+import org.eindopdracht.util.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 @EnableWebMvc
+@EnableScheduling
 @ComponentScan(basePackages = "org.eindopdracht")
 @PropertySource("classpath:application.properties")
-public class WebConfig {
+public class WebConfig implements WebMvcConfigurer {
+    @Value("${database.statementBudget.maxStatements:25}")
+    private int statementBudget;
+    @Value("${database.export.maxConcurrent:4}")
+    private int exportMaxConcurrent;
+    @Value("${database.export.timeoutMillis:600000}")
+    private long exportTimeout;
+    @Value("${database.stream.senderThreads:4}")
+    private int streamSenderThreads;
+    @Value("${database.stream.maxConnections:2000}")
+    private int streamMaxConnections;
+    @Value("${database.socket.senderThreads:4}")
+    private int socketSenderThreads;
+    @Value("${database.socket.maxConnections:5000}")
+    private int socketMaxConnections;
+    @Value("${database.dashboard.threads:4}")
+    private int dashboardThreads;
 
+    /**
+     * Bean validation for code that validates outside of a controller argument, like the bulk endpoints.
+     */
+    @Bean
+    public LocalValidatorFactoryBean validator() {
+        return new LocalValidatorFactoryBean();
+    }
+
+    /**
+     * Threads that write the export endpoints. Every export holds a database connection while it runs, so
+     * only a few run at once and the rest wait in the queue.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("export-");
+        executor.setCorePoolSize(exportMaxConcurrent);
+        executor.setMaxPoolSize(exportMaxConcurrent);
+        executor.setQueueCapacity(20);
+        return executor;
+    }
+
+    /**
+     * Threads that write the events of GET /stream. Every stream is written by one thread at a time. A write to
+     * a screen that stopped reading blocks its thread until the container gives up on it, so the pool grows up
+     * to a thread per stream instead of making the other streams wait, and shrinks back when they are idle.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("stream-");
+        executor.setCorePoolSize(streamSenderThreads);
+        executor.setMaxPoolSize(Math.max(streamSenderThreads, streamMaxConnections));
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    /**
+     * Threads that write the messages of the WebSocket endpoint, see
+     * {@link org.eindopdracht.resource.service.ScreenBroadcaster}. Like the stream threads, a session is written
+     * by one of them at a time, and the pool grows while screens stall.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor socketExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("socket-");
+        executor.setCorePoolSize(socketSenderThreads);
+        executor.setMaxPoolSize(Math.max(socketSenderThreads, socketMaxConnections));
+        executor.setQueueCapacity(0);
+        return executor;
+    }
+
+    /**
+     * Threads that read the sections of GET /dashboard. Every one holds a database connection while it reads,
+     * so they are few, and only one request at a time rebuilds the dashboard.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setCorePoolSize(dashboardThreads);
+        executor.setMaxPoolSize(dashboardThreads);
+        executor.setQueueCapacity(20);
+        return executor;
+    }
+
+    /**
+     * Exports are written on the export threads. The default timeout of the servlet container would cut
+     * large exports off.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(exportExecutor());
+        configurer.setDefaultTimeout(exportTimeout);
+    }
+
+    /**
+     * Let the frontend read the pagination headers, browsers hide non-standard headers by default.
+     */
+    @Override
+    public void addCorsMappings(CorsRegistry registry) {
+        registry.addMapping("/**")
+                .exposedHeaders(Page.NEXT_CURSOR_HEADER, HttpHeaders.LINK,
+                        StatementHeaderAdvice.STATEMENTS_HEADER, StatementHeaderAdvice.MILLIS_HEADER,
+                        HttpHeaders.AGE, HttpHeaders.WARNING, HttpHeaders.ETAG);
+    }
+
+    /**
+     * Attribute SQL statements to the endpoint that ran them, see /metrics/sql, and log requests that run
+     * more statements than the budget.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new EndpointInterceptor(statementBudget));
+    }
 }
@@ -0,0 +1,25 @@
+package org.eindopdracht.configuration;
+
+import org.eindopdracht.resource.controller.ScreenSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+    private final ScreenSocketHandler screenSocketHandler;
+
+    public WebSocketConfig(ScreenSocketHandler screenSocketHandler) {
+        this.screenSocketHandler = screenSocketHandler;
+    }
+
+    /**
+     * The screens connect from any origin, like the REST endpoints, see {@link WebConfig#addCorsMappings}.
+     */
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(screenSocketHandler, "/screen").setAllowedOrigins("*");
+    }
+}
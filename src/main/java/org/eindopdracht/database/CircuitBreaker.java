@@ -0,0 +1,98 @@
+package org.eindopdracht.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stops asking for connections while the database is down, so requests fail at once instead of waiting for
+ * the pool timeout, and a recovering database isn't stampeded by every screen at once.
+ * <p>
+ * Connections are watched by wrapping the data source, see {@link #wrap(DataSource)}. After failureThreshold
+ * connection failures in a row the breaker opens and new connections fail immediately. The public screen
+ * endpoints are then served from the last snapshot, see
+ * {@link org.eindopdracht.resource.service.SnapshotService}. While open, a background probe asks the database
+ * for a connection every probeIntervalMillis, the first valid one closes the breaker.
+ */
+@Component
+public class CircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+    private static final int PROBE_TIMEOUT_SECONDS = 2;
+
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile boolean open;
+    private volatile long openedAt;
+    private volatile DataSource target;
+
+    @Value("${database.circuitBreaker.failureThreshold:5}")
+    private int failureThreshold;
+
+    /**
+     * @param dataSource data source to watch, the probe asks it for connections directly
+     * @return data source that fails fast while the breaker is open
+     */
+    public DataSource wrap(DataSource dataSource) {
+        this.target = dataSource;
+        return new CircuitBreakerDataSource(dataSource, this);
+    }
+
+    /**
+     * @return whether the database is considered down
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    void success() {
+        if (failures.get() != 0) {
+            failures.set(0);
+        }
+    }
+
+    void failure(SQLException ex) {
+        if (failures.incrementAndGet() >= failureThreshold && !open) {
+            open = true;
+            openedAt = System.nanoTime();
+            LOGGER.error("Circuit breaker opened after {} connection failures in a row", failures.get(), ex);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${database.circuitBreaker.probeIntervalMillis:5000}",
+            fixedDelayString = "${database.circuitBreaker.probeIntervalMillis:5000}")
+    public void probe() {
+        if (!open || target == null) {
+            return;
+        }
+
+        try (Connection connection = target.getConnection()) {
+            if (connection.isValid(PROBE_TIMEOUT_SECONDS)) {
+                failures.set(0);
+                open = false;
+                LOGGER.warn("Circuit breaker closed, the database was unavailable for {} s",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - openedAt));
+            }
+        } catch (SQLException ex) {
+            LOGGER.debug("Database is still unavailable", ex);
+        }
+    }
+
+    /**
+     * Only failures to reach the database count, not errors in a statement. Those are the SQL state class 08,
+     * a pool timeout and a connection the driver gave up on.
+     */
+    static boolean isConnectionFailure(SQLException ex) {
+        return ex instanceof SQLTransientConnectionException
+                || ex instanceof SQLNonTransientConnectionException
+                || ex.getSQLState() != null && ex.getSQLState().startsWith("08");
+    }
+}
@@ -0,0 +1,114 @@
+package org.eindopdracht.database;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Data source that fails fast while the {@link CircuitBreaker} is open, and reports connection failures to it.
+ * <p>
+ * The replica routing hands out lazy connections, the physical connection is fetched on the first statement.
+ * That's why every call on the connection is watched and not only getConnection: preparing a statement
+ * succeeds only with a live database.
+ */
+public class CircuitBreakerDataSource extends DelegatingDataSource implements Closeable {
+    private final CircuitBreaker circuitBreaker;
+
+    public CircuitBreakerDataSource(DataSource targetDataSource, CircuitBreaker circuitBreaker) {
+        super(targetDataSource);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        checkClosed();
+        try {
+            return wrapConnection(getTargetDataSource().getConnection());
+        } catch (SQLException ex) {
+            report(ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        checkClosed();
+        try {
+            return wrapConnection(getTargetDataSource().getConnection(username, password));
+        } catch (SQLException ex) {
+            report(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Spring infers close as the destroy method of the data source bean, pass it on to the pool.
+     */
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable) {
+            ((Closeable) getTargetDataSource()).close();
+        }
+    }
+
+    private void checkClosed() throws SQLException {
+        if (circuitBreaker.isOpen()) {
+            throw new SQLTransientConnectionException("The database is unavailable, the circuit breaker is open", "08001");
+        }
+    }
+
+    private void report(SQLException ex) {
+        if (CircuitBreaker.isConnectionFailure(ex)) {
+            circuitBreaker.failure(ex);
+        }
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            // Equality stays the proxy's own identity, Hibernate keeps connections in maps
+            if ("equals".equals(name) && args != null && args.length == 1) {
+                return proxy == args[0];
+            }
+            if ("hashCode".equals(name) && args == null) {
+                return System.identityHashCode(proxy);
+            }
+
+            Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (InvocationTargetException ex) {
+                if (ex.getCause() instanceof SQLException) {
+                    report((SQLException) ex.getCause());
+                }
+                throw ex.getCause();
+            }
+
+            if (name.startsWith("prepare") || "createStatement".equals(name)) {
+                circuitBreaker.success();
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.eindopdracht.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Remembers which endpoint the current thread is handling, so {@link SqlMetrics} can tell which endpoint
+ * ran a statement. The endpoint is the HTTP method and the mapped pattern, like "GET /event/{id}", so all
+ * ids share one entry.
+ * <p>
+ * The statements of every request are counted with {@link StatementCounter}. A request running more than
+ * the budget is logged, usually that's a lazy collection being loaded row by row.
+ * <p>
+ * An asynchronous request, like an export or /stream, leaves its thread before afterCompletion. The thread
+ * forgets the endpoint right then, the dispatch that completes the request sets it again.
+ */
+public class EndpointInterceptor implements AsyncHandlerInterceptor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EndpointInterceptor.class);
+    private static final ThreadLocal<String> ENDPOINT = new ThreadLocal<>();
+
+    private final int statementBudget;
+
+    /**
+     * @param statementBudget statements a request may run before it is logged, 0 to never log
+     */
+    public EndpointInterceptor(int statementBudget) {
+        this.statementBudget = statementBudget;
+    }
+
+    /**
+     * @return endpoint handled by the current thread, null outside of a request
+     */
+    public static String current() {
+        return ENDPOINT.get();
+    }
+
+    /**
+     * @param endpoint endpoint the current thread handles from now on, null for none
+     */
+    static void setCurrent(String endpoint) {
+        if (endpoint == null) {
+            ENDPOINT.remove();
+        } else {
+            ENDPOINT.set(endpoint);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        ENDPOINT.set(request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern));
+        StatementCounter.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        int statements = StatementCounter.getStatements();
+        if (statementBudget > 0 && statements > statementBudget) {
+            LOGGER.warn("{} ran {} SQL statements in {} ms, the budget is {}", ENDPOINT.get(), statements,
+                    StatementCounter.getMillis(), statementBudget);
+        }
+        ENDPOINT.remove();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ENDPOINT.remove();
+    }
+}
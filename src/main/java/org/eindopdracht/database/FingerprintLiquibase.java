@@ -0,0 +1,160 @@
+package org.eindopdracht.database;
+
+import liquibase.exception.LiquibaseException;
+import liquibase.integration.spring.SpringLiquibase;
+import liquibase.util.LiquibaseUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Only runs Liquibase when the changelog changed since it was last applied to this database.
+ * <p>
+ * Liquibase parses the changelog, takes its lock and checksums every changeSet on every start, which adds
+ * seconds and makes nodes that start together wait for each other. After a successful update the fingerprint
+ * of the changelog is stored in the changelogFingerprint table, a start that finds the same fingerprint skips
+ * Liquibase. The fingerprint covers the changelog, every file it includes or loads data from, recursively, and the
+ * Liquibase version. includeAll names a directory whose files can't be listed reliably from the classpath, a
+ * changelog that uses it fails the start instead of being skipped when an included file changed.
+ * <p>
+ * Delete the row to make the next start run Liquibase again, for instance after changing the database by hand.
+ */
+public class FingerprintLiquibase extends SpringLiquibase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FingerprintLiquibase.class);
+
+    private boolean fingerprintEnabled = true;
+    private boolean skipped;
+
+    /**
+     * @param fingerprintEnabled false to run Liquibase on every start, like a plain {@link SpringLiquibase}
+     */
+    public void setFingerprintEnabled(boolean fingerprintEnabled) {
+        this.fingerprintEnabled = fingerprintEnabled;
+    }
+
+    /**
+     * @return whether the last start skipped Liquibase because the changelog was unchanged
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws LiquibaseException {
+        if (!shouldRun || !fingerprintEnabled) {
+            super.afterPropertiesSet();
+            return;
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(getDataSource());
+        String fingerprint = fingerprint();
+        if (fingerprint.equals(appliedFingerprint(jdbcTemplate))) {
+            skipped = true;
+            LOGGER.info("{} is unchanged since it was applied, skipping Liquibase", getChangeLog());
+            return;
+        }
+
+        skipped = false;
+        super.afterPropertiesSet();
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS changelogFingerprint (id int NOT NULL PRIMARY KEY, fingerprint varchar(64) NOT NULL)");
+        if (jdbcTemplate.update("UPDATE changelogFingerprint SET fingerprint = ? WHERE id = 1", fingerprint) == 0) {
+            jdbcTemplate.update("INSERT INTO changelogFingerprint (id, fingerprint) VALUES (1, ?)", fingerprint);
+        }
+    }
+
+    /**
+     * @return MD5 of the changelog, the files it refers to and the Liquibase version, a new version may
+     * checksum differently
+     */
+    String fingerprint() {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        read(getResourceLoader().getResource(getChangeLog()), content, new HashSet<>());
+        byte[] version = LiquibaseUtil.getBuildVersion().getBytes(StandardCharsets.UTF_8);
+        content.write(version, 0, version.length);
+        return DigestUtils.md5DigestAsHex(content.toByteArray());
+    }
+
+    /**
+     * Append a changelog file, and the files of its include, loadData, loadUpdateData and sqlFile elements.
+     */
+    private void read(Resource resource, ByteArrayOutputStream content, Set<String> visited) {
+        try {
+            if (!visited.add(resource.getURL().toString())) {
+                return;
+            }
+
+            byte[] file;
+            try (InputStream in = resource.getInputStream()) {
+                file = StreamUtils.copyToByteArray(in);
+            }
+            content.write(file, 0, file.length);
+
+            String name = resource.getFilename();
+            if (name == null || !name.endsWith(".xml")) {
+                return;
+            }
+
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            NodeList elements = factory.newDocumentBuilder().parse(new ByteArrayInputStream(file)).getElementsByTagName("*");
+            for (int i = 0; i < elements.getLength(); i++) {
+                Element element = (Element) elements.item(i);
+                String path;
+                switch (element.getLocalName()) {
+                    case "includeAll":
+                        throw new IllegalStateException(name + " uses includeAll, the fingerprint can't cover it."
+                                + " Include the files one by one or disable the fingerprint");
+                    case "include":
+                    case "loadData":
+                    case "loadUpdateData":
+                        path = element.getAttribute("file");
+                        break;
+                    case "sqlFile":
+                        path = element.getAttribute("path");
+                        break;
+                    default:
+                        continue;
+                }
+                boolean relative = Boolean.parseBoolean(element.getAttribute("relativeToChangelogFile"));
+                read(relative ? resource.createRelative(path) : getResourceLoader().getResource("classpath:" + path), content, visited);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new IllegalStateException("Reading " + resource + " for the fingerprint failed", ex);
+        }
+    }
+
+    /**
+     * @return fingerprint of the changelog that was applied last, null when there is none
+     */
+    private static String appliedFingerprint(JdbcTemplate jdbcTemplate) {
+        try {
+            List<String> fingerprints = jdbcTemplate.queryForList("SELECT fingerprint FROM changelogFingerprint WHERE id = 1", String.class);
+            return fingerprints.isEmpty() ? null : fingerprints.get(0);
+        } catch (DataAccessException ex) {
+            // The table doesn't exist before the first update
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.eindopdracht.database;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Applies the changelog and exits, so the migrations can run ahead of a deploy instead of on the first node
+ * that starts. The nodes then find the fingerprint and skip Liquibase, see {@link FingerprintLiquibase}, or
+ * don't run it at all with database.liquibase.enabled=false.
+ * <p>
+ * Run it with the classes and libraries of the WAR, the properties default to application.properties on the
+ * classpath:
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" org.eindopdracht.database.Migrate [path/to/application.properties]
+ * </pre>
+ */
+public final class Migrate {
+    private Migrate() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Resource resource = args.length > 0 ? new FileSystemResource(args[0]) : new ClassPathResource("application.properties");
+        Properties properties = new Properties();
+        try (InputStream in = resource.getInputStream()) {
+            properties.load(in);
+        }
+
+        FingerprintLiquibase liquibase = new FingerprintLiquibase();
+        liquibase.setDataSource(new DriverManagerDataSource(properties.getProperty("database.url"),
+                properties.getProperty("database.username"), properties.getProperty("database.password")));
+        liquibase.setChangeLog("classpath:changelog_master.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+}
@@ -0,0 +1,70 @@
+package org.eindopdracht.database;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.eindopdracht.util.LatencyHistogram;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects connection pool metrics from HikariCP.
+ * Hikari calls the tracker on every checkout, so everything recorded here is lock-free.
+ * The live gauges (active, idle, pending) are read from the {@link PoolStats} Hikari hands us.
+ */
+@Component
+public class PoolMetrics implements MetricsTrackerFactory {
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram usageTime = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                waitTime.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageTime.record(elapsedBorrowedMillis * 1_000_000L);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    /**
+     * @return the live pool statistics, or null when no pool has registered with this tracker (yet)
+     */
+    public PoolStats getPoolStats() {
+        return poolStats;
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public LatencyHistogram getUsageTime() {
+        return usageTime;
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+}
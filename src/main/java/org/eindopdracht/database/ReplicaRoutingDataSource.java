@@ -0,0 +1,262 @@
+package org.eindopdracht.database;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a healthy replica and everything else to the primary.
+ * <p>
+ * The routing decision needs to know whether the current transaction is read-only, which Spring only
+ * registers after the transaction manager has asked for a connection. That's why this is a
+ * {@link LazyConnectionDataSourceProxy}: the physical connection is fetched on the first statement,
+ * when the read-only flag is known.
+ * <p>
+ * Every replica is checked in the background. A replica that doesn't answer, or lags behind the primary
+ * by more than the configured number of seconds, is skipped until it recovers. With no healthy replica
+ * left the reads go to the primary.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final Target primary;
+    private final List<Target> replicas = new ArrayList<>();
+    private final String lagQuery;
+    private final long maxLagSeconds;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService healthChecker;
+
+    /**
+     * @param primary                   data source for writes and the fallback for reads
+     * @param replicas                  read replicas by name
+     * @param lagQuery                  query returning the replication lag in seconds, or null to skip the lag check
+     * @param maxLagSeconds             a replica lagging more than this is not used for reads
+     * @param healthCheckIntervalMillis time between health checks, 0 disables the background checks
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                    String lagQuery, long maxLagSeconds, long healthCheckIntervalMillis) {
+        this.primary = new Target("primary", primary);
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            this.replicas.add(new Target(replica.getKey(), replica.getValue()));
+        }
+        this.lagQuery = lagQuery == null || lagQuery.trim().isEmpty() ? null : lagQuery;
+        this.maxLagSeconds = maxLagSeconds;
+
+        setTargetDataSource(new Router());
+        // Known defaults, so the proxy doesn't have to open a connection to find out
+        setDefaultAutoCommit(true);
+        setDefaultTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+
+        checkHealth();
+
+        if (healthCheckIntervalMillis > 0) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkHealth,
+                    healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            healthChecker = null;
+        }
+    }
+
+    /**
+     * Check every target once.
+     * Replicas are validated and, when a lag query is configured, checked for replication lag.
+     */
+    public void checkHealth() {
+        check(primary, false);
+        for (Target replica : replicas) {
+            check(replica, lagQuery != null);
+        }
+    }
+
+    /**
+     * @return the primary followed by the replicas, with their last known health
+     */
+    public List<Target> getTargets() {
+        List<Target> targets = new ArrayList<>();
+        targets.add(primary);
+        targets.addAll(replicas);
+        return Collections.unmodifiableList(targets);
+    }
+
+    private void check(Target target, boolean checkLag) {
+        try (Connection connection = target.dataSource.getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                target.markUnhealthy("connection is not valid");
+                return;
+            }
+
+            if (checkLag) {
+                Long lag = readLag(connection);
+                target.lagSeconds = lag == null ? -1 : lag;
+                if (lag == null) {
+                    target.markUnhealthy("replication is not running");
+                    return;
+                }
+                if (lag > maxLagSeconds) {
+                    target.markUnhealthy("replica is " + lag + "s behind");
+                    return;
+                }
+            }
+
+            target.markHealthy();
+        } catch (SQLException | RuntimeException ex) {
+            target.markUnhealthy(ex.getMessage());
+        }
+    }
+
+    /**
+     * Run the lag query. MySQL's SHOW REPLICA STATUS returns many columns, so a column with the well-known
+     * name is preferred over the first one.
+     */
+    private Long readLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return null;
+            }
+
+            int column = 1;
+            for (int i = 1; i <= resultSet.getMetaData().getColumnCount(); i++) {
+                String label = resultSet.getMetaData().getColumnLabel(i);
+                if ("Seconds_Behind_Source".equalsIgnoreCase(label) || "Seconds_Behind_Master".equalsIgnoreCase(label)) {
+                    column = i;
+                }
+            }
+
+            long lag = resultSet.getLong(column);
+            return resultSet.wasNull() ? null : lag;
+        }
+    }
+
+    private DataSource route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty()) {
+            return primary.use();
+        }
+
+        int start = Math.abs(nextReplica.getAndIncrement() % replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Target replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica.use();
+            }
+        }
+        return primary.use();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Target target : getTargets()) {
+            if (target.dataSource instanceof Closeable) {
+                ((Closeable) target.dataSource).close();
+            }
+        }
+    }
+
+    /**
+     * The data source the lazy proxy fetches its physical connection from.
+     */
+    private class Router extends AbstractDataSource {
+        @Override
+        public Connection getConnection() throws SQLException {
+            return route().getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return route().getConnection(username, password);
+        }
+    }
+
+    /**
+     * A primary or replica together with its last known health.
+     */
+    public static class Target {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger connections = new AtomicInteger();
+        private volatile boolean healthy = true;
+        private volatile long lagSeconds = -1;
+        private volatile String lastError;
+        private volatile long lastCheck;
+
+        Target(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private DataSource use() {
+            connections.incrementAndGet();
+            return dataSource;
+        }
+
+        private void markHealthy() {
+            if (!healthy) {
+                LOGGER.info("Database target {} is healthy again", name);
+            }
+            healthy = true;
+            lastError = null;
+            lastCheck = System.currentTimeMillis();
+        }
+
+        private void markUnhealthy(String error) {
+            if (healthy) {
+                LOGGER.warn("Database target {} is unhealthy: {}", name, error);
+            }
+            healthy = false;
+            lastError = error;
+            lastCheck = System.currentTimeMillis();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long getLagSeconds() {
+            return lagSeconds;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+
+        public long getLastCheck() {
+            return lastCheck;
+        }
+
+        public int getConnections() {
+            return connections.get();
+        }
+    }
+}
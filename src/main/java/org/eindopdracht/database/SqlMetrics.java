@@ -0,0 +1,160 @@
+package org.eindopdracht.database;
+
+import org.eindopdracht.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the execution time of every SQL statement, grouped per statement.
+ * Statements slower than the threshold are logged with their bound parameters, the number of rows and the
+ * endpoint that ran them. This replaces Hibernate's show_sql, which printed every statement without timing.
+ * <p>
+ * Statements are measured by wrapping the data source, see {@link #wrap(DataSource)}.
+ */
+@Component
+public class SqlMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlMetrics.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final String OTHER = "other";
+    private static final String NO_ENDPOINT = "none";
+    private static final int MAX_PARAMETER_LENGTH = 100;
+
+    private final ConcurrentMap<String, Statement> statements = new ConcurrentHashMap<>();
+
+    @Value("${database.slowQuery.thresholdMillis:500}")
+    private long thresholdMillis;
+    @Value("${database.slowQuery.logParameters:true}")
+    private boolean logParameters;
+    @Value("${database.slowQuery.maxStatements:500}")
+    private int maxStatements;
+
+    /**
+     * @param dataSource data source to measure
+     * @return data source that reports every statement it executes to this collector
+     */
+    public DataSource wrap(DataSource dataSource) {
+        return new SqlMetricsDataSource(dataSource, this);
+    }
+
+    /**
+     * Record a single execution.
+     *
+     * @param sql        the statement as it was sent
+     * @param parameters bound parameters by index, empty for plain statements
+     * @param rows       rows returned or changed, -1 when unknown
+     * @param nanos      execution time in nanoseconds
+     */
+    void record(String sql, Map<Integer, Object> parameters, long rows, long nanos) {
+        StatementCounter.record(nanos);
+
+        String endpoint = EndpointInterceptor.current();
+        Statement statement = statement(normalize(sql));
+        statement.latency.record(nanos);
+        if (rows > 0) {
+            statement.rows.add(rows);
+        }
+        statement.endpoints.computeIfAbsent(endpoint == null ? NO_ENDPOINT : endpoint, key -> new LongAdder()).increment();
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis >= thresholdMillis) {
+            LOGGER.warn("Slow query: {} ms, {} rows, endpoint {}: {}{}", millis, rows,
+                    endpoint == null ? NO_ENDPOINT : endpoint, sql,
+                    logParameters && !parameters.isEmpty() ? " " + formatParameters(parameters) : "");
+        }
+    }
+
+    /**
+     * @return statistics per statement, statements beyond maxStatements are counted as "other"
+     */
+    public Map<String, Statement> getStatements() {
+        return Collections.unmodifiableMap(statements);
+    }
+
+    /**
+     * Forget everything that was collected.
+     */
+    public void reset() {
+        statements.clear();
+    }
+
+    private Statement statement(String sql) {
+        Statement statement = statements.get(sql);
+        if (statement != null) {
+            return statement;
+        }
+        // Don't let ad-hoc SQL grow the map without bounds
+        if (statements.size() >= maxStatements) {
+            return statements.computeIfAbsent(OTHER, key -> new Statement());
+        }
+        return statements.computeIfAbsent(sql, key -> new Statement());
+    }
+
+    /**
+     * Binary values and long texts, like powerpoint uploads, would flood the log.
+     */
+    private static String formatParameters(Map<Integer, Object> parameters) {
+        StringBuilder builder = new StringBuilder("[");
+        for (Object parameter : parameters.values()) {
+            if (builder.length() > 1) {
+                builder.append(", ");
+            }
+            if (parameter instanceof byte[]) {
+                builder.append('<').append(((byte[]) parameter).length).append(" bytes>");
+            } else if (parameter instanceof String && ((String) parameter).length() > MAX_PARAMETER_LENGTH) {
+                builder.append(((String) parameter), 0, MAX_PARAMETER_LENGTH).append("...");
+            } else {
+                builder.append(parameter);
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Group statements that only differ in whitespace or in the length of an IN list.
+     */
+    static String normalize(String sql) {
+        String collapsed = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return PARAMETER_LIST.matcher(collapsed).replaceAll("(?...)");
+    }
+
+    /**
+     * Latency, rows and calling endpoints of one statement.
+     */
+    public static class Statement {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final ConcurrentMap<String, LongAdder> endpoints = new ConcurrentHashMap<>();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * @return number of executions per endpoint, "none" for statements run outside a request
+         */
+        public Map<String, Long> getEndpoints() {
+            Map<String, Long> result = new HashMap<>();
+            for (Map.Entry<String, LongAdder> endpoint : endpoints.entrySet()) {
+                result.put(endpoint.getKey(), endpoint.getValue().sum());
+            }
+            return result;
+        }
+    }
+}
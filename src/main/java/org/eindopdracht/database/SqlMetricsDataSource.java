@@ -0,0 +1,238 @@
+package org.eindopdracht.database;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Data source that times every statement and reports it to {@link SqlMetrics}.
+ * <p>
+ * Connections, statements and result sets are wrapped in dynamic proxies. A query is reported when its
+ * result set or statement is closed, so the time spent fetching rows and the number of rows are included.
+ * Updates and batches are reported as soon as they return.
+ */
+public class SqlMetricsDataSource extends DelegatingDataSource implements Closeable {
+    private final SqlMetrics sqlMetrics;
+
+    public SqlMetricsDataSource(DataSource targetDataSource, SqlMetrics sqlMetrics) {
+        super(targetDataSource);
+        this.sqlMetrics = sqlMetrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(getTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(getTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * Spring infers close as the destroy method of the data source bean, pass it on to the pool.
+     */
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable) {
+            ((Closeable) getTargetDataSource()).close();
+        }
+    }
+
+    private Connection wrapConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Call the wrapped object. Equality stays the proxy's own identity, Hibernate keeps statements in maps.
+     */
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        if ("equals".equals(method.getName()) && args != null && args.length == 1) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(method.getName()) && args == null) {
+            return System.identityHashCode(proxy);
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlMetricsDataSource.invoke(proxy, connection, method, args);
+
+            Class<?> type = method.getReturnType();
+            if (type == Statement.class || type == PreparedStatement.class || type == CallableStatement.class) {
+                // prepareStatement and prepareCall take the SQL as first argument, createStatement doesn't
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[]{type}, new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private Execution pending;
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], args[1]);
+            } else if ("clearParameters".equals(name)) {
+                parameters.clear();
+            } else if ("close".equals(name)) {
+                report();
+            } else if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+
+            Object result = SqlMetricsDataSource.invoke(proxy, statement, method, args);
+            if (result instanceof ResultSet && pending != null) {
+                return wrapResultSet((ResultSet) result);
+            }
+            return result;
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            report();
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            Execution execution = new Execution(sql == null ? "" : sql,
+                    parameters.isEmpty() ? Collections.emptyMap() : new TreeMap<>(parameters));
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = SqlMetricsDataSource.invoke(proxy, statement, method, args);
+            } finally {
+                execution.nanos = System.nanoTime() - start;
+            }
+
+            if (result instanceof ResultSet) {
+                pending = execution;
+                return wrapResultSet((ResultSet) result);
+            }
+
+            if (result instanceof int[] || result instanceof long[]) {
+                execution.rows = batchRows(result);
+            } else if (result instanceof Number) {
+                execution.rows = ((Number) result).longValue();
+            } else if (Boolean.TRUE.equals(result)) {
+                // execute(...) returned a result set, report it when that one is read and closed
+                pending = execution;
+                return result;
+            } else {
+                execution.rows = statement.getUpdateCount();
+            }
+            sqlMetrics.record(execution.sql, execution.parameters, execution.rows, execution.nanos);
+            return result;
+        }
+
+        private long batchRows(Object counts) {
+            long rows = 0;
+            if (counts instanceof int[]) {
+                for (int count : (int[]) counts) {
+                    rows += Math.max(count, 0);
+                }
+            } else {
+                for (long count : (long[]) counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet) {
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new ResultSetHandler(resultSet, pending));
+        }
+
+        private void report() {
+            if (pending != null) {
+                Execution execution = pending;
+                pending = null;
+                sqlMetrics.record(execution.sql, execution.parameters, execution.rows, execution.nanos);
+            }
+        }
+
+        private class ResultSetHandler implements InvocationHandler {
+            private final ResultSet resultSet;
+            private final Execution execution;
+
+            ResultSetHandler(ResultSet resultSet, Execution execution) {
+                this.resultSet = resultSet;
+                this.execution = execution;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if ("next".equals(name)) {
+                    long start = System.nanoTime();
+                    Object result = SqlMetricsDataSource.invoke(proxy, resultSet, method, args);
+                    execution.nanos += System.nanoTime() - start;
+                    if (Boolean.TRUE.equals(result)) {
+                        execution.rows = Math.max(execution.rows, 0) + 1;
+                    }
+                    return result;
+                }
+                if ("close".equals(name) && pending == execution) {
+                    report();
+                }
+                return SqlMetricsDataSource.invoke(proxy, resultSet, method, args);
+            }
+        }
+    }
+
+    /**
+     * One execution of a statement, the time and rows grow while its result set is read.
+     */
+    private static class Execution {
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+        private long nanos;
+        private long rows = -1;
+
+        Execution(String sql, Map<Integer, Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.eindopdracht.database;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Counts the SQL statements run by the current thread, and the time they took.
+ * {@link EndpointInterceptor} resets it at the start of every request, so during a request it holds the
+ * statements of that request. Tests can reset it themselves and assert on the count, which catches a
+ * mapper or toString that starts walking a lazy collection.
+ * <p>
+ * A request that reads on other threads wraps those reads with {@link #onBehalfOfCurrent(Supplier)}.
+ */
+public final class StatementCounter {
+    private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+    private StatementCounter() {
+    }
+
+    static void record(long nanos) {
+        COUNTS.get().add(1, nanos);
+    }
+
+    /**
+     * Start counting from zero on the current thread.
+     */
+    public static void reset() {
+        COUNTS.get().reset();
+    }
+
+    /**
+     * @return statements run by the current thread since the last reset
+     */
+    public static int getStatements() {
+        return COUNTS.get().getStatements();
+    }
+
+    /**
+     * @return time in milliseconds spent in those statements
+     */
+    public static long getMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(COUNTS.get().getNanos());
+    }
+
+    /**
+     * Wrap a task that runs on another thread for the current one. It runs for the endpoint of the current
+     * thread, see {@link EndpointInterceptor#current()}, and its statements are added to the count of the
+     * current thread. Unless that was reset meanwhile, then it is handling another request already.
+     *
+     * @param task task to run on another thread
+     * @param <T>  type of the result
+     * @return task that counts for the current thread
+     */
+    public static <T> Supplier<T> onBehalfOfCurrent(Supplier<T> task) {
+        Counts owner = COUNTS.get();
+        long generation = owner.getGeneration();
+        String endpoint = EndpointInterceptor.current();
+        return () -> {
+            Counts counts = COUNTS.get();
+            int statements = counts.getStatements();
+            long nanos = counts.getNanos();
+            String previous = EndpointInterceptor.current();
+            EndpointInterceptor.setCurrent(endpoint);
+            try {
+                return task.get();
+            } finally {
+                EndpointInterceptor.setCurrent(previous);
+                owner.add(generation, counts.getStatements() - statements, counts.getNanos() - nanos);
+            }
+        };
+    }
+
+    /**
+     * Written by its own thread, and by the tasks it handed to other threads.
+     */
+    private static class Counts {
+        private int statements;
+        private long nanos;
+        private long generation;
+
+        synchronized void add(int statements, long nanos) {
+            this.statements += statements;
+            this.nanos += nanos;
+        }
+
+        synchronized void add(long generation, int statements, long nanos) {
+            if (this.generation == generation) {
+                add(statements, nanos);
+            }
+        }
+
+        synchronized void reset() {
+            statements = 0;
+            nanos = 0;
+            generation++;
+        }
+
+        synchronized int getStatements() {
+            return statements;
+        }
+
+        synchronized long getNanos() {
+            return nanos;
+        }
+
+        synchronized long getGeneration() {
+            return generation;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.eindopdracht.database;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the number of SQL statements a request ran, and their time, as response headers.
+ * Meant for development and test environments, it's off unless database.statementBudget.headers is true.
+ * The headers are written right before the body, so statements run while serializing aren't counted.
+ */
+@ControllerAdvice
+public class StatementHeaderAdvice implements ResponseBodyAdvice<Object> {
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String MILLIS_HEADER = "X-Sql-Millis";
+
+    @Value("${database.statementBudget.headers:false}")
+    private boolean enabled;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return enabled;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        response.getHeaders().set(STATEMENTS_HEADER, String.valueOf(StatementCounter.getStatements()));
+        response.getHeaders().set(MILLIS_HEADER, String.valueOf(StatementCounter.getMillis()));
+        return body;
+    }
+}
@@ -1,11 +1,18 @@
 package org.eindopdracht.resource.controller;
 
+import org.eindopdracht.resource.dto.DeleteResultDTO;
 import org.eindopdracht.resource.dto.ConsultationDTO;
 import org.eindopdracht.resource.service.ConsultationService;
+import org.eindopdracht.resource.service.ExportWriter;
+import org.eindopdracht.util.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -19,13 +26,70 @@ public class ConsultationController {
     }
 
     /**
-     * Returns a list of all consultations.
+     * Returns one page of consultations, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all consultations
+     * @param after id of the last item of the previous page
+     * @param limit maximum number of consultations to return
+     * @return response entity with list of consultations
      */
     @GetMapping
-    public ResponseEntity<List<ConsultationDTO>> get() {
-        return ResponseEntity.ok(consultationService.get());
+    public ResponseEntity<List<ConsultationDTO>> get(@RequestParam(defaultValue = "0") int after,
+                                                     @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return consultationService.get(after, limit).toResponseEntity();
+    }
+
+    /**
+     * Returns the consultations active right now, ordered by start.
+     *
+     * @param limit maximum number of consultations to return
+     * @return response entity with list of active consultations
+     */
+    @GetMapping("/active")
+    public ResponseEntity<List<ConsultationDTO>> getActive(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(consultationService.getActive(limit));
+    }
+
+    /**
+     * Returns the consultations whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param to    end of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param limit maximum number of consultations to return
+     * @return response entity with list of consultations in the window
+     */
+    @GetMapping("/between")
+    public ResponseEntity<List<ConsultationDTO>> getBetween(@RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date from,
+                                                            @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date to,
+                                                            @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(consultationService.getBetween(from, to, limit));
+    }
+
+    /**
+     * Returns the next consultations to start, ordered by start.
+     *
+     * @param limit maximum number of consultations to return
+     * @return response entity with list of upcoming consultations
+     */
+    @GetMapping("/upcoming")
+    public ResponseEntity<List<ConsultationDTO>> getUpcoming(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(consultationService.getUpcoming(limit));
+    }
+
+    /**
+     * Streams all consultations as NDJSON, one consultation per line, or as CSV.
+     * The rows are written while they are read, the response doesn't have to fit in memory.
+     *
+     * @param format ndjson or csv
+     * @return response entity with the consultations as an attachment
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("consultations"))
+                .body(out -> consultationService.export(exportFormat, out));
     }
 
     /**
@@ -72,4 +136,17 @@ public class ConsultationController {
     public ResponseEntity<ConsultationDTO> delete(@PathVariable int id) throws Exception {
         return ResponseEntity.ok(consultationService.delete(id));
     }
+
+    /**
+     * Delete many consultations at once, pass either ids or endedBefore.
+     *
+     * @param ids         ids of the consultations to delete, like ?ids=1,2,3
+     * @param endedBefore delete the consultations that ended before this moment, formatted as dd-MM-yyyy HH:mm:ss
+     * @return response entity with the number of deleted consultations
+     */
+    @DeleteMapping
+    public ResponseEntity<DeleteResultDTO> deleteAll(@RequestParam(required = false) List<Integer> ids,
+                                                     @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date endedBefore) {
+        return ResponseEntity.ok(consultationService.deleteAll(ids, endedBefore));
+    }
 }
@@ -2,8 +2,12 @@ package org.eindopdracht.resource.controller;
 
 import org.eindopdracht.resource.dto.ContentDTO;
 import org.eindopdracht.resource.service.ContentService;
+import org.eindopdracht.resource.service.SnapshotService;
+import org.eindopdracht.resource.service.TableVersions;
+import org.eindopdracht.util.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -13,19 +17,33 @@ import java.util.List;
 @RequestMapping("/content")
 public class ContentController {
     private final ContentService contentService;
+    private final SnapshotService snapshotService;
+    private final TableVersions tableVersions;
 
-    public ContentController(ContentService contentService) {
+    public ContentController(ContentService contentService, SnapshotService snapshotService, TableVersions tableVersions) {
         this.contentService = contentService;
+        this.snapshotService = snapshotService;
+        this.tableVersions = tableVersions;
     }
 
     /**
-     * Returns a list of all content.
+     * Returns one page of content, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all content
+     * @param after   id of the last item of the previous page
+     * @param limit   maximum number of content to return
+     * @param request current request, answers 304 Not Modified when If-None-Match has the current ETag
+     * @return response entity with list of content
      */
     @GetMapping
-    public ResponseEntity<List<ContentDTO>> get() {
-        return ResponseEntity.ok(contentService.get());
+    public ResponseEntity<List<ContentDTO>> get(@RequestParam(defaultValue = "0") int after,
+                                                @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit,
+                                                WebRequest request) {
+        if (tableVersions.checkNotModified(request, TableVersions.Table.CONTENT, TableVersions.Table.CONTENT_TYPE)) {
+            return null;
+        }
+        return snapshotService.serve(() -> contentService.get(after, limit).toResponseEntity(),
+                snapshot -> snapshot.getContent(after, limit).toResponseEntity());
     }
 
     /**
@@ -2,6 +2,7 @@ package org.eindopdracht.resource.controller;
 
 import org.eindopdracht.resource.dto.ContentTypeDTO;
 import org.eindopdracht.resource.service.ContentTypeService;
+import org.eindopdracht.util.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -21,13 +22,17 @@ public class ContentTypeController {
     }
 
     /**
-     * Returns a list of all content types.
+     * Returns one page of content types, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all content types
+     * @param after id of the last item of the previous page
+     * @param limit maximum number of content types to return
+     * @return response entity with list of content types
      */
     @GetMapping
-    public ResponseEntity<List<ContentTypeDTO>> get() {
-        return ResponseEntity.ok(contentTypeService.get());
+    public ResponseEntity<List<ContentTypeDTO>> get(@RequestParam(defaultValue = "0") int after,
+                                                    @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return contentTypeService.get(after, limit).toResponseEntity();
     }
 
     /**
@@ -0,0 +1,44 @@
+package org.eindopdracht.resource.controller;
+
+import org.eindopdracht.resource.service.DashboardService;
+import org.eindopdracht.resource.service.SnapshotService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@CrossOrigin()
+@RequestMapping("/dashboard")
+public class DashboardController {
+    private final DashboardService dashboardService;
+
+    public DashboardController(DashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * Returns everything a screen needs on startup: the settings, content types, content and powerpoints,
+     * and the active events, RSS feeds, schedules and consultations.
+     *
+     * @param request current request, answers 304 Not Modified when If-None-Match has the current ETag
+     * @return response entity with the dashboard, with the Age and Warning headers while the database is down
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> get(WebRequest request) {
+        DashboardService.Payload payload = dashboardService.getPayload();
+        if (request.checkNotModified(payload.getETag())) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (payload.isStale()) {
+            response.header(HttpHeaders.AGE, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - payload.getBuiltAt().getTime())))
+                    .header(HttpHeaders.WARNING, SnapshotService.STALE_WARNING);
+        }
+        return response.body(payload.getBody());
+    }
+}
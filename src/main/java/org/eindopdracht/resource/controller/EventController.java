@@ -1,11 +1,22 @@
 package org.eindopdracht.resource.controller;
 
+import org.eindopdracht.resource.dto.BatchResultDTO;
+import org.eindopdracht.resource.dto.DeleteResultDTO;
 import org.eindopdracht.resource.dto.EventDTO;
 import org.eindopdracht.resource.service.EventService;
+import org.eindopdracht.resource.service.ExportWriter;
+import org.eindopdracht.resource.service.SnapshotService;
+import org.eindopdracht.resource.service.TableVersions;
+import org.eindopdracht.util.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -13,19 +24,86 @@ import java.util.List;
 @RequestMapping("/event")
 public class EventController {
     private final EventService eventService;
+    private final SnapshotService snapshotService;
+    private final TableVersions tableVersions;
 
-    public EventController(EventService eventService) {
+    public EventController(EventService eventService, SnapshotService snapshotService, TableVersions tableVersions) {
         this.eventService = eventService;
+        this.snapshotService = snapshotService;
+        this.tableVersions = tableVersions;
     }
 
     /**
-     * Returns a list of all events.
+     * Returns one page of events, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all events
+     * @param after   id of the last item of the previous page
+     * @param limit   maximum number of events to return
+     * @param request current request, answers 304 Not Modified when If-None-Match has the current ETag
+     * @return response entity with list of events
      */
     @GetMapping
-    public ResponseEntity<List<EventDTO>> get() {
-        return ResponseEntity.ok(eventService.get());
+    public ResponseEntity<List<EventDTO>> get(@RequestParam(defaultValue = "0") int after,
+                                              @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit,
+                                              WebRequest request) {
+        if (tableVersions.checkNotModified(request, TableVersions.Table.EVENT, TableVersions.Table.CONTENT, TableVersions.Table.CONTENT_TYPE)) {
+            return null;
+        }
+        return eventService.get(after, limit).toResponseEntity();
+    }
+
+    /**
+     * Returns the events active right now, ordered by start.
+     *
+     * @param limit maximum number of events to return
+     * @return response entity with list of active events
+     */
+    @GetMapping("/active")
+    public ResponseEntity<List<EventDTO>> getActive(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return snapshotService.serve(() -> ResponseEntity.ok(eventService.getActive(limit)),
+                snapshot -> ResponseEntity.ok(snapshot.getActiveEvents(new Date(), limit)));
+    }
+
+    /**
+     * Returns the events whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param to    end of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param limit maximum number of events to return
+     * @return response entity with list of events in the window
+     */
+    @GetMapping("/between")
+    public ResponseEntity<List<EventDTO>> getBetween(@RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date from,
+                                                     @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date to,
+                                                     @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(eventService.getBetween(from, to, limit));
+    }
+
+    /**
+     * Returns the next events to start, ordered by start.
+     *
+     * @param limit maximum number of events to return
+     * @return response entity with list of upcoming events
+     */
+    @GetMapping("/upcoming")
+    public ResponseEntity<List<EventDTO>> getUpcoming(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(eventService.getUpcoming(limit));
+    }
+
+    /**
+     * Streams all events as NDJSON, one event per line, or as CSV.
+     * The rows are written while they are read, the response doesn't have to fit in memory.
+     *
+     * @param format ndjson or csv
+     * @return response entity with the events as an attachment
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("events"))
+                .body(out -> eventService.export(exportFormat, out));
     }
 
     /**
@@ -50,6 +128,18 @@ public class EventController {
         return ResponseEntity.ok(eventService.persist(eventDto));
     }
 
+    /**
+     * Post a list of events.
+     * All events are validated first, when one of them is invalid nothing is saved.
+     *
+     * @param eventDTOs events to post
+     * @return response entity with the result per event
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO>> postBatch(@RequestBody List<EventDTO> eventDTOs) {
+        return ResponseEntity.ok(eventService.persistAll(eventDTOs));
+    }
+
     /**
      * Put a single event.
      *
@@ -72,4 +162,17 @@ public class EventController {
     public ResponseEntity<EventDTO> delete(@PathVariable int id) {
         return ResponseEntity.ok(eventService.delete(id));
     }
+
+    /**
+     * Delete many events at once, pass either ids or endedBefore.
+     *
+     * @param ids         ids of the events to delete, like ?ids=1,2,3
+     * @param endedBefore delete the events that ended before this moment, formatted as dd-MM-yyyy HH:mm:ss
+     * @return response entity with the number of deleted events
+     */
+    @DeleteMapping
+    public ResponseEntity<DeleteResultDTO> deleteAll(@RequestParam(required = false) List<Integer> ids,
+                                                     @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date endedBefore) {
+        return ResponseEntity.ok(eventService.deleteAll(ids, endedBefore));
+    }
 }
@@ -2,10 +2,14 @@ package org.eindopdracht.resource.controller;
 
 import org.eindopdracht.resource.dto.GlobalSettingsDTO;
 import org.eindopdracht.resource.service.GlobalSettingsService;
+import org.eindopdracht.resource.service.SnapshotService;
+import org.eindopdracht.resource.service.TableVersions;
+import org.eindopdracht.util.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -14,19 +18,33 @@ import java.util.List;
 @RequestMapping("/settings")
 public class GlobalSettingsController {
     private final GlobalSettingsService globalSettingsService;
+    private final SnapshotService snapshotService;
+    private final TableVersions tableVersions;
 
-    private GlobalSettingsController(GlobalSettingsService globalSettingsService) {
+    private GlobalSettingsController(GlobalSettingsService globalSettingsService, SnapshotService snapshotService, TableVersions tableVersions) {
         this.globalSettingsService = globalSettingsService;
+        this.snapshotService = snapshotService;
+        this.tableVersions = tableVersions;
     }
 
     /**
-     * Returns a list of all global settings.
+     * Returns one page of global settings, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all global settings
+     * @param after   id of the last item of the previous page
+     * @param limit   maximum number of global settings to return
+     * @param request current request, answers 304 Not Modified when If-None-Match has the current ETag
+     * @return response entity with list of global settings
      */
     @GetMapping()
-    public ResponseEntity<List<GlobalSettingsDTO>> getSettings() {
-        return new ResponseEntity<>(globalSettingsService.getGlobalSettings(), HttpStatus.OK);
+    public ResponseEntity<List<GlobalSettingsDTO>> getSettings(@RequestParam(defaultValue = "0") int after,
+                                                               @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit,
+                                                               WebRequest request) {
+        if (tableVersions.checkNotModified(request, TableVersions.Table.GLOBAL_SETTINGS)) {
+            return null;
+        }
+        return snapshotService.serve(() -> globalSettingsService.getGlobalSettings(after, limit).toResponseEntity(),
+                snapshot -> snapshot.getSettings(after, limit).toResponseEntity());
     }
 
     /**
@@ -0,0 +1,106 @@
+package org.eindopdracht.resource.controller;
+
+import org.eindopdracht.resource.dto.CacheRegionDTO;
+import org.eindopdracht.resource.dto.PoolMetricsDTO;
+import org.eindopdracht.resource.dto.ReplicaDTO;
+import org.eindopdracht.resource.dto.RetentionDTO;
+import org.eindopdracht.resource.dto.ScreenSessionDTO;
+import org.eindopdracht.resource.dto.SqlStatementDTO;
+import org.eindopdracht.resource.dto.StartupDTO;
+import org.eindopdracht.resource.dto.StreamMetricsDTO;
+import org.eindopdracht.resource.service.MetricsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@CrossOrigin()
+@RequestMapping("/metrics")
+public class MetricsController {
+    private final MetricsService metricsService;
+
+    public MetricsController(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    /**
+     * Returns the live connection pool metrics.
+     *
+     * @return response entity with active and idle connections, wait time histogram and timeouts
+     */
+    @GetMapping("/pool")
+    public ResponseEntity<PoolMetricsDTO> getPoolMetrics() {
+        return ResponseEntity.ok(metricsService.getPoolMetrics());
+    }
+
+    /**
+     * Returns the health of the primary and read replica databases.
+     *
+     * @return response entity with health, replication lag and routed connections per database
+     */
+    @GetMapping("/replicas")
+    public ResponseEntity<List<ReplicaDTO>> getReplicas() {
+        return ResponseEntity.ok(metricsService.getReplicas());
+    }
+
+    /**
+     * Returns the second-level cache statistics.
+     *
+     * @return response entity with hits, misses and puts per cache region
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<List<CacheRegionDTO>> getCacheRegions() {
+        return ResponseEntity.ok(metricsService.getCacheRegions());
+    }
+
+    /**
+     * Returns the time spent per SQL statement.
+     *
+     * @return response entity with latency, rows and calling endpoints per statement, slowest in total first
+     */
+    @GetMapping("/sql")
+    public ResponseEntity<List<SqlStatementDTO>> getStatements() {
+        return ResponseEntity.ok(metricsService.getStatements());
+    }
+
+    /**
+     * Returns what the retention job purged per table.
+     *
+     * @return response entity with retention, purged rows and lag per table
+     */
+    @GetMapping("/retention")
+    public ResponseEntity<List<RetentionDTO>> getRetention() {
+        return ResponseEntity.ok(metricsService.getRetention());
+    }
+
+    /**
+     * Returns where the startup spent its time.
+     *
+     * @return response entity with the refresh time, time until the first request and time per phase and bean
+     */
+    @GetMapping("/startup")
+    public ResponseEntity<StartupDTO> getStartup() {
+        return ResponseEntity.ok(metricsService.getStartup());
+    }
+
+    /**
+     * Returns the open streams of GET /stream.
+     *
+     * @return response entity with the number of open streams and buffer overflows
+     */
+    @GetMapping("/streams")
+    public ResponseEntity<StreamMetricsDTO> getStreams() {
+        return ResponseEntity.ok(metricsService.getStreams());
+    }
+
+    /**
+     * Returns the screens connected over the WebSocket endpoint.
+     *
+     * @return response entity with the subscriptions and the last token sent and acked per screen
+     */
+    @GetMapping("/screens")
+    public ResponseEntity<List<ScreenSessionDTO>> getScreens() {
+        return ResponseEntity.ok(metricsService.getScreens());
+    }
+}
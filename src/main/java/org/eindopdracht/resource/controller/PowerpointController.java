@@ -2,10 +2,15 @@ package org.eindopdracht.resource.controller;
 
 import org.eindopdracht.resource.dto.PowerpointDTO;
 import org.eindopdracht.resource.service.PowerpointService;
+import org.eindopdracht.resource.service.TableVersions;
+import org.eindopdracht.util.ETags;
+import org.eindopdracht.util.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -16,20 +21,31 @@ import java.util.List;
 public class PowerpointController {
 
     private final PowerpointService service;
+    private final TableVersions tableVersions;
 
-    public PowerpointController(PowerpointService service) {
+    public PowerpointController(PowerpointService service, TableVersions tableVersions) {
         this.service = service;
+        this.tableVersions = tableVersions;
     }
 
     /**
-     * Returns a list of all powerpoints.
+     * Returns one page of powerpoints, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all powerpoints
+     * @param after   id of the last item of the previous page
+     * @param limit   maximum number of powerpoints to return
+     * @param request current request, answers 304 Not Modified when If-None-Match has the current ETag
+     * @return response entity with list of powerpoints
      */
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<PowerpointDTO>> getPowerpoints() {
-        return ResponseEntity.ok(service.getPowerpoints());
+    public ResponseEntity<List<PowerpointDTO>> getPowerpoints(@RequestParam(defaultValue = "0") int after,
+                                                              @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit,
+                                                              WebRequest request) {
+        if (tableVersions.checkNotModified(request, TableVersions.Table.POWERPOINT, TableVersions.Table.USER)) {
+            return null;
+        }
+        return service.getPowerpoints(after, limit).toResponseEntity();
     }
 
     /**
@@ -41,7 +57,8 @@ public class PowerpointController {
     @GetMapping("/{id}")
     @ResponseBody
     public ResponseEntity<PowerpointDTO> getPowerpoint(@PathVariable("id") final Integer id) {
-        return ResponseEntity.ok(service.getPowerpoint(id));
+        PowerpointDTO powerpointDTO = service.getPowerpoint(id);
+        return ResponseEntity.ok().eTag(ETags.of(powerpointDTO.getVersion())).body(powerpointDTO);
     }
 
     /**
@@ -61,11 +78,14 @@ public class PowerpointController {
      *
      * @param id            id of the powerpoint to put
      * @param powerpointDTO powerpoint to put
-     * @return response entity with put powerpoint
+     * @param ifMatch       ETag of the powerpoint the client read, the put fails with 412 when it changed since
+     * @return response entity with put powerpoint and its new ETag
      */
     @PutMapping("/{id}")
-    public ResponseEntity<PowerpointDTO> putPowerpoint(@PathVariable("id") final Integer id, @Valid @RequestBody PowerpointDTO powerpointDTO) {
-        return ResponseEntity.ok(service.update(powerpointDTO, id));
+    public ResponseEntity<PowerpointDTO> putPowerpoint(@PathVariable("id") final Integer id, @Valid @RequestBody PowerpointDTO powerpointDTO,
+                                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        PowerpointDTO updated = service.update(powerpointDTO, id, ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
     }
 
     /**
@@ -2,6 +2,9 @@ package org.eindopdracht.resource.controller;
 
 import org.eindopdracht.resource.dto.RoleDTO;
 import org.eindopdracht.resource.service.RoleService;
+import org.eindopdracht.util.ETags;
+import org.eindopdracht.util.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -21,14 +24,18 @@ public class RoleController {
     }
 
     /**
-     * Returns a list of all roles.
+     * Returns one page of roles, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all roles
+     * @param after id of the last item of the previous page
+     * @param limit maximum number of roles to return
+     * @return response entity with list of roles
      */
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<RoleDTO>> getUsers() {
-        return ResponseEntity.ok(service.getRoles());
+    public ResponseEntity<List<RoleDTO>> getUsers(@RequestParam(defaultValue = "0") int after,
+                                                  @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return service.getRoles(after, limit).toResponseEntity();
     }
 
     /**
@@ -40,7 +47,8 @@ public class RoleController {
     @GetMapping("/{id}")
     @ResponseBody
     public ResponseEntity<RoleDTO> getRole(@PathVariable("id") final Integer id) {
-        return ResponseEntity.ok(service.getRole(id));
+        RoleDTO roleDTO = service.getRole(id);
+        return ResponseEntity.ok().eTag(ETags.of(roleDTO.getVersion())).body(roleDTO);
     }
 
     /**
@@ -60,11 +68,14 @@ public class RoleController {
      *
      * @param id      id of the role to put
      * @param roleDTO role to put
-     * @return response entity with put role
+     * @param ifMatch ETag of the role the client read, the put fails with 412 when it changed since
+     * @return response entity with put role and its new ETag
      */
     @PutMapping("/{id}")
-    public ResponseEntity<RoleDTO> putRole(@PathVariable("id") final Integer id, @Valid @RequestBody RoleDTO roleDTO) {
-        return ResponseEntity.ok(service.update(roleDTO, id));
+    public ResponseEntity<RoleDTO> putRole(@PathVariable("id") final Integer id, @Valid @RequestBody RoleDTO roleDTO,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        RoleDTO updated = service.update(roleDTO, id, ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
     }
 
     /**
@@ -2,12 +2,19 @@ package org.eindopdracht.resource.controller;
 
 import org.eindopdracht.resource.dto.RssFeedDTO;
 import org.eindopdracht.resource.service.RssFeedService;
+import org.eindopdracht.resource.service.TableVersions;
+import org.eindopdracht.util.ETags;
+import org.eindopdracht.util.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.validation.Valid;
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -16,20 +23,71 @@ import java.util.List;
 public class RssFeedController {
 
     private final RssFeedService service;
+    private final TableVersions tableVersions;
 
-    public RssFeedController(RssFeedService service) {
+    public RssFeedController(RssFeedService service, TableVersions tableVersions) {
         this.service = service;
+        this.tableVersions = tableVersions;
     }
 
     /**
-     * Returns a list of all RSS feeds.
+     * Returns one page of rss feeds, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all RSS feeds
+     * @param after   id of the last item of the previous page
+     * @param limit   maximum number of rss feeds to return
+     * @param request current request, answers 304 Not Modified when If-None-Match has the current ETag
+     * @return response entity with list of rss feeds
      */
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<RssFeedDTO>> getRssFeeds() {
-        return ResponseEntity.ok(service.getRssFeeds());
+    public ResponseEntity<List<RssFeedDTO>> getRssFeeds(@RequestParam(defaultValue = "0") int after,
+                                                        @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit,
+                                                        WebRequest request) {
+        if (tableVersions.checkNotModified(request, TableVersions.Table.RSS_FEED, TableVersions.Table.USER)) {
+            return null;
+        }
+        return service.getRssFeeds(after, limit).toResponseEntity();
+    }
+
+    /**
+     * Returns the RSS feeds active right now, ordered by start.
+     *
+     * @param limit maximum number of RSS feeds to return
+     * @return response entity with list of active RSS feeds
+     */
+    @GetMapping("/active")
+    @ResponseBody
+    public ResponseEntity<List<RssFeedDTO>> getActiveRssFeeds(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(service.getActiveRssFeeds(limit));
+    }
+
+    /**
+     * Returns the RSS feeds whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param to    end of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param limit maximum number of RSS feeds to return
+     * @return response entity with list of RSS feeds in the window
+     */
+    @GetMapping("/between")
+    @ResponseBody
+    public ResponseEntity<List<RssFeedDTO>> getRssFeedsBetween(@RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date from,
+                                                               @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date to,
+                                                               @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(service.getRssFeedsBetween(from, to, limit));
+    }
+
+    /**
+     * Returns the next RSS feeds to start, ordered by start.
+     *
+     * @param limit maximum number of RSS feeds to return
+     * @return response entity with list of upcoming RSS feeds
+     */
+    @GetMapping("/upcoming")
+    @ResponseBody
+    public ResponseEntity<List<RssFeedDTO>> getUpcomingRssFeeds(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(service.getUpcomingRssFeeds(limit));
     }
 
     /**
@@ -41,7 +99,8 @@ public class RssFeedController {
     @GetMapping("/{id}")
     @ResponseBody
     public ResponseEntity<RssFeedDTO> getRssFeed(@PathVariable("id") final Integer id) {
-        return ResponseEntity.ok(service.getRssFeed(id));
+        RssFeedDTO rssFeedDTO = service.getRssFeed(id);
+        return ResponseEntity.ok().eTag(ETags.of(rssFeedDTO.getVersion())).body(rssFeedDTO);
     }
 
     /**
@@ -61,11 +120,14 @@ public class RssFeedController {
      *
      * @param id         id of the RSS feed to put
      * @param rssFeedDTO RSS feed to put
-     * @return response entity with put RSS feed
+     * @param ifMatch    ETag of the RSS feed the client read, the put fails with 412 when it changed since
+     * @return response entity with put RSS feed and its new ETag
      */
     @PutMapping("/{id}")
-    public ResponseEntity<RssFeedDTO> putRssFeed(@PathVariable("id") final Integer id, @Valid @RequestBody RssFeedDTO rssFeedDTO) {
-        return ResponseEntity.ok(service.update(rssFeedDTO, id));
+    public ResponseEntity<RssFeedDTO> putRssFeed(@PathVariable("id") final Integer id, @Valid @RequestBody RssFeedDTO rssFeedDTO,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        RssFeedDTO updated = service.update(rssFeedDTO, id, ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
     }
 
     /**
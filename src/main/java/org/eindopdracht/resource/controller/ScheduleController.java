@@ -1,30 +1,80 @@
 package org.eindopdracht.resource.controller;
 
+import org.eindopdracht.resource.dto.BatchResultDTO;
+import org.eindopdracht.resource.dto.DeleteResultDTO;
 import org.eindopdracht.resource.dto.ScheduleDTO;
 import org.eindopdracht.resource.service.ScheduleService;
+import org.eindopdracht.resource.service.SnapshotService;
+import org.eindopdracht.util.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.util.Date;
 import java.util.List;
 
 @RestController
 @RequestMapping("/schedule")
 public class ScheduleController {
     private final ScheduleService scheduleService;
+    private final SnapshotService snapshotService;
 
-    public ScheduleController(ScheduleService scheduleService) {
+    public ScheduleController(ScheduleService scheduleService, SnapshotService snapshotService) {
         this.scheduleService = scheduleService;
+        this.snapshotService = snapshotService;
     }
 
     /**
-     * Returns a list of all schedules.
+     * Returns one page of schedules, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all schedules
+     * @param after id of the last item of the previous page
+     * @param limit maximum number of schedules to return
+     * @return response entity with list of schedules
      */
     @GetMapping
-    public ResponseEntity<List<ScheduleDTO>> get() {
-        return ResponseEntity.ok(scheduleService.getAll());
+    public ResponseEntity<List<ScheduleDTO>> get(@RequestParam(defaultValue = "0") int after,
+                                                 @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return scheduleService.getAll(after, limit).toResponseEntity();
+    }
+
+    /**
+     * Returns the schedules active right now, ordered by start.
+     *
+     * @param limit maximum number of schedules to return
+     * @return response entity with list of active schedules
+     */
+    @GetMapping("/active")
+    public ResponseEntity<List<ScheduleDTO>> getActive(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return snapshotService.serve(() -> ResponseEntity.ok(scheduleService.getActive(limit)),
+                snapshot -> ResponseEntity.ok(snapshot.getActiveSchedules(new Date(), limit)));
+    }
+
+    /**
+     * Returns the schedules whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param to    end of the window, formatted as dd-MM-yyyy HH:mm:ss
+     * @param limit maximum number of schedules to return
+     * @return response entity with list of schedules in the window
+     */
+    @GetMapping("/between")
+    public ResponseEntity<List<ScheduleDTO>> getBetween(@RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date from,
+                                                        @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date to,
+                                                        @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(scheduleService.getBetween(from, to, limit));
+    }
+
+    /**
+     * Returns the next schedules to start, ordered by start.
+     *
+     * @param limit maximum number of schedules to return
+     * @return response entity with list of upcoming schedules
+     */
+    @GetMapping("/upcoming")
+    public ResponseEntity<List<ScheduleDTO>> getUpcoming(@RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(scheduleService.getUpcoming(limit));
     }
 
     /**
@@ -49,6 +99,18 @@ public class ScheduleController {
         return ResponseEntity.ok(scheduleService.persist(scheduleDto));
     }
 
+    /**
+     * Post a list of schedules.
+     * All schedules are validated first, when one of them is invalid nothing is saved.
+     *
+     * @param scheduleDTOs schedules to post
+     * @return response entity with the result per schedule
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResultDTO>> postBatch(@RequestBody List<ScheduleDTO> scheduleDTOs) {
+        return ResponseEntity.ok(scheduleService.persistAll(scheduleDTOs));
+    }
+
     /**
      * Put a single schedule.
      *
@@ -71,4 +133,17 @@ public class ScheduleController {
     public ResponseEntity<ScheduleDTO> delete(@PathVariable int id) {
         return ResponseEntity.ok(scheduleService.delete(id));
     }
+
+    /**
+     * Delete many schedules at once, pass either ids or endedBefore.
+     *
+     * @param ids         ids of the schedules to delete, like ?ids=1,2,3
+     * @param endedBefore delete the schedules that ended before this moment, formatted as dd-MM-yyyy HH:mm:ss
+     * @return response entity with the number of deleted schedules
+     */
+    @DeleteMapping
+    public ResponseEntity<DeleteResultDTO> deleteAll(@RequestParam(required = false) List<Integer> ids,
+                                                     @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date endedBefore) {
+        return ResponseEntity.ok(scheduleService.deleteAll(ids, endedBefore));
+    }
 }
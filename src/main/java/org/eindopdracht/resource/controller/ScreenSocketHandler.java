@@ -0,0 +1,95 @@
+package org.eindopdracht.resource.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.resource.dto.ScreenCommandDTO;
+import org.eindopdracht.resource.service.ScreenBroadcaster;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * WebSocket endpoint of the screens, see {@link ScreenBroadcaster}. A screen connects to /screen?screen=name
+ * and sends JSON commands:
+ * <ul>
+ *     <li>{"type": "subscribe", "topics": ["settings", "events", "content/1"]}</li>
+ *     <li>{"type": "unsubscribe", "topics": ["events"]}</li>
+ *     <li>{"type": "ack", "token": "token of the last message it rendered"}</li>
+ * </ul>
+ * It receives {"topic", "token", "upserted", "deleted", "resync"} messages and reads the rows with GET /sync.
+ * A malformed command closes the session, so does a subscription to more than maxTopics topics or to a
+ * content type that doesn't exist.
+ */
+@Component
+public class ScreenSocketHandler extends TextWebSocketHandler {
+    public static final String SCREEN_PARAMETER = "screen";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScreenSocketHandler.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScreenBroadcaster screenBroadcaster;
+
+    public ScreenSocketHandler(ScreenBroadcaster screenBroadcaster) {
+        this.screenBroadcaster = screenBroadcaster;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String screen = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst(SCREEN_PARAMETER);
+        if (!screenBroadcaster.register(session, screen == null ? session.getId() : screen)) {
+            session.close(CloseStatus.SERVICE_OVERLOAD);
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
+        ScreenCommandDTO command;
+        try {
+            command = objectMapper.readValue(message.getPayload(), ScreenCommandDTO.class);
+        } catch (IOException ex) {
+            close(session, "the command isn't valid JSON");
+            return;
+        }
+
+        List<String> topics = command.getTopics() == null ? Collections.emptyList() : command.getTopics();
+        if (ScreenCommandDTO.SUBSCRIBE.equals(command.getType()) || ScreenCommandDTO.UNSUBSCRIBE.equals(command.getType())) {
+            if (topics.isEmpty() || !topics.stream().allMatch(ScreenBroadcaster::isTopic)) {
+                close(session, "unknown topic in " + topics);
+            } else if (ScreenCommandDTO.SUBSCRIBE.equals(command.getType())) {
+                if (!screenBroadcaster.subscribe(session, topics)) {
+                    close(session, "too many topics or an unknown content type in " + topics);
+                }
+            } else {
+                screenBroadcaster.unsubscribe(session, topics);
+            }
+        } else if (ScreenCommandDTO.ACK.equals(command.getType()) && command.getToken() != null) {
+            screenBroadcaster.ack(session, command.getToken());
+        } else {
+            close(session, "unknown command " + command.getType());
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        LOGGER.debug("Transport error on screen session {}", session.getId(), exception);
+        screenBroadcaster.unregister(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        screenBroadcaster.unregister(session);
+    }
+
+    private void close(WebSocketSession session, String reason) throws IOException {
+        screenBroadcaster.unregister(session);
+        session.close(CloseStatus.BAD_DATA.withReason(reason));
+    }
+}
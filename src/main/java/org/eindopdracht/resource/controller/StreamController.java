@@ -0,0 +1,31 @@
+package org.eindopdracht.resource.controller;
+
+import org.eindopdracht.resource.service.StreamService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@CrossOrigin()
+@RequestMapping("/stream")
+public class StreamController {
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final StreamService streamService;
+
+    public StreamController(StreamService streamService) {
+        this.streamService = streamService;
+    }
+
+    /**
+     * Opens a stream of Server-Sent Events. A change event is sent whenever content, events, powerpoints,
+     * RSS feeds or global settings change, a sync event when the screen should call GET /sync.
+     *
+     * @param lastEventId id of the last event received, sent by the browser when it reconnects
+     * @return emitter of the stream
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        return streamService.open(lastEventId);
+    }
+}
@@ -0,0 +1,32 @@
+package org.eindopdracht.resource.controller;
+
+import org.eindopdracht.resource.dto.SyncDTO;
+import org.eindopdracht.resource.service.SyncService;
+import org.eindopdracht.util.Page;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@CrossOrigin()
+@RequestMapping("/sync")
+public class SyncController {
+    private final SyncService syncService;
+
+    public SyncController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    /**
+     * Returns what changed in the content, events, powerpoints, RSS feeds and global settings since a token.
+     * Call again with the returned token, right away while more is set.
+     *
+     * @param since token of the last sync, leave it out for a full sync
+     * @param limit maximum number of changes to read
+     * @return response entity with the upserted rows, the ids of the deleted rows and the next token
+     */
+    @GetMapping
+    public ResponseEntity<SyncDTO> sync(@RequestParam(required = false) String since,
+                                        @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(syncService.sync(since, limit));
+    }
+}
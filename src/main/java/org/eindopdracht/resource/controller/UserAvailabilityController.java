@@ -1,13 +1,20 @@
 package org.eindopdracht.resource.controller;
 
+import org.eindopdracht.resource.dto.BatchResultDTO;
 import org.eindopdracht.resource.dto.UserAvailabilityDTO;
+import org.eindopdracht.resource.service.ExportWriter;
 import org.eindopdracht.resource.service.UserAvailabilityService;
+import org.eindopdracht.util.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.util.Date;
 import java.util.List;
 
 @RestController
@@ -22,14 +29,50 @@ public class UserAvailabilityController {
     }
 
     /**
-     * Returns a list of all user availabilities.
+     * Returns one page of user availabilities, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all user availabilities
+     * @param after id of the last item of the previous page
+     * @param limit maximum number of user availabilities to return
+     * @return response entity with list of user availabilities
      */
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<UserAvailabilityDTO>> getUserAvailabilities() {
-        return ResponseEntity.ok(service.getUserAvailabilities());
+    public ResponseEntity<List<UserAvailabilityDTO>> getUserAvailabilities(@RequestParam(defaultValue = "0") int after,
+                                                                           @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return service.getUserAvailabilities(after, limit).toResponseEntity();
+    }
+
+    /**
+     * Returns the user availabilities with a date between from and to, ordered by date.
+     *
+     * @param from  first date, formatted as dd-MM-yyyy HH:mm:ss
+     * @param to    last date, formatted as dd-MM-yyyy HH:mm:ss
+     * @param limit maximum number of user availabilities to return
+     * @return response entity with list of user availabilities in the window
+     */
+    @GetMapping("/between")
+    @ResponseBody
+    public ResponseEntity<List<UserAvailabilityDTO>> getUserAvailabilitiesBetween(@RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date from,
+                                                                                  @RequestParam @DateTimeFormat(pattern = "dd-MM-yyyy HH:mm:ss") Date to,
+                                                                                  @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return ResponseEntity.ok(service.getUserAvailabilitiesBetween(from, to, limit));
+    }
+
+    /**
+     * Streams all user availabilities as NDJSON, one user availability per line, or as CSV.
+     * The rows are written while they are read, the response doesn't have to fit in memory.
+     *
+     * @param format ndjson or csv
+     * @return response entity with the user availabilities as an attachment
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, exportFormat.attachment("availabilities"))
+                .body(out -> service.export(exportFormat, out));
     }
 
     /**
@@ -56,6 +99,19 @@ public class UserAvailabilityController {
         return ResponseEntity.ok(service.create(availabilityDTO));
     }
 
+    /**
+     * Post a list of user availabilities.
+     * All user availabilities are validated first, when one of them is invalid nothing is saved.
+     *
+     * @param userAvailabilityDTOs user availabilities to post
+     * @return response entity with the result per user availability
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<List<BatchResultDTO>> postAvailabilities(@RequestBody List<UserAvailabilityDTO> userAvailabilityDTOs) {
+        return ResponseEntity.ok(service.createAll(userAvailabilityDTOs));
+    }
+
     /**
      * Put a single user availability.
      *
@@ -2,6 +2,9 @@ package org.eindopdracht.resource.controller;
 
 import org.eindopdracht.resource.dto.UserDTO;
 import org.eindopdracht.resource.service.UserService;
+import org.eindopdracht.util.ETags;
+import org.eindopdracht.util.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -22,14 +25,18 @@ public class UserController {
     }
 
     /**
-     * Returns a list of all users.
+     * Returns one page of users, ordered by id.
+     * The cursor of the next page is sent in the X-Next-Cursor and Link headers.
      *
-     * @return response entity with list of all users
+     * @param after id of the last item of the previous page
+     * @param limit maximum number of users to return
+     * @return response entity with list of users
      */
     @GetMapping
     @ResponseBody
-    public ResponseEntity<List<UserDTO>> getUsers() {
-        return ResponseEntity.ok(service.getUsers());
+    public ResponseEntity<List<UserDTO>> getUsers(@RequestParam(defaultValue = "0") int after,
+                                                  @RequestParam(defaultValue = Page.DEFAULT_LIMIT) int limit) {
+        return service.getUsers(after, limit).toResponseEntity();
     }
 
     /**
@@ -41,7 +48,8 @@ public class UserController {
     @GetMapping("/{id}")
     @ResponseBody
     public ResponseEntity<UserDTO> getUser(@PathVariable("id") final Integer id) {
-        return ResponseEntity.ok(service.getUser(id));
+        UserDTO userDTO = service.getUser(id);
+        return ResponseEntity.ok().eTag(ETags.of(userDTO.getVersion())).body(userDTO);
     }
 
     /**
@@ -61,11 +69,14 @@ public class UserController {
      *
      * @param id      id of the user to put
      * @param userDTO user to put
-     * @return response entity with put user
+     * @param ifMatch ETag of the user the client read, the put fails with 412 when it changed since
+     * @return response entity with put user and its new ETag
      */
     @PutMapping("/{id}")
-    public ResponseEntity<UserDTO> putUser(@PathVariable("id") final Integer id, @Valid @RequestBody UserDTO userDTO) {
-        return ResponseEntity.ok(service.update(userDTO, id));
+    public ResponseEntity<UserDTO> putUser(@PathVariable("id") final Integer id, @Valid @RequestBody UserDTO userDTO,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        UserDTO updated = service.update(userDTO, id, ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
     }
 
     /**
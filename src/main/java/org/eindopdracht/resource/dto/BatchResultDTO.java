@@ -0,0 +1,25 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResultDTO {
+    public static final String CREATED = "created";
+    public static final String INVALID = "invalid";
+    public static final String SKIPPED = "skipped";
+    public static final String FAILED = "failed";
+
+    private int index;
+
+    private Integer id;
+
+    private String status;
+
+    private List<String> errors;
+}
@@ -0,0 +1,20 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionDTO {
+    private String region;
+
+    private long hits;
+
+    private long misses;
+
+    private long puts;
+
+    private long elementsInMemory;
+}
@@ -0,0 +1,17 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeDTO {
+    private Map<String, List<Integer>> upserted;
+
+    private Map<String, List<Integer>> deleted;
+}
@@ -0,0 +1,31 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardDTO {
+    private List<GlobalSettingsDTO> settings;
+
+    private List<ContentTypeDTO> contentTypes;
+
+    private List<ContentDTO> content;
+
+    private List<EventDTO> events;
+
+    private List<PowerpointDTO> powerpoints;
+
+    private List<RssFeedDTO> rssFeeds;
+
+    private List<ScheduleDTO> schedules;
+
+    private List<ConsultationDTO> consultations;
+
+    // Sections that reached the row limit, the rest is on their own endpoint
+    private List<String> truncated;
+}
@@ -0,0 +1,12 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeleteResultDTO {
+    private int deleted;
+}
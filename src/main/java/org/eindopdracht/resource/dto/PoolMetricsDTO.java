@@ -0,0 +1,30 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PoolMetricsDTO {
+    private String poolName;
+
+    private int activeConnections;
+
+    private int idleConnections;
+
+    private int totalConnections;
+
+    private int pendingThreads;
+
+    private int minConnections;
+
+    private int maxConnections;
+
+    private long timeouts;
+
+    private HistogramDTO waitTime;
+
+    private HistogramDTO usageTime;
+}
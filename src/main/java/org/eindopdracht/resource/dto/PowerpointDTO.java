@@ -19,4 +19,16 @@ public class PowerpointDTO {
 
     @NotBlank
     private String path;
+
+    private int version;
+
+    /**
+     * Used by the read queries, which select the columns straight into this DTO instead of loading entities.
+     * The user is a plain object, it is not attached to the persistence context.
+     */
+    public PowerpointDTO(int id, int userId, String userName, String userPassword, String userEmail,
+                         String userProfileImagePath, boolean userApproved, String userRole, boolean userEnabled,
+                         int userVersion, String path, int version) {
+        this(id, new User(userId, null, null, userName, userPassword, userEmail, userProfileImagePath, userApproved, userRole, userEnabled, userVersion), path, version);
+    }
 }
@@ -0,0 +1,22 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaDTO {
+    private String name;
+
+    private boolean healthy;
+
+    private long lagSeconds;
+
+    private String lastError;
+
+    private long lastCheck;
+
+    private int connections;
+}
@@ -0,0 +1,30 @@
+package org.eindopdracht.resource.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetentionDTO {
+    private String table;
+
+    private int days;
+
+    private boolean archive;
+
+    private long purged;
+
+    private long archived;
+
+    private long failures;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss", timezone = "CET")
+    private Date lastRun;
+
+    private long lagSeconds;
+}
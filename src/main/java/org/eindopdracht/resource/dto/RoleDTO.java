@@ -15,4 +15,5 @@ public class RoleDTO {
     @NotBlank
     private String role;
 
+    private int version;
 }
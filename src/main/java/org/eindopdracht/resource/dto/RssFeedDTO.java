@@ -29,4 +29,16 @@ public class RssFeedDTO {
     @NotNull
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss", timezone = "CET")
     private Date endDateTime;
+
+    private int version;
+
+    /**
+     * Used by the read queries, which select the columns straight into this DTO instead of loading entities.
+     * The user is a plain object, it is not attached to the persistence context.
+     */
+    public RssFeedDTO(int id, int userId, String userName, String userPassword, String userEmail,
+                      String userProfileImagePath, boolean userApproved, String userRole, boolean userEnabled,
+                      int userVersion, String link, Date startDateTime, Date endDateTime, int version) {
+        this(id, new User(userId, null, null, userName, userPassword, userEmail, userProfileImagePath, userApproved, userRole, userEnabled, userVersion), link, startDateTime, endDateTime, version);
+    }
 }
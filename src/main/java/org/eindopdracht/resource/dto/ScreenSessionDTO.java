@@ -0,0 +1,29 @@
+package org.eindopdracht.resource.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScreenSessionDTO {
+    private String screen;
+
+    private Set<String> topics;
+
+    private String sentToken;
+
+    private String ackedToken;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss", timezone = "CET")
+    private Date ackedAt;
+
+    private int pending;
+
+    private long resyncs;
+}
@@ -0,0 +1,22 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SqlStatementDTO {
+    private String sql;
+
+    private long rows;
+
+    private double totalMillis;
+
+    private HistogramDTO latency;
+
+    private Map<String, Long> endpoints;
+}
@@ -0,0 +1,20 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StartupDTO {
+    private long refreshMillis;
+
+    private long firstRequestMillis;
+
+    private Map<String, Long> phases;
+
+    private Map<String, Long> beans;
+}
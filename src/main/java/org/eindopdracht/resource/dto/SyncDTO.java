@@ -0,0 +1,23 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncDTO {
+    private String token;
+
+    private boolean reset;
+
+    private boolean more;
+
+    private Map<String, List<?>> upserts;
+
+    private Map<String, List<Integer>> deleted;
+}
@@ -0,0 +1,22 @@
+package org.eindopdracht.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopicMessageDTO {
+    private String topic;
+
+    private String token;
+
+    private List<Integer> upserted;
+
+    private List<Integer> deleted;
+
+    private boolean resync;
+}
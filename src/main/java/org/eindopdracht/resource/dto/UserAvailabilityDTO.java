@@ -21,4 +21,14 @@ public class UserAvailabilityDTO {
     @NotNull
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss", timezone = "CET")
     private Date date;
+
+    /**
+     * Used by the read queries, which select the columns straight into this DTO instead of loading entities.
+     * The user is a plain object, it is not attached to the persistence context.
+     */
+    public UserAvailabilityDTO(int id, int userId, String userName, String userPassword, String userEmail,
+                               String userProfileImagePath, boolean userApproved, String userRole, boolean userEnabled,
+                               int userVersion, Date date) {
+        this(id, new User(userId, null, null, userName, userPassword, userEmail, userProfileImagePath, userApproved, userRole, userEnabled, userVersion), date);
+    }
 }
@@ -3,7 +3,9 @@ package org.eindopdracht.resource.dto;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.eindopdracht.resource.model.Consultation;
 import org.eindopdracht.resource.model.Schedule;
 
@@ -16,10 +18,15 @@ import java.util.List;
 public class UserDTO {
     private int id;
 
+    // Lazy collections of the entity, toString is called by debug logging and would load them
     @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     List<Consultation> consultations;
 
     @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     List<Schedule> schedules;
 
     @NotBlank
@@ -39,4 +46,6 @@ public class UserDTO {
     private String role;
 
     private boolean enabled;
+
+    private int version;
 }
@@ -1,8 +1,12 @@
 package org.eindopdracht.resource.exception;
 
+import org.eindopdracht.resource.dto.BatchResultDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
+import org.eindopdracht.resource.exception.general.BatchValidationException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
+import org.eindopdracht.resource.exception.general.PreconditionFailedException;
+import org.eindopdracht.resource.exception.general.ServiceUnavailableException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +19,7 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
 
 @RestControllerAdvice
 public class ApplicationExceptionHandler extends ResponseEntityExceptionHandler {
@@ -24,6 +29,12 @@ public class ApplicationExceptionHandler extends ResponseEntityExceptionHandler
         return new ErrorMessage(String.format(exception.getMessage()));
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(BatchValidationException.class)
+    public List<BatchResultDTO> batchValidationException(BatchValidationException exception) {
+        return exception.getResults();
+    }
+
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(DataNotFoundException.class)
     public ErrorMessage dataNotFoundException(DataNotFoundException exception, HttpServletRequest request) {
@@ -36,6 +47,18 @@ public class ApplicationExceptionHandler extends ResponseEntityExceptionHandler
         return new ErrorMessage(String.format(exception.getMessage()));
     }
 
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ErrorMessage preconditionFailedException(PreconditionFailedException exception, HttpServletRequest request) {
+        return new ErrorMessage(String.format(exception.getMessage()));
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ErrorMessage serviceUnavailableException(ServiceUnavailableException exception, HttpServletRequest request) {
+        return new ErrorMessage(String.format(exception.getMessage()));
+    }
+
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ExceptionHandler(RuntimeException.class)
     public ErrorMessage generalException(RuntimeException exception) {
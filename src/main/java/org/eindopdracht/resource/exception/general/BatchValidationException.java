@@ -0,0 +1,18 @@
+package org.eindopdracht.resource.exception.general;
+
+import org.eindopdracht.resource.dto.BatchResultDTO;
+
+import java.util.List;
+
+public class BatchValidationException extends RuntimeException {
+    private final List<BatchResultDTO> results;
+
+    public BatchValidationException(List<BatchResultDTO> results) {
+        super("One or more items of the batch are invalid, nothing has been saved.");
+        this.results = results;
+    }
+
+    public List<BatchResultDTO> getResults() {
+        return results;
+    }
+}
@@ -0,0 +1,8 @@
+package org.eindopdracht.resource.exception.general;
+
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super("The data was changed by someone else - " + message);
+    }
+}
@@ -0,0 +1,7 @@
+package org.eindopdracht.resource.exception.general;
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super("The service is unavailable - " + message);
+    }
+}
@@ -15,7 +15,8 @@ public class PowerpointMapper implements EntityMapper<Powerpoint, PowerpointDTO>
         return new PowerpointDTO(
                 powerpoint.getId(),
                 powerpoint.getUser(),
-                powerpoint.getPath()
+                powerpoint.getPath(),
+                powerpoint.getVersion()
         );
     }
 
@@ -24,7 +25,8 @@ public class PowerpointMapper implements EntityMapper<Powerpoint, PowerpointDTO>
         return new Powerpoint(
                 powerpointDTO.getId(),
                 powerpointDTO.getUser(),
-                powerpointDTO.getPath()
+                powerpointDTO.getPath(),
+                powerpointDTO.getVersion()
         );
     }
 
@@ -14,7 +14,8 @@ public class RoleMapper implements EntityMapper<Role, RoleDTO> {
     public RoleDTO mapFromEntity(Role role) {
         return new RoleDTO(
                 role.getId(),
-                role.getRole()
+                role.getRole(),
+                role.getVersion()
         );
     }
 
@@ -22,7 +23,8 @@ public class RoleMapper implements EntityMapper<Role, RoleDTO> {
     public Role mapToEntity(RoleDTO roleDTO) {
         return new Role(
                 roleDTO.getId(),
-                roleDTO.getRole()
+                roleDTO.getRole(),
+                roleDTO.getVersion()
         );
     }
 
@@ -17,7 +17,8 @@ public class RssFeedMapper implements EntityMapper<RssFeed, RssFeedDTO> {
                 rssFeed.getUser(),
                 rssFeed.getLink(),
                 rssFeed.getStartDateTime(),
-                rssFeed.getEndDateTime()
+                rssFeed.getEndDateTime(),
+                rssFeed.getVersion()
         );
     }
 
@@ -28,7 +29,8 @@ public class RssFeedMapper implements EntityMapper<RssFeed, RssFeedDTO> {
                 rssFeedDTO.getUser(),
                 rssFeedDTO.getLink(),
                 rssFeedDTO.getStartDateTime(),
-                rssFeedDTO.getEndDateTime()
+                rssFeedDTO.getEndDateTime(),
+                rssFeedDTO.getVersion()
         );
     }
 
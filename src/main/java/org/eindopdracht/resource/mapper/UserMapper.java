@@ -22,7 +22,8 @@ public class UserMapper implements EntityMapper<User, UserDTO> {
                 user.getProfileImagePath(),
                 user.isApproved(),
                 user.getRole(),
-                user.isEnabled()
+                user.isEnabled(),
+                user.getVersion()
         );
     }
 
@@ -38,7 +39,8 @@ public class UserMapper implements EntityMapper<User, UserDTO> {
                 userDTO.getProfileImagePath(),
                 userDTO.isApproved(),
                 userDTO.getRole(),
-                userDTO.isEnabled()
+                userDTO.isEnabled(),
+                userDTO.getVersion()
         );
     }
 
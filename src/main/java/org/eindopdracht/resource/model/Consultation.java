@@ -15,7 +15,7 @@ import java.util.List;
 @Table(name = "Consultation")
 public class Consultation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled")
     private int id;
 
     @ManyToMany
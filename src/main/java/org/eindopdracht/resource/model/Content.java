@@ -3,6 +3,8 @@ package org.eindopdracht.resource.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import javax.persistence.*;
 
@@ -13,10 +15,12 @@ import javax.persistence.*;
 @Table(name = "content")
 public class Content {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled")
     private int id;
 
+    // Loaded by id so it comes from the second-level cache instead of a join
     @ManyToOne(optional = false, cascade = CascadeType.ALL)
+    @Fetch(FetchMode.SELECT)
     @JoinColumn(name = "contentType_id")
     private ContentType contentType;
 
@@ -3,6 +3,8 @@ package org.eindopdracht.resource.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
@@ -11,9 +13,11 @@ import javax.persistence.*;
 @AllArgsConstructor
 @Entity
 @Table(name = "contentType")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "contentType")
 public class ContentType {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled")
     private int id;
     private String name;
 }
@@ -11,10 +11,11 @@ import java.util.Date;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@NamedEntityGraph(name = "Event.content", attributeNodes = @NamedAttributeNode("content"))
 @Table(name = "event")
 public class Event {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled")
     private int id;
 
     @ManyToOne(optional = false, cascade = CascadeType.ALL)
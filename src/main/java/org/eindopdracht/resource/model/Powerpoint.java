@@ -11,10 +11,11 @@ import javax.validation.constraints.NotBlank;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@NamedEntityGraph(name = "Powerpoint.user", attributeNodes = @NamedAttributeNode("user"))
 @Table(name = "powerpoint")
 public class Powerpoint {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled")
     private int id;
 
     @ManyToOne(cascade = CascadeType.ALL)
@@ -25,4 +26,8 @@ public class Powerpoint {
     @NotBlank
     @Column(name = "path", nullable = false)
     private String path;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private int version;
 }
\ No newline at end of file
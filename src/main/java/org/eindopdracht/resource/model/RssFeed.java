@@ -14,10 +14,11 @@ import java.util.Date;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@NamedEntityGraph(name = "RssFeed.user", attributeNodes = @NamedAttributeNode("user"))
 @Table(name = "rssfeed")
 public class RssFeed {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled")
     private int id;
 
     @ManyToOne(cascade = CascadeType.ALL)
@@ -37,4 +38,8 @@ public class RssFeed {
     @Column(name = "endDateTime", nullable = false)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss", timezone = "CET")
     private Date endDateTime;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private int version;
 }
\ No newline at end of file
@@ -12,10 +12,11 @@ import java.util.Date;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@NamedEntityGraph(name = "UserAvailability.user", attributeNodes = @NamedAttributeNode("user"))
 @Table(name = "userAvailability")
 public class UserAvailability {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "pooled")
     private int id;
 
     @ManyToOne(cascade = CascadeType.ALL)
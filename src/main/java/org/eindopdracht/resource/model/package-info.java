@@ -0,0 +1,22 @@
+/**
+ * Entities of the dashboard.
+ * <p>
+ * Ids come from the "pooled" generator instead of MySQL auto increment. It reserves a block of 50 ids per
+ * round trip in the idGenerator table, one row per entity table. With auto increment Hibernate has to read
+ * the generated key after every single insert, which rules out JDBC batching.
+ */
+@GenericGenerator(
+        name = "pooled",
+        strategy = "org.hibernate.id.enhanced.TableGenerator",
+        parameters = {
+                @Parameter(name = "table_name", value = "idGenerator"),
+                @Parameter(name = "segment_column_name", value = "tableName"),
+                @Parameter(name = "value_column_name", value = "nextId"),
+                @Parameter(name = "prefer_entity_table_as_segment_value", value = "true"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled-lo")
+        })
+package org.eindopdracht.resource.model;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
@@ -0,0 +1,273 @@
+package org.eindopdracht.resource.repository;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Journal of the changes to the rows the screens sync, see GET /sync. The repositories add an entry in the
+ * same transaction as every insert, update and delete, so the journal never misses a committed change and
+ * never holds one that was rolled back.
+ * <p>
+ * An entry only names the row, the sync reads the row as it is now. Entry ids only go up, the last id a
+ * client received is its token. Compaction removes the entries that have a newer one for the same row and
+ * the tombstones past their retention.
+ * <p>
+ * A reader skips the entries younger than lagMillis, see {@link #after}, so every transaction has to commit
+ * within lagMillis of its first entry. The moments come from the database clock, the nodes' clocks don't
+ * matter. Right before the commit the changes are flushed, waiting for their locks included, and a transaction
+ * that gets there later than half of lagMillis after its first entry is rolled back instead of being skipped
+ * by the screens. The other half is left for the commit itself.
+ */
+@Repository
+@Transactional
+public class ChangeJournal {
+    public static final String CONTENT = "content";
+    public static final String EVENT = "event";
+    public static final String POWERPOINT = "powerpoint";
+    public static final String RSS_FEED = "rssFeed";
+    public static final String GLOBAL_SETTINGS = "globalSettings";
+
+    private static final int CHUNK_SIZE = 500;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${database.sync.lagMillis:2000}")
+    private long lagMillis;
+
+    /**
+     * Record that rows were inserted or updated.
+     *
+     * @param table table of the rows
+     * @param ids   ids of the rows
+     */
+    public void upsert(String table, Collection<Integer> ids) {
+        insert(table, ids, false);
+    }
+
+    public void upsert(String table, int id) {
+        insert(table, Collections.singletonList(id), false);
+    }
+
+    /**
+     * Record that rows were deleted.
+     *
+     * @param table table of the rows
+     * @param ids   ids of the rows
+     */
+    public void delete(String table, Collection<Integer> ids) {
+        insert(table, ids, true);
+    }
+
+    public void delete(String table, int id) {
+        insert(table, Collections.singletonList(id), true);
+    }
+
+    /**
+     * Record that the rows referring to a changed row changed as well, they embed it.
+     *
+     * @param table     table of the referring rows
+     * @param condition SQL condition on the referring rows, the id of the changed row is :id
+     * @param id        id of the changed row
+     */
+    public void upsertReferring(String table, String condition, int id) {
+        beforeInsert();
+        synchronize(entityManager.createNativeQuery("INSERT INTO changeJournal (tableName, rowId, deleted, changedAt)"
+                        + " SELECT '" + table + "', id, FALSE, CURRENT_TIMESTAMP(3) FROM " + table + " WHERE " + condition))
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    /**
+     * @return current moment by the database clock, the clock of the entries
+     */
+    @Transactional(readOnly = true)
+    public Date now() {
+        return (Date) entityManager.createNativeQuery("SELECT CURRENT_TIMESTAMP(3)").getSingleResult();
+    }
+
+    /**
+     * Entries after a token, oldest first. Entries younger than settled are left out, together with
+     * everything after them. A transaction that took its id earlier may still be committing, skipping past
+     * it would lose it for good.
+     *
+     * @param since   id of the last entry the client received
+     * @param settled moment before which every transaction has committed
+     * @param limit   maximum number of entries to return
+     * @return list of at most limit entries
+     */
+    @Transactional(readOnly = true)
+    public List<Entry> after(long since, Date settled, int limit) {
+        Number unsettled = (Number) entityManager.createNativeQuery("SELECT MIN(id) FROM changeJournal WHERE id > :since AND changedAt >= :settled")
+                .setParameter("since", since)
+                .setParameter("settled", settled)
+                .getSingleResult();
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("SELECT id, tableName, rowId, deleted, changedAt FROM changeJournal"
+                        + " WHERE id > :since AND id < :unsettled ORDER BY id")
+                .setParameter("since", since)
+                .setParameter("unsettled", unsettled == null ? Long.MAX_VALUE : unsettled.longValue())
+                .setMaxResults(limit)
+                .getResultList();
+        return rows.stream().map(Entry::new).collect(Collectors.toList());
+    }
+
+    /**
+     * @return id of the newest entry, 0 when the journal is empty
+     */
+    @Transactional(readOnly = true)
+    public long lastId() {
+        Number last = (Number) entityManager.createNativeQuery("SELECT MAX(id) FROM changeJournal").getSingleResult();
+        return last == null ? 0 : last.longValue();
+    }
+
+    /**
+     * Delete one chunk of the entries that have a newer entry for the same row.
+     *
+     * @param limit maximum number of entries to delete
+     * @return number of deleted entries, less than limit when there are none left
+     */
+    public int compact(int limit) {
+        return deleteIds(entityManager.createNativeQuery("SELECT j.id FROM changeJournal j WHERE EXISTS"
+                        + " (SELECT 1 FROM changeJournal n WHERE n.tableName = j.tableName AND n.rowId = j.rowId AND n.id > j.id)"
+                        + " ORDER BY j.id")
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * Delete one chunk of the tombstones recorded before a moment.
+     *
+     * @param before moment before which the rows were deleted
+     * @param limit  maximum number of tombstones to delete
+     * @return number of deleted tombstones, less than limit when there are none left
+     */
+    public int purgeTombstones(Date before, int limit) {
+        return deleteIds(entityManager.createNativeQuery("SELECT id FROM changeJournal WHERE deleted = :deleted AND changedAt < :before ORDER BY id")
+                .setParameter("deleted", true)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    private int deleteIds(List<?> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return synchronize(entityManager.createNativeQuery("DELETE FROM changeJournal WHERE id IN (:ids)"))
+                .setParameter("ids", ids.stream().map(id -> ((Number) id).longValue()).collect(Collectors.toList()))
+                .executeUpdate();
+    }
+
+    /**
+     * One multi row insert per chunk of ids. The ids are ints, they are written into the statement.
+     */
+    private void insert(String table, Collection<Integer> ids, boolean deleted) {
+        beforeInsert();
+        List<Integer> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+            String values = all.subList(from, Math.min(from + CHUNK_SIZE, all.size())).stream()
+                    .map(id -> "(:table, " + id + ", :deleted, CURRENT_TIMESTAMP(3))")
+                    .collect(Collectors.joining(", "));
+            synchronize(entityManager.createNativeQuery("INSERT INTO changeJournal (tableName, rowId, deleted, changedAt) VALUES " + values))
+                    .setParameter("table", table)
+                    .setParameter("deleted", deleted)
+                    .executeUpdate();
+        }
+    }
+
+    /**
+     * On the first entry of a transaction, start the clock it has to commit by.
+     */
+    private void beforeInsert() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+
+        long journaledAt = System.nanoTime();
+        TransactionSynchronizationManager.bindResource(this, journaledAt);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // The commit would flush after this check
+                entityManager.flush();
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - journaledAt);
+                if (millis > lagMillis / 2) {
+                    throw new TransientDataAccessResourceException("the transaction reached its commit " + millis
+                            + " ms after its first journal entry, the screens could skip it");
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ChangeJournal.this);
+            }
+        });
+    }
+
+    /**
+     * Without a query space Hibernate assumes a native statement may touch any table, flushes everything and
+     * evicts the whole second-level cache.
+     */
+    private Query synchronize(Query query) {
+        query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("changeJournal");
+        return query;
+    }
+
+    /**
+     * A change to one row.
+     */
+    public static class Entry {
+        private final long id;
+        private final String table;
+        private final int rowId;
+        private final boolean deleted;
+        private final Date changedAt;
+
+        Entry(Object[] row) {
+            this.id = ((Number) row[0]).longValue();
+            this.table = (String) row[1];
+            this.rowId = ((Number) row[2]).intValue();
+            // MySQL returns the boolean column as a number
+            this.deleted = row[3] instanceof Boolean ? (Boolean) row[3] : ((Number) row[3]).intValue() != 0;
+            this.changedAt = (Date) row[4];
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public int getRowId() {
+            return rowId;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        public Date getChangedAt() {
+            return changedAt;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.Consultation;
+import org.hibernate.query.NativeQuery;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
-import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @Transactional
@@ -28,11 +32,101 @@ public class ConsultationRepository {
      *
      * @return response entity with list of all consultations
      */
+    @Transactional(readOnly = true)
     public List<Consultation> get() {
         TypedQuery<Consultation> query = entityManager.createQuery("SELECT DISTINCT c FROM Consultation c JOIN FETCH c.users u order by c.id", Consultation.class);
         return query.getResultList();
     }
 
+    /**
+     * Select queries one page of consultations, ordered by id.
+     * The ids are paged first and the users are fetched for those ids only,
+     * limiting a query with a fetch join would make Hibernate page in memory.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of consultations to return
+     * @return list of at most limit consultations
+     */
+    @Transactional(readOnly = true)
+    public List<Consultation> get(int after, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT c.id FROM Consultation c WHERE c.id > :after AND c.users IS NOT EMPTY ORDER BY c.id", Integer.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return entityManager.createQuery("SELECT DISTINCT c FROM Consultation c JOIN FETCH c.users u WHERE c.id IN :ids ORDER BY c.id", Consultation.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Select queries the consultations whose time window overlaps from - to, ordered by start.
+     * Both bounds are inclusive, so passing the same moment twice returns the consultations active at that moment.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit maximum number of consultations to return
+     * @return list of at most limit consultations
+     */
+    @Transactional(readOnly = true)
+    public List<Consultation> getBetween(Date from, Date to, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT c.id FROM Consultation c WHERE c.endDateTime >= :from AND c.startDateTime <= :to AND c.users IS NOT EMPTY ORDER BY c.startDateTime, c.id", Integer.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .getResultList();
+        return getWithUsers(ids);
+    }
+
+    /**
+     * Select queries the consultations starting after a moment, ordered by start.
+     *
+     * @param now   moment after which the consultations start
+     * @param limit maximum number of consultations to return
+     * @return list of at most limit consultations
+     */
+    @Transactional(readOnly = true)
+    public List<Consultation> getUpcoming(Date now, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT c.id FROM Consultation c WHERE c.startDateTime > :now AND c.users IS NOT EMPTY ORDER BY c.startDateTime, c.id", Integer.class)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+        return getWithUsers(ids);
+    }
+
+    /**
+     * Fetch the users of the consultations selected by one of the time window queries, keeping them ordered by start.
+     */
+    private List<Consultation> getWithUsers(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return entityManager.createQuery("SELECT DISTINCT c FROM Consultation c JOIN FETCH c.users u WHERE c.id IN :ids ORDER BY c.startDateTime, c.id", Consultation.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Reads the ids of all consultations with a cursor and hands the consultations over in chunks, for the
+     * export. The users of a chunk are fetched with one query per chunk, a fetch join can't be read with
+     * a cursor. Consultations without users are included.
+     *
+     * @param chunkSize number of consultations per chunk
+     * @param consumer  receives every chunk, the entities are detached after it returns
+     */
+    @Transactional(readOnly = true)
+    public void export(int chunkSize, Consumer<List<Consultation>> consumer) {
+        TypedQuery<Integer> ids = entityManager.createQuery("SELECT c.id FROM Consultation c ORDER BY c.id", Integer.class);
+        Cursor.forEachChunk(entityManager, ids, chunkSize, chunk -> consumer.accept(
+                entityManager.createQuery("SELECT DISTINCT c FROM Consultation c LEFT JOIN FETCH c.users u WHERE c.id IN :ids ORDER BY c.id", Consultation.class)
+                        .setParameter("ids", chunk)
+                        .getResultList()));
+    }
+
     /**
      * Find a single consultation and return it.
      * Distinct is used to prevent duplicate data.
@@ -42,6 +136,7 @@ public class ConsultationRepository {
      * @param id id of the consultation to find
      * @return response entity with a single consultation
      */
+    @Transactional(readOnly = true)
     public Consultation getById(int id) {
         TypedQuery<Consultation> query = entityManager.createQuery("SELECT DISTINCT c FROM Consultation c JOIN FETCH c.users u WHERE c.id = :id", Consultation.class);
         query.setParameter("id", id);
@@ -84,4 +179,38 @@ public class ConsultationRepository {
         entityManager.remove(entityManager.contains(consultationToDelete) ? consultationToDelete : entityManager.merge(consultationToDelete));
         return consultationToDelete;
     }
+
+    /**
+     * Delete consultations by id without loading them, the userConsultation rows of those consultations are deleted as well.
+     *
+     * @param ids ids of the consultations to delete
+     * @return number of deleted consultations
+     */
+    public int deleteAll(List<Integer> ids) {
+        // A bulk delete doesn't cascade, the userConsultation rows go first. Only the join table is named as query space,
+        // otherwise Hibernate would clear the whole second-level cache for a native statement.
+        entityManager.createNativeQuery("DELETE FROM userConsultation WHERE consultation_id IN (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("userConsultation")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return entityManager.createQuery("DELETE FROM Consultation c WHERE c.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Delete one chunk of the consultations that ended before a moment, oldest ids first.
+     *
+     * @param before moment before which the consultations ended
+     * @param limit  maximum number of consultations to delete
+     * @return number of deleted consultations, less than limit when there are none left
+     */
+    public int deleteEndedBefore(Date before, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT c.id FROM Consultation c WHERE c.endDateTime < :before ORDER BY c.id", Integer.class)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+        return ids.isEmpty() ? 0 : deleteAll(ids);
+    }
 }
@@ -7,6 +7,7 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,23 +15,59 @@ import java.util.List;
 public class ContentRespository {
     @PersistenceContext
     private EntityManager entityManager;
+    private final ChangeJournal changeJournal;
+
+    public ContentRespository(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
 
     /**
      * Select queries all content and returns them in a list.
      *
      * @return response entity with list of all content
      */
+    @Transactional(readOnly = true)
     public List<Content> get() {
         TypedQuery<Content> query = entityManager.createQuery("SELECT c FROM Content c", Content.class);
         return query.getResultList();
     }
 
+    /**
+     * Select queries one page of content, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of content to return
+     * @return list of at most limit content
+     */
+    @Transactional(readOnly = true)
+    public List<Content> get(int after, int limit) {
+        return entityManager.createQuery("SELECT c FROM Content c WHERE c.id > :after ORDER BY c.id", Content.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Find the content with the given ids, for the sync. Missing ids are left out.
+     *
+     * @param ids ids of the content to find
+     * @return list of the content found, ordered by id
+     */
+    @Transactional(readOnly = true)
+    public List<Content> getByIds(Collection<Integer> ids) {
+        return entityManager.createQuery("SELECT c FROM Content c WHERE c.id IN :ids ORDER BY c.id", Content.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     /**
      * Find a single content and return it.
      *
      * @param id id of the content to find
      * @return response entity with single content
      */
+    @Transactional(readOnly = true)
     public Content getById(int id) {
         return entityManager.find(Content.class, id);
     }
@@ -43,6 +80,7 @@ public class ContentRespository {
      */
     public Content persist(Content content) {
         entityManager.persist(content);
+        changeJournal.upsert(ChangeJournal.CONTENT, content.getId());
         return content;
     }
 
@@ -56,6 +94,10 @@ public class ContentRespository {
      */
     public Content put(int id, Content content) {
         content.setId(id);
-        return entityManager.merge(content);
+        Content merged = entityManager.merge(content);
+        changeJournal.upsert(ChangeJournal.CONTENT, id);
+        // Events embed their content
+        changeJournal.upsertReferring(ChangeJournal.EVENT, "content_id = :id", id);
+        return merged;
     }
 }
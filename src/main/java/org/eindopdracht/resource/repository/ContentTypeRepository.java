@@ -1,6 +1,7 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.ContentType;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,23 +15,50 @@ import java.util.List;
 public class ContentTypeRepository {
     @PersistenceContext
     private EntityManager entityManager;
+    private final ChangeJournal changeJournal;
+
+    public ContentTypeRepository(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
 
     /**
      * Select queries all content types and returns them in a list.
      *
      * @return response entity with list of all content types
      */
+    @Transactional(readOnly = true)
     public List<ContentType> get() {
         TypedQuery<ContentType> query = entityManager.createQuery("SELECT c FROM ContentType c", ContentType.class);
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        query.setHint(QueryHints.HINT_CACHE_REGION, "contentType.queries");
         return query.getResultList();
     }
 
+    /**
+     * Select queries one page of content types, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of content types to return
+     * @return list of at most limit content types
+     */
+    @Transactional(readOnly = true)
+    public List<ContentType> get(int after, int limit) {
+        return entityManager.createQuery("SELECT c FROM ContentType c WHERE c.id > :after ORDER BY c.id", ContentType.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, "contentType.queries")
+                .getResultList();
+    }
+
     /**
      * Find a single content type and return it.
      *
      * @param id id of the content type to find
      * @return response entity with single content type
      */
+    @Transactional(readOnly = true)
     public ContentType getById(int id) {
         return entityManager.find(ContentType.class, id);
     }
@@ -56,7 +84,11 @@ public class ContentTypeRepository {
      */
     public ContentType put(int id, ContentType contentType) {
         contentType.setId(id);
-        return entityManager.merge(contentType);
+        ContentType merged = entityManager.merge(contentType);
+        // Content and through it events embed their content type
+        changeJournal.upsertReferring(ChangeJournal.CONTENT, "contentType_id = :id", id);
+        changeJournal.upsertReferring(ChangeJournal.EVENT, "content_id IN (SELECT id FROM content WHERE contentType_id = :id)", id);
+        return merged;
     }
 
     /**
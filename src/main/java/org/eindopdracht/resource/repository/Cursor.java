@@ -0,0 +1,54 @@
+package org.eindopdracht.resource.repository;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a query with a forward-only cursor and hands the rows over in chunks, for the export endpoints.
+ * The persistence context is cleared after every chunk, so memory use depends on the chunk size and not
+ * on the size of the table.
+ * <p>
+ * MySQL only streams when the connection url has useCursorFetch=true, otherwise the driver still reads
+ * the whole result before the first row is returned.
+ */
+final class Cursor {
+    private Cursor() {
+    }
+
+    /**
+     * @param entityManager entity manager of the current transaction
+     * @param query         query to read, ordered
+     * @param chunkSize     rows per chunk, also used as JDBC fetch size
+     * @param consumer      receives every chunk, the list is reused so it must not be kept
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void forEachChunk(EntityManager entityManager, TypedQuery<T> query, int chunkSize, Consumer<List<T>> consumer) {
+        Query<T> hibernateQuery = query.unwrap(Query.class)
+                .setFetchSize(chunkSize)
+                .setReadOnly(true);
+
+        try (ScrollableResults results = hibernateQuery.scroll(ScrollMode.FORWARD_ONLY)) {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (results.next()) {
+                chunk.add((T) results.get(0));
+                if (chunk.size() == chunkSize) {
+                    consumer.accept(chunk);
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+                entityManager.clear();
+            }
+        }
+    }
+}
@@ -1,36 +1,137 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.Event;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository
 @Transactional
 public class EventRepository {
     @PersistenceContext
     private EntityManager entityManager;
+    private final ChangeJournal changeJournal;
+
+    @Value("${database.batch.jdbcBatchSize:50}")
+    private int jdbcBatchSize;
+
+    public EventRepository(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
 
     /**
      * Select queries all events and returns them in a list.
+     * The contents are joined through the Event.content entity graph, the other event queries use it as well.
      *
      * @return response entity with list of all events
      */
+    @Transactional(readOnly = true)
     public List<Event> get() {
         TypedQuery<Event> query = entityManager.createQuery("SELECT e FROM Event e", Event.class);
+        query.setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph("Event.content"));
         return query.getResultList();
     }
 
+    /**
+     * Select queries one page of events, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of events to return
+     * @return list of at most limit events
+     */
+    @Transactional(readOnly = true)
+    public List<Event> get(int after, int limit) {
+        return entityManager.createQuery("SELECT e FROM Event e WHERE e.id > :after ORDER BY e.id", Event.class)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph("Event.content"))
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Find the events with the given ids, for the sync. Missing ids are left out.
+     *
+     * @param ids ids of the events to find
+     * @return list of the events found, ordered by id
+     */
+    @Transactional(readOnly = true)
+    public List<Event> getByIds(Collection<Integer> ids) {
+        return entityManager.createQuery("SELECT e FROM Event e WHERE e.id IN :ids ORDER BY e.id", Event.class)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph("Event.content"))
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Reads all events ordered by id with a cursor and hands them over in chunks, for the export.
+     * The content of every event is fetched in the same query.
+     *
+     * @param chunkSize number of events per chunk
+     * @param consumer  receives every chunk, the entities are detached after it returns
+     */
+    @Transactional(readOnly = true)
+    public void export(int chunkSize, Consumer<List<Event>> consumer) {
+        TypedQuery<Event> query = entityManager.createQuery("SELECT e FROM Event e ORDER BY e.id", Event.class)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph("Event.content"));
+        Cursor.forEachChunk(entityManager, query, chunkSize, consumer);
+    }
+
+    /**
+     * Select queries the events whose time window overlaps from - to, ordered by start.
+     * Both bounds are inclusive, so passing the same moment twice returns the events active at that moment.
+     * Only rows ending after from are read, so the query doesn't slow down as old events pile up.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit maximum number of events to return
+     * @return list of at most limit events
+     */
+    @Transactional(readOnly = true)
+    public List<Event> getBetween(Date from, Date to, int limit) {
+        return entityManager.createQuery("SELECT e FROM Event e WHERE e.endDateTime >= :from AND e.startDateTime <= :to ORDER BY e.startDateTime, e.id", Event.class)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph("Event.content"))
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Select queries the events starting after a moment, ordered by start.
+     *
+     * @param now   moment after which the events start
+     * @param limit maximum number of events to return
+     * @return list of at most limit events
+     */
+    @Transactional(readOnly = true)
+    public List<Event> getUpcoming(Date now, int limit) {
+        return entityManager.createQuery("SELECT e FROM Event e WHERE e.startDateTime > :now ORDER BY e.startDateTime, e.id", Event.class)
+                .setHint(QueryHints.HINT_LOADGRAPH, entityManager.getEntityGraph("Event.content"))
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     /**
      * Find a single event and return it.
      *
      * @param id id of the event to find
      * @return response entity with a single event
      */
+    @Transactional(readOnly = true)
     public Event getById(int id) {
         return entityManager.find(Event.class, id);
     }
@@ -43,9 +144,29 @@ public class EventRepository {
      */
     public Event persist(Event event) {
         entityManager.persist(event);
+        changeJournal.upsert(ChangeJournal.EVENT, event.getId());
+        journalContent(Collections.singletonList(event));
         return event;
     }
 
+    /**
+     * Post a list of events in a single transaction.
+     * The inserts are flushed together, with JDBC batching switched on for this session only.
+     *
+     * @param events events to post
+     * @return posted events
+     */
+    public List<Event> persistAll(List<Event> events) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        for (Event event : events) {
+            entityManager.persist(event);
+        }
+        entityManager.flush();
+        changeJournal.upsert(ChangeJournal.EVENT, events.stream().map(Event::getId).collect(Collectors.toList()));
+        journalContent(events);
+        return events;
+    }
+
     /**
      * Put a single event.
      * Updates all fields.
@@ -56,7 +177,10 @@ public class EventRepository {
      */
     public Event put(int id, Event event) {
         event.setId(id);
-        return entityManager.merge(event);
+        Event merged = entityManager.merge(event);
+        changeJournal.upsert(ChangeJournal.EVENT, id);
+        journalContent(Collections.singletonList(merged));
+        return merged;
     }
 
     /**
@@ -69,6 +193,50 @@ public class EventRepository {
         Event eventToDelete = getById(id);
 
         entityManager.remove(entityManager.contains(eventToDelete) ? eventToDelete : entityManager.merge(eventToDelete));
+        changeJournal.delete(ChangeJournal.EVENT, id);
+        // The content is removed with the event
+        if (eventToDelete.getContent() != null) {
+            changeJournal.delete(ChangeJournal.CONTENT, eventToDelete.getContent().getId());
+        }
         return eventToDelete;
     }
+
+    /**
+     * Delete events by id without loading them, their contents are kept.
+     *
+     * @param ids ids of the events to delete
+     * @return number of deleted events
+     */
+    public int deleteAll(List<Integer> ids) {
+        changeJournal.delete(ChangeJournal.EVENT, ids);
+        return entityManager.createQuery("DELETE FROM Event e WHERE e.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Delete one chunk of the events that ended before a moment, oldest ids first.
+     *
+     * @param before moment before which the events ended
+     * @param limit  maximum number of events to delete
+     * @return number of deleted events, less than limit when there are none left
+     */
+    public int deleteEndedBefore(Date before, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT e.id FROM Event e WHERE e.endDateTime < :before ORDER BY e.id", Integer.class)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+        return ids.isEmpty() ? 0 : deleteAll(ids);
+    }
+
+    /**
+     * The content is written along with its events, by cascade.
+     */
+    private void journalContent(List<Event> events) {
+        changeJournal.upsert(ChangeJournal.CONTENT, events.stream()
+                .filter(event -> event.getContent() != null)
+                .map(event -> event.getContent().getId())
+                .distinct()
+                .collect(Collectors.toList()));
+    }
 }
@@ -1,12 +1,14 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.GlobalSettings;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -14,26 +16,68 @@ import java.util.List;
 public class GlobalSettingsRepository {
     @PersistenceContext
     private EntityManager manager;
+    private final ChangeJournal changeJournal;
+
+    public GlobalSettingsRepository(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
 
     /**
      * Select queries all global settings and returns them in a list.
      *
      * @return response entity with list of all global settings
      */
+    @Transactional(readOnly = true)
     public List<GlobalSettings> getSettings() {
         TypedQuery<GlobalSettings> query = manager.createQuery("SELECT g FROM GlobalSettings g", GlobalSettings.class);
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        query.setHint(QueryHints.HINT_CACHE_REGION, "globalSettings.queries");
         return query.getResultList();
     }
 
+    /**
+     * Select queries one page of global settings, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of global settings to return
+     * @return list of at most limit global settings
+     */
+    @Transactional(readOnly = true)
+    public List<GlobalSettings> getSettings(int after, int limit) {
+        return manager.createQuery("SELECT g FROM GlobalSettings g WHERE g.id > :after ORDER BY g.id", GlobalSettings.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, "globalSettings.queries")
+                .getResultList();
+    }
+
+    /**
+     * Find the global settings with the given ids, for the sync. Missing ids are left out.
+     *
+     * @param ids ids of the global settings to find
+     * @return list of the global settings found, ordered by id
+     */
+    @Transactional(readOnly = true)
+    public List<GlobalSettings> getByIds(Collection<Integer> ids) {
+        return manager.createQuery("SELECT g FROM GlobalSettings g WHERE g.id IN :ids ORDER BY g.id", GlobalSettings.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     /**
      * Find a single global setting and return it.
      *
      * @param id id of the global setting to find
      * @return response entity with a single global setting
      */
+    @Transactional(readOnly = true)
     public GlobalSettings getSettingsById(Integer id) {
         TypedQuery<GlobalSettings> query = manager.createQuery("SELECT g FROM GlobalSettings g WHERE id = :id", GlobalSettings.class);
         query.setParameter("id", id);
+        query.setHint(QueryHints.HINT_CACHEABLE, true);
+        query.setHint(QueryHints.HINT_CACHE_REGION, "globalSettings.queries");
         return query.getSingleResult();
     }
 
@@ -45,6 +89,7 @@ public class GlobalSettingsRepository {
      */
     public GlobalSettings uploadGlobalSettings(GlobalSettings globalSettings) {
         manager.persist(globalSettings);
+        changeJournal.upsert(ChangeJournal.GLOBAL_SETTINGS, globalSettings.getId());
         return globalSettings;
     }
 
@@ -57,6 +102,7 @@ public class GlobalSettingsRepository {
     public GlobalSettings deleteGlobalSettings(Integer id) {
         GlobalSettings globalSettings = manager.find(GlobalSettings.class, id);
         manager.remove(globalSettings);
+        changeJournal.delete(ChangeJournal.GLOBAL_SETTINGS, id);
         return globalSettings;
     }
 
@@ -69,6 +115,8 @@ public class GlobalSettingsRepository {
      * @return response entity with put global setting
      */
     public GlobalSettings updateGlobalSettings(GlobalSettings globalSettings, Integer id) {
-        return manager.merge(globalSettings);
+        GlobalSettings merged = manager.merge(globalSettings);
+        changeJournal.upsert(ChangeJournal.GLOBAL_SETTINGS, merged.getId());
+        return merged;
     }
 }
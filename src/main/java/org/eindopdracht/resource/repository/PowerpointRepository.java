@@ -1,31 +1,79 @@
 package org.eindopdracht.resource.repository;
 
+import org.eindopdracht.resource.dto.PowerpointDTO;
 import org.eindopdracht.resource.model.Powerpoint;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.transaction.Transactional;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 @Transactional
 public class PowerpointRepository {
 
+    /**
+     * Selects the columns of a powerpoint and its user straight into a DTO.
+     * Nothing is loaded into the persistence context, so there are no entities to track or dirty check.
+     */
+    private static final String SELECT_DTO = "SELECT new org.eindopdracht.resource.dto.PowerpointDTO(p.id, u.id, u.name, u.password, u.email, u.profileImagePath, u.isApproved, u.role, u.enabled, u.version, p.path, p.version) FROM Powerpoint p JOIN p.user u";
+
     @PersistenceContext
     private EntityManager manager;
+    private final ChangeJournal changeJournal;
+
+    public PowerpointRepository(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
 
     /**
      * Returns a list of all powerpoints.
+     * The users are joined through the Powerpoint.user entity graph, instead of one select per user.
      *
      * @return response entity with list of all powerpoints
      */
+    @Transactional(readOnly = true)
     public List<Powerpoint> getPowerpoints() {
         CriteriaBuilder cb = manager.getCriteriaBuilder();
         CriteriaQuery<Powerpoint> query = cb.createQuery(Powerpoint.class);
-        return manager.createQuery(query.select(query.from(Powerpoint.class))).getResultList();
+        return manager.createQuery(query.select(query.from(Powerpoint.class)))
+                .setHint(QueryHints.HINT_LOADGRAPH, manager.getEntityGraph("Powerpoint.user"))
+                .getResultList();
+    }
+
+    /**
+     * Select queries one page of powerpoints, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of powerpoints to return
+     * @return list of at most limit powerpoints
+     */
+    @Transactional(readOnly = true)
+    public List<PowerpointDTO> getPowerpoints(int after, int limit) {
+        return manager.createQuery(SELECT_DTO + " WHERE p.id > :after ORDER BY p.id", PowerpointDTO.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Find the powerpoints with the given ids, for the sync. Missing ids are left out.
+     *
+     * @param ids ids of the powerpoints to find
+     * @return list of the powerpoints found, ordered by id
+     */
+    @Transactional(readOnly = true)
+    public List<PowerpointDTO> getByIds(Collection<Integer> ids) {
+        return manager.createQuery(SELECT_DTO + " WHERE p.id IN :ids ORDER BY p.id", PowerpointDTO.class)
+                .setParameter("ids", ids)
+                .getResultList();
     }
 
     /**
@@ -34,6 +82,7 @@ public class PowerpointRepository {
      * @param id id of the powerpoint to find
      * @return response entity with a single powerpoint
      */
+    @Transactional(readOnly = true)
     public Powerpoint getPowerpoint(int id) {
         return manager.find(Powerpoint.class, id);
     }
@@ -46,6 +95,7 @@ public class PowerpointRepository {
      */
     public Powerpoint postPowerpoint(Powerpoint powerpoint) {
         manager.persist(powerpoint);
+        changeJournal.upsert(ChangeJournal.POWERPOINT, powerpoint.getId());
         return manager.find(Powerpoint.class, powerpoint.getId());
     }
 
@@ -61,9 +111,44 @@ public class PowerpointRepository {
         Powerpoint update = manager.find(Powerpoint.class, id);
         update.setUser(powerpoint.getUser());
         update.setPath(powerpoint.getPath());
+        // Flush now, so the returned powerpoint has its new version
+        manager.flush();
+        changeJournal.upsert(ChangeJournal.POWERPOINT, id);
         return update;
     }
 
+    /**
+     * Put a single powerpoint, only when it still has the version the client read.
+     * Updates all fields and increments the version in a single statement, the stored powerpoint is read back
+     * afterwards because the statement bypasses the persistence context.
+     *
+     * @param powerpoint powerpoint to put
+     * @param id         id of the powerpoint to put
+     * @param version    version the client read
+     * @return the stored powerpoint with its new version, null when it has another version
+     * @throws ObjectRetrievalFailureException when the powerpoint doesn't exist
+     */
+    public Powerpoint putPowerpoint(Powerpoint powerpoint, int id, int version) {
+        boolean updated = manager.createQuery("UPDATE Powerpoint p SET p.user = :user, p.path = :path, p.version = p.version + 1"
+                        + " WHERE p.id = :id AND p.version = :version")
+                .setParameter("user", powerpoint.getUser())
+                .setParameter("path", powerpoint.getPath())
+                .setParameter("id", id)
+                .setParameter("version", version)
+                .executeUpdate() == 1;
+        if (!updated) {
+            if (manager.find(Powerpoint.class, id) == null) {
+                throw new ObjectRetrievalFailureException(Powerpoint.class, id);
+            }
+            return null;
+        }
+        changeJournal.upsert(ChangeJournal.POWERPOINT, id);
+
+        Powerpoint stored = manager.find(Powerpoint.class, id);
+        manager.refresh(stored);
+        return stored;
+    }
+
     /**
      * Delete a single powerpoint and return it.
      *
@@ -73,6 +158,7 @@ public class PowerpointRepository {
     public Powerpoint deletePowerpoint(int id) {
         Powerpoint powerpoint = manager.find(Powerpoint.class, id);
         manager.remove(powerpoint);
+        changeJournal.delete(ChangeJournal.POWERPOINT, id);
         return powerpoint;
     }
 }
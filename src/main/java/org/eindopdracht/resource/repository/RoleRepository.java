@@ -1,13 +1,15 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.Role;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.transaction.Transactional;
 import java.util.List;
 
 @Repository
@@ -22,10 +24,32 @@ public class RoleRepository {
      *
      * @return response entity with list of all roles
      */
+    @Transactional(readOnly = true)
     public List<Role> getRoles() {
         CriteriaBuilder cb = manager.getCriteriaBuilder();
         CriteriaQuery<Role> query = cb.createQuery(Role.class);
-        return manager.createQuery(query.select(query.from(Role.class))).getResultList();
+        return manager.createQuery(query.select(query.from(Role.class)))
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, "role.queries")
+                .getResultList();
+    }
+
+    /**
+     * Select queries one page of roles, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of roles to return
+     * @return list of at most limit roles
+     */
+    @Transactional(readOnly = true)
+    public List<Role> getRoles(int after, int limit) {
+        return manager.createQuery("SELECT r FROM Role r WHERE r.id > :after ORDER BY r.id", Role.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, "role.queries")
+                .getResultList();
     }
 
     /**
@@ -34,6 +58,7 @@ public class RoleRepository {
      * @param id id of the role to find
      * @return response entity with a single role
      */
+    @Transactional(readOnly = true)
     public Role getRole(int id) {
         return manager.find(Role.class, id);
     }
@@ -60,9 +85,41 @@ public class RoleRepository {
     public Role putRole(Role role, int id) {
         Role update = manager.find(Role.class, id);
         update.setRole(role.getRole());
+        // Flush now, so the returned role has its new version
+        manager.flush();
         return update;
     }
 
+    /**
+     * Put a single role, only when it still has the version the client read.
+     * Updates all fields and increments the version in a single statement, the stored role is read back
+     * afterwards because the statement bypasses the persistence context.
+     *
+     * @param role    role to put
+     * @param id      id of the role to put
+     * @param version version the client read
+     * @return the stored role with its new version, null when it has another version
+     * @throws ObjectRetrievalFailureException when the role doesn't exist
+     */
+    public Role putRole(Role role, int id, int version) {
+        boolean updated = manager.createQuery("UPDATE Role r SET r.role = :role, r.version = r.version + 1"
+                        + " WHERE r.id = :id AND r.version = :version")
+                .setParameter("role", role.getRole())
+                .setParameter("id", id)
+                .setParameter("version", version)
+                .executeUpdate() == 1;
+        if (!updated) {
+            if (manager.find(Role.class, id) == null) {
+                throw new ObjectRetrievalFailureException(Role.class, id);
+            }
+            return null;
+        }
+
+        Role stored = manager.find(Role.class, id);
+        manager.refresh(stored);
+        return stored;
+    }
+
     /**
      * Delete a single role and return it.
      *
@@ -1,30 +1,112 @@
 package org.eindopdracht.resource.repository;
 
+import org.eindopdracht.resource.dto.RssFeedDTO;
 import org.eindopdracht.resource.model.RssFeed;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 @Repository
 @Transactional
 public class RssFeedRepository {
+    /**
+     * Selects the columns of a rss feed and its user straight into a DTO.
+     * Nothing is loaded into the persistence context, so there are no entities to track or dirty check.
+     */
+    private static final String SELECT_DTO = "SELECT new org.eindopdracht.resource.dto.RssFeedDTO(r.id, u.id, u.name, u.password, u.email, u.profileImagePath, u.isApproved, u.role, u.enabled, u.version, r.link, r.startDateTime, r.endDateTime, r.version) FROM RssFeed r JOIN r.user u";
+
     @PersistenceContext
     private EntityManager manager;
+    private final ChangeJournal changeJournal;
+
+    public RssFeedRepository(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
 
     /**
      * Returns a list of all RSS feeds.
+     * The users are joined through the RssFeed.user entity graph, instead of one select per user.
      *
      * @return response entity with list of all RSS feeds
      */
+    @Transactional(readOnly = true)
     public List<RssFeed> getRssFeeds() {
         CriteriaBuilder cb = manager.getCriteriaBuilder();
         CriteriaQuery<RssFeed> query = cb.createQuery(RssFeed.class);
-        return manager.createQuery(query.select(query.from(RssFeed.class))).getResultList();
+        return manager.createQuery(query.select(query.from(RssFeed.class)))
+                .setHint(QueryHints.HINT_LOADGRAPH, manager.getEntityGraph("RssFeed.user"))
+                .getResultList();
+    }
+
+    /**
+     * Select queries one page of rss feeds, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of rss feeds to return
+     * @return list of at most limit rss feeds
+     */
+    @Transactional(readOnly = true)
+    public List<RssFeedDTO> getRssFeeds(int after, int limit) {
+        return manager.createQuery(SELECT_DTO + " WHERE r.id > :after ORDER BY r.id", RssFeedDTO.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Select queries the rss feeds whose time window overlaps from - to, ordered by start.
+     * Both bounds are inclusive, so passing the same moment twice returns the rss feeds active at that moment.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit maximum number of rss feeds to return
+     * @return list of at most limit rss feeds
+     */
+    @Transactional(readOnly = true)
+    public List<RssFeedDTO> getRssFeedsBetween(Date from, Date to, int limit) {
+        return manager.createQuery(SELECT_DTO + " WHERE r.endDateTime >= :from AND r.startDateTime <= :to ORDER BY r.startDateTime, r.id", RssFeedDTO.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Select queries the rss feeds starting after a moment, ordered by start.
+     *
+     * @param now   moment after which the rss feeds start
+     * @param limit maximum number of rss feeds to return
+     * @return list of at most limit rss feeds
+     */
+    @Transactional(readOnly = true)
+    public List<RssFeedDTO> getUpcomingRssFeeds(Date now, int limit) {
+        return manager.createQuery(SELECT_DTO + " WHERE r.startDateTime > :now ORDER BY r.startDateTime, r.id", RssFeedDTO.class)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Find the RSS feeds with the given ids, for the sync. Missing ids are left out.
+     *
+     * @param ids ids of the RSS feeds to find
+     * @return list of the RSS feeds found, ordered by id
+     */
+    @Transactional(readOnly = true)
+    public List<RssFeedDTO> getByIds(Collection<Integer> ids) {
+        return manager.createQuery(SELECT_DTO + " WHERE r.id IN :ids ORDER BY r.id", RssFeedDTO.class)
+                .setParameter("ids", ids)
+                .getResultList();
     }
 
     /**
@@ -33,6 +115,7 @@ public class RssFeedRepository {
      * @param id id of the RSS feed to find
      * @return response entity with a single RSS feed
      */
+    @Transactional(readOnly = true)
     public RssFeed getRssFeed(int id) {
         return manager.find(RssFeed.class, id);
     }
@@ -45,6 +128,7 @@ public class RssFeedRepository {
      */
     public RssFeed postRssFeed(RssFeed rssFeed) {
         manager.persist(rssFeed);
+        changeJournal.upsert(ChangeJournal.RSS_FEED, rssFeed.getId());
         return manager.find(RssFeed.class, rssFeed.getId());
     }
 
@@ -62,9 +146,47 @@ public class RssFeedRepository {
         update.setLink(rssFeed.getLink());
         update.setEndDateTime(rssFeed.getEndDateTime());
         update.setStartDateTime(rssFeed.getStartDateTime());
+        // Flush now, so the returned RSS feed has its new version
+        manager.flush();
+        changeJournal.upsert(ChangeJournal.RSS_FEED, id);
         return update;
     }
 
+    /**
+     * Put a single RSS feed, only when it still has the version the client read.
+     * Updates all fields and increments the version in a single statement, the stored RSS feed is read back
+     * afterwards because the statement bypasses the persistence context.
+     *
+     * @param rssFeed RSS feed to put
+     * @param id      id of the RSS feed to put
+     * @param version version the client read
+     * @return the stored RSS feed with its new version, null when it has another version
+     * @throws ObjectRetrievalFailureException when the RSS feed doesn't exist
+     */
+    public RssFeed putRssFeed(RssFeed rssFeed, int id, int version) {
+        boolean updated = manager.createQuery("UPDATE RssFeed r SET r.user = :user, r.link = :link, r.startDateTime = :startDateTime,"
+                        + " r.endDateTime = :endDateTime, r.version = r.version + 1"
+                        + " WHERE r.id = :id AND r.version = :version")
+                .setParameter("user", rssFeed.getUser())
+                .setParameter("link", rssFeed.getLink())
+                .setParameter("startDateTime", rssFeed.getStartDateTime())
+                .setParameter("endDateTime", rssFeed.getEndDateTime())
+                .setParameter("id", id)
+                .setParameter("version", version)
+                .executeUpdate() == 1;
+        if (!updated) {
+            if (manager.find(RssFeed.class, id) == null) {
+                throw new ObjectRetrievalFailureException(RssFeed.class, id);
+            }
+            return null;
+        }
+        changeJournal.upsert(ChangeJournal.RSS_FEED, id);
+
+        RssFeed stored = manager.find(RssFeed.class, id);
+        manager.refresh(stored);
+        return stored;
+    }
+
     /**
      * Delete a single RSS feed and return it.
      *
@@ -74,6 +196,20 @@ public class RssFeedRepository {
     public RssFeed deleteRssFeed(int id) {
         RssFeed feed = manager.find(RssFeed.class, id);
         manager.remove(feed);
+        changeJournal.delete(ChangeJournal.RSS_FEED, id);
         return feed;
     }
+
+    /**
+     * Delete RSS feeds by id without loading them.
+     *
+     * @param ids ids of the RSS feeds to delete
+     * @return number of deleted RSS feeds
+     */
+    public int deleteAll(List<Integer> ids) {
+        changeJournal.delete(ChangeJournal.RSS_FEED, ids);
+        return manager.createQuery("DELETE FROM RssFeed r WHERE r.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
 }
@@ -1,12 +1,17 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.Schedule;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 @Repository
@@ -15,6 +20,9 @@ public class ScheduleRepository {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Value("${database.batch.jdbcBatchSize:50}")
+    private int jdbcBatchSize;
+
     /**
      * Select queries all schedules and returns them in a list.
      * Distinct is used to prevent duplicate data.
@@ -22,11 +30,84 @@ public class ScheduleRepository {
      *
      * @return response entity with list of all schedules
      */
+    @Transactional(readOnly = true)
     public List<Schedule> get() {
         TypedQuery<Schedule> query = entityManager.createQuery("SELECT DISTINCT s FROM Schedule s JOIN FETCH s.users u", Schedule.class);
         return query.getResultList();
     }
 
+    /**
+     * Select queries one page of schedules, ordered by id.
+     * The ids are paged first and the users are fetched for those ids only,
+     * limiting a query with a fetch join would make Hibernate page in memory.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of schedules to return
+     * @return list of at most limit schedules
+     */
+    @Transactional(readOnly = true)
+    public List<Schedule> get(int after, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT s.id FROM Schedule s WHERE s.id > :after AND s.users IS NOT EMPTY ORDER BY s.id", Integer.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return entityManager.createQuery("SELECT DISTINCT s FROM Schedule s JOIN FETCH s.users u WHERE s.id IN :ids ORDER BY s.id", Schedule.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * Select queries the schedules whose time window overlaps from - to, ordered by start.
+     * Both bounds are inclusive, so passing the same moment twice returns the schedules active at that moment.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit maximum number of schedules to return
+     * @return list of at most limit schedules
+     */
+    @Transactional(readOnly = true)
+    public List<Schedule> getBetween(Date from, Date to, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT s.id FROM Schedule s WHERE s.endDateTime >= :from AND s.startDateTime <= :to AND s.users IS NOT EMPTY ORDER BY s.startDateTime, s.id", Integer.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .getResultList();
+        return getWithUsers(ids);
+    }
+
+    /**
+     * Select queries the schedules starting after a moment, ordered by start.
+     *
+     * @param now   moment after which the schedules start
+     * @param limit maximum number of schedules to return
+     * @return list of at most limit schedules
+     */
+    @Transactional(readOnly = true)
+    public List<Schedule> getUpcoming(Date now, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT s.id FROM Schedule s WHERE s.startDateTime > :now AND s.users IS NOT EMPTY ORDER BY s.startDateTime, s.id", Integer.class)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+        return getWithUsers(ids);
+    }
+
+    /**
+     * Fetch the users of the schedules selected by one of the time window queries, keeping them ordered by start.
+     */
+    private List<Schedule> getWithUsers(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return entityManager.createQuery("SELECT DISTINCT s FROM Schedule s JOIN FETCH s.users u WHERE s.id IN :ids ORDER BY s.startDateTime, s.id", Schedule.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     /**
      * Find a single schedule and return it.
      * Distinct is used to prevent duplicate data.
@@ -36,6 +117,7 @@ public class ScheduleRepository {
      * @param id id of the schedule to find
      * @return response entity with a single schedule
      */
+    @Transactional(readOnly = true)
     public Schedule getById(int id) {
         TypedQuery<Schedule> query = entityManager.createQuery("SELECT DISTINCT s FROM Schedule s JOIN FETCH s.users u WHERE s.id = :id", Schedule.class);
         query.setParameter("id", id);
@@ -53,6 +135,22 @@ public class ScheduleRepository {
         return schedule;
     }
 
+    /**
+     * Post a list of schedules in a single transaction.
+     * The inserts are flushed together, with JDBC batching switched on for this session only.
+     *
+     * @param schedules schedules to post
+     * @return posted schedules
+     */
+    public List<Schedule> postAll(List<Schedule> schedules) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        for (Schedule schedule : schedules) {
+            entityManager.persist(schedule);
+        }
+        entityManager.flush();
+        return schedules;
+    }
+
     /**
      * Put a single schedule.
      * Updates all fields.
@@ -79,4 +177,38 @@ public class ScheduleRepository {
         entityManager.remove(entityManager.contains(scheduleToDelete) ? scheduleToDelete : entityManager.merge(scheduleToDelete));
         return scheduleToDelete;
     }
+
+    /**
+     * Delete schedules by id without loading them, the userSchedule rows of those schedules are deleted as well.
+     *
+     * @param ids ids of the schedules to delete
+     * @return number of deleted schedules
+     */
+    public int deleteAll(List<Integer> ids) {
+        // A bulk delete doesn't cascade, the userSchedule rows go first. Only the join table is named as query space,
+        // otherwise Hibernate would clear the whole second-level cache for a native statement.
+        entityManager.createNativeQuery("DELETE FROM userSchedule WHERE schedule_id IN (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("userSchedule")
+                .setParameter("ids", ids)
+                .executeUpdate();
+        return entityManager.createQuery("DELETE FROM Schedule s WHERE s.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Delete one chunk of the schedules that ended before a moment, oldest ids first.
+     *
+     * @param before moment before which the schedules ended
+     * @param limit  maximum number of schedules to delete
+     * @return number of deleted schedules, less than limit when there are none left
+     */
+    public int deleteEndedBefore(Date before, int limit) {
+        List<Integer> ids = entityManager.createQuery("SELECT s.id FROM Schedule s WHERE s.endDateTime < :before ORDER BY s.id", Integer.class)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+        return ids.isEmpty() ? 0 : deleteAll(ids);
+    }
 }
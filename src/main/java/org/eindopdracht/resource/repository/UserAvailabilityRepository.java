@@ -1,31 +1,98 @@
 package org.eindopdracht.resource.repository;
 
+import org.eindopdracht.resource.dto.UserAvailabilityDTO;
+import org.eindopdracht.resource.model.User;
 import org.eindopdracht.resource.model.UserAvailability;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.transaction.Transactional;
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 @Transactional
 public class UserAvailabilityRepository {
 
+    /**
+     * Selects the columns of a user availability and its user straight into a DTO.
+     * Nothing is loaded into the persistence context, so there are no entities to track or dirty check.
+     */
+    private static final String SELECT_DTO = "SELECT new org.eindopdracht.resource.dto.UserAvailabilityDTO(a.id, u.id, u.name, u.password, u.email, u.profileImagePath, u.isApproved, u.role, u.enabled, u.version, a.date) FROM UserAvailability a JOIN a.user u";
+
     @PersistenceContext
     private EntityManager manager;
 
+    @Value("${database.batch.jdbcBatchSize:50}")
+    private int jdbcBatchSize;
+
     /**
      * Returns a list of all user availabilities.
+     * The users are joined through the UserAvailability.user entity graph, instead of one select per user.
      *
      * @return response entity with list of all user availabilities
      */
+    @Transactional(readOnly = true)
     public List<UserAvailability> getUserAvailabilities() {
         CriteriaBuilder cb = manager.getCriteriaBuilder();
         CriteriaQuery<UserAvailability> query = cb.createQuery(UserAvailability.class);
-        return manager.createQuery(query.select(query.from(UserAvailability.class))).getResultList();
+        return manager.createQuery(query.select(query.from(UserAvailability.class)))
+                .setHint(QueryHints.HINT_LOADGRAPH, manager.getEntityGraph("UserAvailability.user"))
+                .getResultList();
+    }
+
+    /**
+     * Select queries one page of user availabilities, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of user availabilities to return
+     * @return list of at most limit user availabilities
+     */
+    @Transactional(readOnly = true)
+    public List<UserAvailabilityDTO> getUserAvailabilities(int after, int limit) {
+        return manager.createQuery(SELECT_DTO + " WHERE a.id > :after ORDER BY a.id", UserAvailabilityDTO.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Select queries the user availabilities with a date between from and to, ordered by date.
+     *
+     * @param from  first date, inclusive
+     * @param to    last date, inclusive
+     * @param limit maximum number of user availabilities to return
+     * @return list of at most limit user availabilities
+     */
+    @Transactional(readOnly = true)
+    public List<UserAvailabilityDTO> getUserAvailabilitiesBetween(Date from, Date to, int limit) {
+        return manager.createQuery(SELECT_DTO + " WHERE a.date BETWEEN :from AND :to ORDER BY a.date, a.id", UserAvailabilityDTO.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Reads all user availabilities ordered by id with a cursor and hands them over in chunks, for the export.
+     * The rows are selected straight into DTOs, so nothing piles up in the persistence context.
+     *
+     * @param chunkSize number of user availabilities per chunk
+     * @param consumer  receives every chunk
+     */
+    @Transactional(readOnly = true)
+    public void export(int chunkSize, Consumer<List<UserAvailabilityDTO>> consumer) {
+        Cursor.forEachChunk(manager, manager.createQuery(SELECT_DTO + " ORDER BY a.id", UserAvailabilityDTO.class),
+                chunkSize, consumer);
     }
 
     /**
@@ -34,6 +101,7 @@ public class UserAvailabilityRepository {
      * @param id id of the user availability to find
      * @return response entity with a single user availability
      */
+    @Transactional(readOnly = true)
     public UserAvailability getUserAvailability(int id) {
         return manager.find(UserAvailability.class, id);
     }
@@ -45,10 +113,28 @@ public class UserAvailabilityRepository {
      * @return response entity with posted user availability
      */
     public UserAvailability postUserAvailability(UserAvailability userAvailability) {
+        requireUser(userAvailability.getUser());
         manager.persist(userAvailability);
         return manager.find(UserAvailability.class, userAvailability.getId());
     }
 
+    /**
+     * Post a list of user availabilities in a single transaction.
+     * The inserts are flushed together, with JDBC batching switched on for this session only.
+     *
+     * @param userAvailabilitys user availabilities to post
+     * @return posted user availabilities
+     */
+    public List<UserAvailability> postUserAvailabilities(List<UserAvailability> userAvailabilitys) {
+        manager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+        for (UserAvailability userAvailability : userAvailabilitys) {
+            requireUser(userAvailability.getUser());
+            manager.persist(userAvailability);
+        }
+        manager.flush();
+        return userAvailabilitys;
+    }
+
     /**
      * Put a single user availability.
      * Updates all fields.
@@ -58,6 +144,7 @@ public class UserAvailabilityRepository {
      * @return response entity with put user availability
      */
     public UserAvailability putUserAvailability(UserAvailability userAvailability, int id) {
+        requireUser(userAvailability.getUser());
         UserAvailability update = manager.find(UserAvailability.class, id);
         update.setUser(userAvailability.getUser());
         update.setDate(userAvailability.getDate());
@@ -75,4 +162,26 @@ public class UserAvailabilityRepository {
         manager.remove(ua);
         return ua;
     }
+
+    /**
+     * Delete user availabilities by id without loading them.
+     *
+     * @param ids ids of the user availabilities to delete
+     * @return number of deleted user availabilities
+     */
+    public int deleteAll(List<Integer> ids) {
+        return manager.createQuery("DELETE FROM UserAvailability a WHERE a.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * On MySQL userAvailability has no foreign key to user, see changeSet 17, so the user is checked here.
+     * A user without an id is new, it is persisted along with the availability.
+     */
+    private void requireUser(User user) {
+        if (user != null && user.getId() != 0 && manager.find(User.class, user.getId()) == null) {
+            throw new EntityNotFoundException("user id: " + user.getId());
+        }
+    }
 }
@@ -2,13 +2,14 @@ package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.User;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.transaction.Transactional;
 import java.util.List;
 
 @Repository
@@ -17,24 +18,47 @@ public class UserRepository {
 
     @PersistenceContext
     private EntityManager manager;
+    private final ChangeJournal changeJournal;
+
+    public UserRepository(ChangeJournal changeJournal) {
+        this.changeJournal = changeJournal;
+    }
 
     /**
      * Returns a list of all users.
      *
      * @return response entity with list of all users
      */
+    @Transactional(readOnly = true)
     public List<User> getUsers() {
         CriteriaBuilder cb = manager.getCriteriaBuilder();
         CriteriaQuery<User> query = cb.createQuery(User.class);
         return manager.createQuery(query.select(query.from(User.class))).getResultList();
     }
 
+    /**
+     * Select queries one page of users, ordered by id.
+     * Seeks on the primary key instead of skipping an offset, so every page is equally cheap.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit maximum number of users to return
+     * @return list of at most limit users
+     */
+    @Transactional(readOnly = true)
+    public List<User> getUsers(int after, int limit) {
+        return manager.createQuery("SELECT u FROM User u WHERE u.id > :after ORDER BY u.id", User.class)
+                .setParameter("after", after)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     /**
      * Find a single user and return it.
      *
      * @param id id of the user to find
      * @return response entity with a single user
      */
+    @Transactional(readOnly = true)
     public User getUser(int id) {
         return manager.find(User.class, id);
     }
@@ -70,18 +94,70 @@ public class UserRepository {
         update.setProfileImagePath(user.getProfileImagePath());
         update.setPassword(user.getPassword());
         update.setApproved(user.isApproved());
+        // Flush now, so the returned user has its new version
+        manager.flush();
+        journalReferring(id);
         return update;
     }
 
+    /**
+     * Put a single user, only when it still has the version the client read.
+     * Updates all fields and increments the version in a single statement, the stored user is read back
+     * afterwards because the statement bypasses the persistence context.
+     *
+     * @param user    user to put
+     * @param id      id of the user to put
+     * @param version version the client read
+     * @return the stored user with its new version, null when it has another version
+     * @throws ObjectRetrievalFailureException when the user doesn't exist
+     */
+    public User putUser(User user, int id, int version) {
+        boolean updated = manager.createQuery("UPDATE User u SET u.name = :name, u.email = :email, u.profileImagePath = :profileImagePath, u.password = :password,"
+                        + " u.isApproved = :approved, u.version = u.version + 1"
+                        + " WHERE u.id = :id AND u.version = :version")
+                .setParameter("name", user.getName())
+                .setParameter("email", user.getEmail())
+                .setParameter("profileImagePath", user.getProfileImagePath())
+                .setParameter("password", user.getPassword())
+                .setParameter("approved", user.isApproved())
+                .setParameter("id", id)
+                .setParameter("version", version)
+                .executeUpdate() == 1;
+        if (!updated) {
+            if (manager.find(User.class, id) == null) {
+                throw new ObjectRetrievalFailureException(User.class, id);
+            }
+            return null;
+        }
+        journalReferring(id);
+
+        User stored = manager.find(User.class, id);
+        manager.refresh(stored);
+        return stored;
+    }
+
     /**
      * Delete a single user and return it.
+     * The availabilities of the user go with it. On MySQL the partitioned userAvailability table has no
+     * foreign key, see changeSet 17, this delete takes its place.
      *
      * @param id id of the user to delete
      * @return response entity with deleted user
      */
     public User deleteUser(int id) {
+        manager.createQuery("DELETE FROM UserAvailability a WHERE a.user.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
         User user = manager.find(User.class, id);
         manager.remove(user);
         return user;
     }
+
+    /**
+     * Powerpoints and RSS feeds embed their user.
+     */
+    private void journalReferring(int id) {
+        changeJournal.upsertReferring(ChangeJournal.POWERPOINT, "user_id = :id", id);
+        changeJournal.upsertReferring(ChangeJournal.RSS_FEED, "user_id = :id", id);
+    }
 }
@@ -0,0 +1,132 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.dto.BatchResultDTO;
+import org.eindopdracht.resource.exception.general.BadRequestException;
+import org.eindopdracht.resource.exception.general.BatchValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Writes a list of items for the bulk endpoints.
+ * Every item is validated before anything is written, so an invalid batch leaves the database untouched.
+ * The items are then written in chunks, one transaction per chunk. Inside a chunk Hibernate sends the
+ * statements in JDBC batches.
+ */
+@Component
+public class BatchWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchWriter.class);
+
+    private final Validator validator;
+
+    @Value("${database.batch.chunkSize:500}")
+    private int chunkSize;
+    @Value("${database.batch.maxItems:10000}")
+    private int maxItems;
+
+    public BatchWriter(Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Validate and write a list of items.
+     *
+     * @param items    items as they were posted
+     * @param toEntity maps an item to a new entity
+     * @param persist  persists a chunk of entities in one transaction
+     * @param id       id of a persisted entity
+     * @return result per item, in the order they were posted
+     * @throws BatchValidationException when one of the items is invalid, nothing is written then
+     */
+    public <D, E> List<BatchResultDTO> write(List<D> items, Function<D, E> toEntity,
+                                             Function<List<E>, List<E>> persist, ToIntFunction<E> id) {
+        if (items == null || items.size() > maxItems) {
+            throw new BadRequestException();
+        }
+
+        validate(items);
+
+        List<BatchResultDTO> results = new ArrayList<>(items.size());
+        for (int start = 0; start < items.size(); start += chunkSize) {
+            List<D> chunk = items.subList(start, Math.min(start + chunkSize, items.size()));
+            results.addAll(writeChunk(start, chunk, toEntity, persist, id));
+        }
+        return results;
+    }
+
+    private <D> void validate(List<D> items) {
+        List<BatchResultDTO> results = new ArrayList<>(items.size());
+        boolean valid = true;
+
+        for (int i = 0; i < items.size(); i++) {
+            List<String> errors = new ArrayList<>();
+            if (items.get(i) == null) {
+                errors.add("item is empty");
+            } else {
+                for (ConstraintViolation<D> violation : validator.validate(items.get(i))) {
+                    errors.add(violation.getPropertyPath() + " " + violation.getMessage());
+                }
+            }
+
+            valid &= errors.isEmpty();
+            results.add(new BatchResultDTO(i, null,
+                    errors.isEmpty() ? BatchResultDTO.SKIPPED : BatchResultDTO.INVALID, errors));
+        }
+
+        if (!valid) {
+            throw new BatchValidationException(results);
+        }
+    }
+
+    private <D, E> List<BatchResultDTO> writeChunk(int offset, List<D> chunk, Function<D, E> toEntity,
+                                                   Function<List<E>, List<E>> persist, ToIntFunction<E> id) {
+        try {
+            // Mapped in here, an item that can't be mapped fails on its own like a row that can't be inserted
+            List<E> entities = new ArrayList<>(chunk.size());
+            for (D item : chunk) {
+                entities.add(toEntity.apply(item));
+            }
+            List<E> persisted = persist.apply(entities);
+            List<BatchResultDTO> results = new ArrayList<>(chunk.size());
+            for (int i = 0; i < persisted.size(); i++) {
+                results.add(created(offset + i, id.applyAsInt(persisted.get(i))));
+            }
+            return results;
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Chunk starting at item {} failed, writing its items one by one", offset, ex);
+            return writeOneByOne(offset, chunk, toEntity, persist, id);
+        }
+    }
+
+    /**
+     * One failing row rolls back the whole chunk. Writing the rows of that chunk one by one, with fresh
+     * entities, saves the good rows and tells exactly which ones failed.
+     */
+    private <D, E> List<BatchResultDTO> writeOneByOne(int offset, List<D> chunk, Function<D, E> toEntity,
+                                                      Function<List<E>, List<E>> persist, ToIntFunction<E> id) {
+        List<BatchResultDTO> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                E persisted = persist.apply(Collections.singletonList(toEntity.apply(chunk.get(i)))).get(0);
+                results.add(created(offset + i, id.applyAsInt(persisted)));
+            } catch (RuntimeException ex) {
+                results.add(new BatchResultDTO(offset + i, null, BatchResultDTO.FAILED,
+                        Collections.singletonList("The item could not be saved.")));
+            }
+        }
+        return results;
+    }
+
+    private BatchResultDTO created(int index, int id) {
+        return new BatchResultDTO(index, id, BatchResultDTO.CREATED, Collections.emptyList());
+    }
+}
@@ -0,0 +1,69 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.dto.DeleteResultDTO;
+import org.eindopdracht.resource.exception.general.BadRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.ToIntBiFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Deletes many rows for the bulk delete endpoints, without loading them.
+ * The rows are deleted in chunks, one transaction per chunk, so a large delete never holds its locks for long.
+ * When a chunk fails the chunks before it stay deleted.
+ */
+@Component
+public class BulkDeleter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkDeleter.class);
+
+    @Value("${database.bulkDelete.chunkSize:500}")
+    private int chunkSize;
+    @Value("${database.bulkDelete.maxIds:10000}")
+    private int maxIds;
+
+    /**
+     * Delete either a list of ids or everything that ended before a moment, exactly one of both must be given.
+     *
+     * @param ids               ids to delete, null to delete by time
+     * @param endedBefore       delete what ended before this moment, null to delete by id
+     * @param deleteIds         deletes a chunk of ids in one transaction and returns the number of deleted rows
+     * @param deleteEndedBefore deletes at most the given number of rows that ended before the moment in one
+     *                          transaction and returns the number of deleted rows
+     * @return number of deleted rows
+     * @throws BadRequestException when both or none are given, there are too many ids or a chunk failed
+     */
+    public DeleteResultDTO delete(List<Integer> ids, Date endedBefore, ToIntFunction<List<Integer>> deleteIds,
+                                  ToIntBiFunction<Date, Integer> deleteEndedBefore) {
+        if ((ids == null) == (endedBefore == null) || ids != null && (ids.isEmpty() || ids.size() > maxIds)) {
+            throw new BadRequestException();
+        }
+
+        int deleted = 0;
+        try {
+            if (ids != null) {
+                List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+                for (int start = 0; start < distinct.size(); start += chunkSize) {
+                    deleted += deleteIds.applyAsInt(distinct.subList(start, Math.min(start + chunkSize, distinct.size())));
+                }
+            } else {
+                // A full chunk means there may be more, stop at the first chunk that isn't full
+                int count;
+                do {
+                    count = deleteEndedBefore.applyAsInt(endedBefore, chunkSize);
+                    deleted += count;
+                } while (count >= chunkSize);
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Bulk delete stopped after {} rows", deleted, ex);
+            throw new BadRequestException();
+        }
+        return new DeleteResultDTO(deleted);
+    }
+}
@@ -0,0 +1,18 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.repository.ChangeJournal;
+
+import java.util.List;
+
+/**
+ * Receives the journal entries {@link StreamService} reads, besides the streams of GET /stream.
+ */
+public interface ChangeListener {
+    /**
+     * Called on the scheduler thread, don't block.
+     *
+     * @param entries journal entries, oldest first
+     * @param token   sync token up to the last entry
+     */
+    void onChanges(List<ChangeJournal.Entry> entries, String token);
+}
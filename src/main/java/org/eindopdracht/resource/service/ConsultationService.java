@@ -1,24 +1,39 @@
 package org.eindopdracht.resource.service;
 
+import org.eindopdracht.resource.dto.DeleteResultDTO;
 import org.eindopdracht.resource.dto.ConsultationDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
 import org.eindopdracht.resource.mapper.ConsultationMapper;
+import org.eindopdracht.resource.model.Consultation;
 import org.eindopdracht.resource.repository.ConsultationRepository;
+import org.eindopdracht.util.Page;
 import org.springframework.stereotype.Service;
 
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ConsultationService {
     private final ConsultationRepository consultationRepository;
     private final ConsultationMapper consultationMapper;
+    private final ExportWriter exportWriter;
+    private final BulkDeleter bulkDeleter;
 
-    public ConsultationService(ConsultationRepository consultationRepository, ConsultationMapper consultationMapper) {
+    public ConsultationService(ConsultationRepository consultationRepository, ConsultationMapper consultationMapper,
+                               ExportWriter exportWriter, BulkDeleter bulkDeleter) {
 
         this.consultationRepository = consultationRepository;
         this.consultationMapper = consultationMapper;
+        this.exportWriter = exportWriter;
+        this.bulkDeleter = bulkDeleter;
     }
 
     /**
@@ -30,6 +45,76 @@ public class ConsultationService {
         return consultationMapper.mapFromEntityList(consultationRepository.get());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of consultations.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of consultations with the cursor of the next page
+     */
+    public Page<ConsultationDTO> get(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(consultationRepository.get(after, size + 1), size, Consultation::getId)
+                .map(consultationMapper::mapFromEntityList);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the consultations active right now, ordered by start.
+     *
+     * @param limit requested number of consultations, at most {@link Page#MAX_LIMIT}
+     * @return list of active consultations
+     */
+    public List<ConsultationDTO> getActive(int limit) {
+        Date now = new Date();
+        return getBetween(now, now, limit);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the consultations whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit requested number of consultations, at most {@link Page#MAX_LIMIT}
+     * @return list of consultations in the window
+     */
+    public List<ConsultationDTO> getBetween(Date from, Date to, int limit) {
+        if (from == null || to == null || from.after(to)) {
+            throw new BadRequestException();
+        }
+        return consultationMapper.mapFromEntityList(consultationRepository.getBetween(from, to, Page.clamp(limit)));
+    }
+
+    /**
+     * Maps Entity to DTO and returns the next consultations to start, ordered by start.
+     *
+     * @param limit requested number of consultations, at most {@link Page#MAX_LIMIT}
+     * @return list of upcoming consultations
+     */
+    public List<ConsultationDTO> getUpcoming(int limit) {
+        return consultationMapper.mapFromEntityList(consultationRepository.getUpcoming(new Date(), Page.clamp(limit)));
+    }
+
+    /**
+     * Writes all consultations, ordered by id, while they are read from the database.
+     * The CSV lists the ids of the users separated by spaces.
+     *
+     * @param format format of the export
+     * @param out    response body
+     */
+    public void export(ExportWriter.Format format, OutputStream out) {
+        Map<String, Function<ConsultationDTO, Object>> columns = new LinkedHashMap<>();
+        columns.put("id", ConsultationDTO::getId);
+        columns.put("startDateTime", ConsultationDTO::getStartDateTime);
+        columns.put("endDateTime", ConsultationDTO::getEndDateTime);
+        columns.put("user_ids", consultation -> consultation.getUsers() == null ? null : consultation.getUsers().stream()
+                .map(user -> String.valueOf(user.getId()))
+                .collect(Collectors.joining(" ")));
+
+        Consumer<List<ConsultationDTO>> writer = exportWriter.open(format, out, columns);
+        consultationRepository.export(exportWriter.getChunkSize(),
+                consultations -> writer.accept(consultationMapper.mapFromEntityList(consultations)));
+    }
+
     /**
      * Maps Entity to DTO and returns a single consultation.
      *
@@ -88,4 +173,16 @@ public class ConsultationService {
             throw new NoContentException("id: " + id);
         }
     }
+
+    /**
+     * Deletes many consultations at once, either by id or all consultations that ended before a moment.
+     * The consultations aren't loaded, they are deleted in chunks of one transaction each.
+     *
+     * @param ids         ids of the consultations to delete, null to delete by time
+     * @param endedBefore delete the consultations that ended before this moment, null to delete by id
+     * @return number of deleted consultations
+     */
+    public DeleteResultDTO deleteAll(List<Integer> ids, Date endedBefore) {
+        return bulkDeleter.delete(ids, endedBefore, consultationRepository::deleteAll, consultationRepository::deleteEndedBefore);
+    }
 }
@@ -4,7 +4,9 @@ import org.eindopdracht.resource.dto.ContentDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.mapper.ContentMapper;
+import org.eindopdracht.resource.model.Content;
 import org.eindopdracht.resource.repository.ContentRespository;
+import org.eindopdracht.util.Page;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -13,10 +15,12 @@ import java.util.List;
 public class ContentService {
     private final ContentRespository contentRespository;
     private final ContentMapper contentMapper;
+    private final TableVersions tableVersions;
 
-    public ContentService(ContentRespository contentRespository, ContentMapper contentMapper) {
+    public ContentService(ContentRespository contentRespository, ContentMapper contentMapper, TableVersions tableVersions) {
         this.contentRespository = contentRespository;
         this.contentMapper = contentMapper;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -28,6 +32,19 @@ public class ContentService {
         return contentMapper.mapFromEntityList(contentRespository.get());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of content.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of content with the cursor of the next page
+     */
+    public Page<ContentDTO> get(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(contentRespository.get(after, size + 1), size, Content::getId)
+                .map(contentMapper::mapFromEntityList);
+    }
+
     /**
      * Maps Entity to DTO and returns a single content.
      *
@@ -49,13 +66,16 @@ public class ContentService {
      * @return response entity with posted content
      */
     public ContentDTO persist(ContentDTO contentDto) {
+        ContentDTO content;
         try {
-            return contentMapper.mapFromEntity(
+            content = contentMapper.mapFromEntity(
                     contentRespository.persist(contentMapper.mapToEntity(contentDto))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.CONTENT);
+        return content;
     }
 
     /**
@@ -66,10 +86,13 @@ public class ContentService {
      * @return response entity with put content
      */
     public ContentDTO put(int id, ContentDTO contentDto) {
+        ContentDTO content;
         try {
-            return contentMapper.mapFromEntity(contentRespository.put(id, contentMapper.mapToEntity(contentDto)));
+            content = contentMapper.mapFromEntity(contentRespository.put(id, contentMapper.mapToEntity(contentDto)));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.CONTENT);
+        return content;
     }
 }
@@ -5,7 +5,9 @@ import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
 import org.eindopdracht.resource.mapper.ContentTypeMapper;
+import org.eindopdracht.resource.model.ContentType;
 import org.eindopdracht.resource.repository.ContentTypeRepository;
+import org.eindopdracht.util.Page;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,10 +16,12 @@ import java.util.List;
 public class ContentTypeService {
     private final ContentTypeRepository contentTypeRepository;
     private final ContentTypeMapper contentTypeMapper;
+    private final TableVersions tableVersions;
 
-    public ContentTypeService(ContentTypeRepository contentTypeRepository, ContentTypeMapper contentTypeMapper) {
+    public ContentTypeService(ContentTypeRepository contentTypeRepository, ContentTypeMapper contentTypeMapper, TableVersions tableVersions) {
         this.contentTypeRepository = contentTypeRepository;
         this.contentTypeMapper = contentTypeMapper;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -29,6 +33,19 @@ public class ContentTypeService {
         return contentTypeMapper.mapFromEntityList(contentTypeRepository.get());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of content types.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of content types with the cursor of the next page
+     */
+    public Page<ContentTypeDTO> get(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(contentTypeRepository.get(after, size + 1), size, ContentType::getId)
+                .map(contentTypeMapper::mapFromEntityList);
+    }
+
     /**
      * Maps Entity to DTO and returns a single content type.
      *
@@ -50,13 +67,16 @@ public class ContentTypeService {
      * @return response entity with posted content type
      */
     public ContentTypeDTO persist(ContentTypeDTO contentTypeDto) {
+        ContentTypeDTO contentType;
         try {
-            return contentTypeMapper.mapFromEntity(
+            contentType = contentTypeMapper.mapFromEntity(
                     contentTypeRepository.persist(contentTypeMapper.mapToEntity(contentTypeDto))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.CONTENT_TYPE);
+        return contentType;
     }
 
     /**
@@ -67,11 +87,14 @@ public class ContentTypeService {
      * @return response entity with put content type
      */
     public ContentTypeDTO put(int id, ContentTypeDTO contentTypeDto) {
+        ContentTypeDTO contentType;
         try {
-            return contentTypeMapper.mapFromEntity(contentTypeRepository.put(id, contentTypeMapper.mapToEntity(contentTypeDto)));
+            contentType = contentTypeMapper.mapFromEntity(contentTypeRepository.put(id, contentTypeMapper.mapToEntity(contentTypeDto)));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.CONTENT_TYPE);
+        return contentType;
     }
 
     /**
@@ -81,10 +104,13 @@ public class ContentTypeService {
      * @return response entity with deleted content type
      */
     public ContentTypeDTO delete(int id) {
+        ContentTypeDTO contentType;
         try {
-            return contentTypeMapper.mapFromEntity(contentTypeRepository.delete(id));
+            contentType = contentTypeMapper.mapFromEntity(contentTypeRepository.delete(id));
         } catch (Exception ex) {
             throw new NoContentException("id: " + id);
         }
+        tableVersions.bump(TableVersions.Table.CONTENT_TYPE);
+        return contentType;
     }
 }
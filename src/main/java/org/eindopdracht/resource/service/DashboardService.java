@@ -0,0 +1,267 @@
+package org.eindopdracht.resource.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.database.CircuitBreaker;
+import org.eindopdracht.database.StatementCounter;
+import org.eindopdracht.resource.dto.DashboardDTO;
+import org.eindopdracht.resource.exception.general.ServiceUnavailableException;
+import org.eindopdracht.util.ETags;
+import org.eindopdracht.util.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Everything a screen reads on startup in one response, see GET /dashboard: the settings, content types,
+ * content and powerpoints, and the events, RSS feeds, schedules and consultations active right now.
+ * <p>
+ * The sections are read at the same time on the dashboard threads, each in its own read-only transaction.
+ * Their statements count for the request, see {@link StatementCounter}. When one fails or they take longer
+ * than timeoutMillis, the sections that didn't start yet are cancelled.
+ * The result is serialized once and kept as a payload for every screen, until one of the versioned tables
+ * changes, see {@link TableVersions}, or it is older than maxAgeMillis. Schedules and consultations have no
+ * version counter and the active rows change with the clock, maxAgeMillis bounds how stale those get. One
+ * request rebuilds an outdated payload, the others wait for it.
+ * <p>
+ * The active events, RSS feeds, schedules and consultations are read up to {@link Page#MAX_LIMIT} rows each. A
+ * section that reaches it is listed in truncated, the screen reads the rest from its own endpoint.
+ * <p>
+ * While the circuit breaker is open the last payload is served, with an Age header and a Warning header.
+ */
+@Service
+public class DashboardService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DashboardService.class);
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final CircuitBreaker circuitBreaker;
+    private final TableVersions tableVersions;
+    private final GlobalSettingsService globalSettingsService;
+    private final ContentTypeService contentTypeService;
+    private final ContentService contentService;
+    private final EventService eventService;
+    private final PowerpointService powerpointService;
+    private final RssFeedService rssFeedService;
+    private final ScheduleService scheduleService;
+    private final ConsultationService consultationService;
+    private final Executor executor;
+    private volatile Payload payload;
+
+    @Value("${database.dashboard.maxAgeMillis:10000}")
+    private long maxAgeMillis;
+    @Value("${database.dashboard.timeoutMillis:10000}")
+    private long timeoutMillis;
+
+    public DashboardService(CircuitBreaker circuitBreaker, TableVersions tableVersions,
+                            GlobalSettingsService globalSettingsService, ContentTypeService contentTypeService,
+                            ContentService contentService, EventService eventService,
+                            PowerpointService powerpointService, RssFeedService rssFeedService,
+                            ScheduleService scheduleService, ConsultationService consultationService,
+                            @Qualifier("dashboardExecutor") Executor executor) {
+        this.circuitBreaker = circuitBreaker;
+        this.tableVersions = tableVersions;
+        this.globalSettingsService = globalSettingsService;
+        this.contentTypeService = contentTypeService;
+        this.contentService = contentService;
+        this.eventService = eventService;
+        this.powerpointService = powerpointService;
+        this.rssFeedService = rssFeedService;
+        this.scheduleService = scheduleService;
+        this.consultationService = consultationService;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the current payload, rebuilt when it is outdated
+     * @throws ServiceUnavailableException when the database is unavailable and there is no payload yet, or
+     *                                     reading took longer than timeoutMillis
+     */
+    public Payload getPayload() {
+        if (!circuitBreaker.isOpen()) {
+            try {
+                return current();
+            } catch (RuntimeException ex) {
+                // Only fall back when this request is what opened the breaker
+                if (!circuitBreaker.isOpen()) {
+                    throw ex;
+                }
+            }
+        }
+
+        Payload last = payload;
+        if (last == null) {
+            throw new ServiceUnavailableException("the database is unavailable and there is no dashboard yet");
+        }
+        return last.stale();
+    }
+
+    private Payload current() {
+        Payload last = payload;
+        if (isCurrent(last)) {
+            return last;
+        }
+
+        synchronized (this) {
+            last = payload;
+            if (isCurrent(last)) {
+                return last;
+            }
+            payload = build();
+            return payload;
+        }
+    }
+
+    private boolean isCurrent(Payload last) {
+        return last != null
+                && tableVersions.isKnown(TableVersions.Table.values())
+                && last.version.equals(tableVersions.tag(TableVersions.Table.values()))
+                && System.currentTimeMillis() - last.builtAt.getTime() < maxAgeMillis;
+    }
+
+    /**
+     * Read every section at once. The version is taken first, a write during the reads makes the next
+     * request build again instead of keeping half of it.
+     */
+    private Payload build() {
+        String version = tableVersions.tag(TableVersions.Table.values());
+        Date builtAt = new Date();
+
+        DashboardDTO dashboard;
+        List<CompletableFuture<?>> sections = new ArrayList<>();
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        try {
+            sections.add(read(globalSettingsService::getGlobalSettings, failed));
+            sections.add(read(contentTypeService::get, failed));
+            sections.add(read(contentService::get, failed));
+            sections.add(read(() -> eventService.getActive(Page.MAX_LIMIT), failed));
+            sections.add(read(powerpointService::getPowerpoints, failed));
+            sections.add(read(() -> rssFeedService.getActiveRssFeeds(Page.MAX_LIMIT), failed));
+            sections.add(read(() -> scheduleService.getActive(Page.MAX_LIMIT), failed));
+            sections.add(read(() -> consultationService.getActive(Page.MAX_LIMIT), failed));
+            // The first failure ends the wait, the others are of no use anymore
+            CompletableFuture.anyOf(CompletableFuture.allOf(sections.toArray(new CompletableFuture<?>[0])), failed)
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            dashboard = new DashboardDTO(join(sections.get(0)), join(sections.get(1)), join(sections.get(2)),
+                    join(sections.get(3)), join(sections.get(4)), join(sections.get(5)), join(sections.get(6)),
+                    join(sections.get(7)), new ArrayList<>());
+            checkLimit(dashboard.getTruncated(), "events", dashboard.getEvents());
+            checkLimit(dashboard.getTruncated(), "rssFeeds", dashboard.getRssFeeds());
+            checkLimit(dashboard.getTruncated(), "schedules", dashboard.getSchedules());
+            checkLimit(dashboard.getTruncated(), "consultations", dashboard.getConsultations());
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            LOGGER.warn("Reading the dashboard took longer than {} ms", timeoutMillis);
+            throw new ServiceUnavailableException("reading the dashboard took too long");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("reading the dashboard was interrupted");
+        } catch (RejectedExecutionException ex) {
+            throw new ServiceUnavailableException("the dashboard threads are busy");
+        } finally {
+            // A section that is still queued doesn't start, a running one can't be interrupted and just finishes
+            sections.forEach(section -> section.cancel(true));
+        }
+
+        try {
+            return new Payload(objectMapper.writeValueAsBytes(dashboard), version, builtAt);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private <T> CompletableFuture<T> read(Supplier<T> section, CompletableFuture<Void> failed) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(StatementCounter.onBehalfOfCurrent(section), executor);
+        future.whenComplete((result, ex) -> {
+            if (ex != null) {
+                failed.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * A section that reached {@link Page#MAX_LIMIT} may have more rows, it is listed in truncated.
+     */
+    private static void checkLimit(List<String> truncated, String section, List<?> rows) {
+        if (rows.size() >= Page.MAX_LIMIT) {
+            LOGGER.warn("The dashboard only has the first {} {}", Page.MAX_LIMIT, section);
+            truncated.add(section);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T join(CompletableFuture<?> section) {
+        return (T) section.join();
+    }
+
+    /**
+     * The serialized dashboard, shared by every request.
+     */
+    public static class Payload {
+        private final byte[] body;
+        private final String eTag;
+        private final String version;
+        private final Date builtAt;
+        private final boolean stale;
+
+        Payload(byte[] body, String version, Date builtAt) {
+            this(body, ETags.ofBody(body), version, builtAt, false);
+        }
+
+        private Payload(byte[] body, String eTag, String version, Date builtAt, boolean stale) {
+            this.body = body;
+            this.eTag = eTag;
+            this.version = version;
+            this.builtAt = builtAt;
+            this.stale = stale;
+        }
+
+        Payload stale() {
+            return new Payload(body, eTag, version, builtAt, true);
+        }
+
+        /**
+         * @return the dashboard as JSON, don't modify it
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return hash of the body, a rebuild that reads the same rows keeps the same tag
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        public Date getBuiltAt() {
+            return builtAt;
+        }
+
+        /**
+         * @return true when the database is unavailable and this is the last payload that was built
+         */
+        public boolean isStale() {
+            return stale;
+        }
+    }
+}
@@ -1,23 +1,42 @@
 package org.eindopdracht.resource.service;
 
+import org.eindopdracht.resource.dto.BatchResultDTO;
+import org.eindopdracht.resource.dto.DeleteResultDTO;
 import org.eindopdracht.resource.dto.EventDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
 import org.eindopdracht.resource.mapper.EventMapper;
+import org.eindopdracht.resource.model.Event;
 import org.eindopdracht.resource.repository.EventRepository;
+import org.eindopdracht.util.Page;
 import org.springframework.stereotype.Service;
 
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class EventService {
     private final EventRepository eventRepository;
     private final EventMapper eventMapper;
+    private final BatchWriter batchWriter;
+    private final ExportWriter exportWriter;
+    private final BulkDeleter bulkDeleter;
+    private final TableVersions tableVersions;
 
-    public EventService(EventRepository eventRepository, EventMapper eventMapper) {
+    public EventService(EventRepository eventRepository, EventMapper eventMapper, BatchWriter batchWriter,
+                        ExportWriter exportWriter, BulkDeleter bulkDeleter, TableVersions tableVersions) {
         this.eventRepository = eventRepository;
         this.eventMapper = eventMapper;
+        this.batchWriter = batchWriter;
+        this.exportWriter = exportWriter;
+        this.bulkDeleter = bulkDeleter;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -29,6 +48,76 @@ public class EventService {
         return eventMapper.mapFromEntityList(eventRepository.get());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of events.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of events with the cursor of the next page
+     */
+    public Page<EventDTO> get(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(eventRepository.get(after, size + 1), size, Event::getId)
+                .map(eventMapper::mapFromEntityList);
+    }
+
+    /**
+     * Writes all events, ordered by id, while they are read from the database.
+     *
+     * @param format format of the export
+     * @param out    response body
+     */
+    public void export(ExportWriter.Format format, OutputStream out) {
+        Map<String, Function<EventDTO, Object>> columns = new LinkedHashMap<>();
+        columns.put("id", EventDTO::getId);
+        columns.put("user_id", EventDTO::getUser_id);
+        columns.put("content_id", event -> event.getContent() == null ? null : event.getContent().getId());
+        columns.put("content_path", event -> event.getContent() == null ? null : event.getContent().getPath());
+        columns.put("description", EventDTO::getDescription);
+        columns.put("startDateTime", EventDTO::getStartDateTime);
+        columns.put("endDateTime", EventDTO::getEndDateTime);
+        columns.put("duration", EventDTO::getDuration);
+
+        Consumer<List<EventDTO>> writer = exportWriter.open(format, out, columns);
+        eventRepository.export(exportWriter.getChunkSize(), events -> writer.accept(eventMapper.mapFromEntityList(events)));
+    }
+
+    /**
+     * Maps Entity to DTO and returns the events active right now, ordered by start.
+     *
+     * @param limit requested number of events, at most {@link Page#MAX_LIMIT}
+     * @return list of active events
+     */
+    public List<EventDTO> getActive(int limit) {
+        Date now = new Date();
+        return getBetween(now, now, limit);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the events whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit requested number of events, at most {@link Page#MAX_LIMIT}
+     * @return list of events in the window
+     */
+    public List<EventDTO> getBetween(Date from, Date to, int limit) {
+        if (from == null || to == null || from.after(to)) {
+            throw new BadRequestException();
+        }
+        return eventMapper.mapFromEntityList(eventRepository.getBetween(from, to, Page.clamp(limit)));
+    }
+
+    /**
+     * Maps Entity to DTO and returns the next events to start, ordered by start.
+     *
+     * @param limit requested number of events, at most {@link Page#MAX_LIMIT}
+     * @return list of upcoming events
+     */
+    public List<EventDTO> getUpcoming(int limit) {
+        return eventMapper.mapFromEntityList(eventRepository.getUpcoming(new Date(), Page.clamp(limit)));
+    }
+
     /**
      * Maps Entity to DTO and returns a single event.
      *
@@ -50,13 +139,31 @@ public class EventService {
      * @return response entity with posted event
      */
     public EventDTO persist(EventDTO eventDto) {
+        EventDTO event;
         try {
-            return eventMapper.mapFromEntity(
+            event = eventMapper.mapFromEntity(
                     eventRepository.persist(eventMapper.mapToEntity(eventDto))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.EVENT, TableVersions.Table.CONTENT);
+        return event;
+    }
+
+    /**
+     * Validates all events up front and posts them in chunks.
+     *
+     * @param eventDTOs events to post
+     * @return result per event, in the order they were posted
+     */
+    public List<BatchResultDTO> persistAll(List<EventDTO> eventDTOs) {
+        try {
+            return batchWriter.write(eventDTOs, eventMapper::mapToEntity, eventRepository::persistAll, Event::getId);
+        } finally {
+            // The chunks that committed before a failure did change rows
+            tableVersions.bump(TableVersions.Table.EVENT, TableVersions.Table.CONTENT);
+        }
     }
 
     /**
@@ -67,11 +174,14 @@ public class EventService {
      * @return response entity with put event
      */
     public EventDTO put(int id, EventDTO eventDto) {
+        EventDTO event;
         try {
-            return eventMapper.mapFromEntity(eventRepository.put(id, eventMapper.mapToEntity(eventDto)));
+            event = eventMapper.mapFromEntity(eventRepository.put(id, eventMapper.mapToEntity(eventDto)));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.EVENT, TableVersions.Table.CONTENT);
+        return event;
     }
 
     /**
@@ -81,10 +191,31 @@ public class EventService {
      * @return response entity with deleted event
      */
     public EventDTO delete(int id) {
+        EventDTO event;
         try {
-            return eventMapper.mapFromEntity(eventRepository.delete(id));
+            event = eventMapper.mapFromEntity(eventRepository.delete(id));
         } catch (Exception ex) {
             throw new NoContentException("id: " + id);
         }
+        // The content of the event is deleted with it
+        tableVersions.bump(TableVersions.Table.EVENT, TableVersions.Table.CONTENT);
+        return event;
+    }
+
+    /**
+     * Deletes many events at once, either by id or all events that ended before a moment.
+     * The events aren't loaded, they are deleted in chunks of one transaction each.
+     *
+     * @param ids         ids of the events to delete, null to delete by time
+     * @param endedBefore delete the events that ended before this moment, null to delete by id
+     * @return number of deleted events
+     */
+    public DeleteResultDTO deleteAll(List<Integer> ids, Date endedBefore) {
+        try {
+            return bulkDeleter.delete(ids, endedBefore, eventRepository::deleteAll, eventRepository::deleteEndedBefore);
+        } finally {
+            // The chunks that committed before a failure did change rows
+            tableVersions.bump(TableVersions.Table.EVENT);
+        }
     }
 }
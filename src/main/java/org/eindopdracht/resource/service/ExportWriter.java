@@ -0,0 +1,169 @@
+package org.eindopdracht.resource.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.resource.exception.general.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Writes the rows of the export endpoints to the response as they are read.
+ * NDJSON writes every row as the same JSON the list endpoints return, one row per line.
+ * CSV writes a header and the given columns, dates in the same format and time zone as the JSON.
+ * Every chunk is flushed, so the client receives the rows while the next chunk is read.
+ */
+@Component
+public class ExportWriter {
+    private static final String DATE_FORMAT = "dd-MM-yyyy HH:mm:ss";
+    private static final String TIME_ZONE = "CET";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build();
+
+    @Value("${database.export.chunkSize:500}")
+    private int chunkSize;
+
+    /**
+     * @return rows to read per chunk
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Start an export. For CSV the header is written right away, so an empty table still has one.
+     *
+     * @param format  format of the export
+     * @param out     response body
+     * @param columns CSV column names with the value of that column for a row, in order
+     * @return writes a chunk of rows and flushes it
+     */
+    public <T> Consumer<List<T>> open(Format format, OutputStream out, Map<String, Function<T, Object>> columns) {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.ROOT);
+        dateFormat.setTimeZone(TimeZone.getTimeZone(TIME_ZONE));
+
+        if (format == Format.CSV) {
+            write(writer, String.join(",", columns.keySet()) + "\r\n");
+        }
+
+        return rows -> {
+            StringBuilder builder = new StringBuilder();
+            for (T row : rows) {
+                if (format == Format.CSV) {
+                    appendCsv(builder, row, columns, dateFormat);
+                } else {
+                    appendJson(builder, row);
+                }
+            }
+            write(writer, builder.toString());
+        };
+    }
+
+    private <T> void appendCsv(StringBuilder builder, T row, Map<String, Function<T, Object>> columns,
+                               SimpleDateFormat dateFormat) {
+        boolean first = true;
+        for (Function<T, Object> column : columns.values()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+
+            Object value = column.apply(row);
+            if (value instanceof Date) {
+                builder.append(dateFormat.format((Date) value));
+            } else if (value != null) {
+                builder.append(escapeCsv(value.toString()));
+            }
+        }
+        builder.append("\r\n");
+    }
+
+    private void appendJson(StringBuilder builder, Object row) {
+        try {
+            builder.append(objectMapper.writeValueAsString(row)).append('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Quote a value when it contains a separator, quote or line break, see RFC 4180.
+     */
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void write(Writer writer, String text) {
+        try {
+            writer.write(text);
+            writer.flush();
+        } catch (IOException ex) {
+            // Usually the client went away, stop reading rows
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Formats the export endpoints can write.
+     */
+    public enum Format {
+        NDJSON(new MediaType("application", "x-ndjson"), "ndjson"),
+        CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        /**
+         * @param format format as requested, case insensitive
+         * @return the format
+         * @throws BadRequestException when the format is unknown
+         */
+        public static Format parse(String format) {
+            for (Format value : values()) {
+                if (value.extension.equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new BadRequestException();
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * @param name file name without extension
+         * @return value of the Content-Disposition header
+         */
+        public String attachment(String name) {
+            return "attachment; filename=\"" + name + "." + extension + "\"";
+        }
+    }
+}
@@ -5,7 +5,9 @@ import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
 import org.eindopdracht.resource.mapper.GlobalSettingsMapper;
+import org.eindopdracht.resource.model.GlobalSettings;
 import org.eindopdracht.resource.repository.GlobalSettingsRepository;
+import org.eindopdracht.util.Page;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,10 +16,12 @@ import java.util.List;
 public class GlobalSettingsService {
     private final GlobalSettingsRepository globalSettingsRepository;
     private final GlobalSettingsMapper globalSettingsMapper;
+    private final TableVersions tableVersions;
 
-    public GlobalSettingsService(GlobalSettingsRepository globalSettingsRepository, GlobalSettingsMapper globalSettingsMapper) {
+    public GlobalSettingsService(GlobalSettingsRepository globalSettingsRepository, GlobalSettingsMapper globalSettingsMapper, TableVersions tableVersions) {
         this.globalSettingsRepository = globalSettingsRepository;
         this.globalSettingsMapper = globalSettingsMapper;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -29,6 +33,19 @@ public class GlobalSettingsService {
         return globalSettingsMapper.mapFromEntityList(globalSettingsRepository.getSettings());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of global settings.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of global settings with the cursor of the next page
+     */
+    public Page<GlobalSettingsDTO> getGlobalSettings(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(globalSettingsRepository.getSettings(after, size + 1), size, GlobalSettings::getId)
+                .map(globalSettingsMapper::mapFromEntityList);
+    }
+
     /**
      * Maps Entity to DTO and returns a single global setting.
      *
@@ -50,13 +67,16 @@ public class GlobalSettingsService {
      * @return response entity with posted global setting
      */
     public GlobalSettingsDTO createGlobalSettings(GlobalSettingsDTO globalSettingsDTO) {
+        GlobalSettingsDTO globalSettings;
         try {
-            return globalSettingsMapper.mapFromEntity(
+            globalSettings = globalSettingsMapper.mapFromEntity(
                     globalSettingsRepository.uploadGlobalSettings(globalSettingsMapper.mapToEntity(globalSettingsDTO))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.GLOBAL_SETTINGS);
+        return globalSettings;
     }
 
     /**
@@ -66,11 +86,14 @@ public class GlobalSettingsService {
      * @return response entity with deleted global setting
      */
     public GlobalSettingsDTO deleteGlobalSettings(Integer id) {
+        GlobalSettingsDTO globalSettings;
         try {
-            return globalSettingsMapper.mapFromEntity(globalSettingsRepository.deleteGlobalSettings(id));
+            globalSettings = globalSettingsMapper.mapFromEntity(globalSettingsRepository.deleteGlobalSettings(id));
         } catch (Exception ex) {
             throw new NoContentException("id: " + id);
         }
+        tableVersions.bump(TableVersions.Table.GLOBAL_SETTINGS);
+        return globalSettings;
     }
 
     /**
@@ -81,10 +104,13 @@ public class GlobalSettingsService {
      * @return response entity with put global setting
      */
     public GlobalSettingsDTO updateGlobalSettings(GlobalSettingsDTO globalSettingsDTO, Integer id) {
+        GlobalSettingsDTO globalSettings;
         try {
-            return globalSettingsMapper.mapFromEntity(globalSettingsRepository.updateGlobalSettings(globalSettingsMapper.mapToEntity(globalSettingsDTO), id));
+            globalSettings = globalSettingsMapper.mapFromEntity(globalSettingsRepository.updateGlobalSettings(globalSettingsMapper.mapToEntity(globalSettingsDTO), id));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.GLOBAL_SETTINGS);
+        return globalSettings;
     }
 }
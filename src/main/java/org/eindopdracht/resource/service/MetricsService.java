@@ -0,0 +1,240 @@
+package org.eindopdracht.resource.service;
+
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.eindopdracht.configuration.StartupProfiler;
+import org.eindopdracht.database.PoolMetrics;
+import org.eindopdracht.database.ReplicaRoutingDataSource;
+import org.eindopdracht.database.SqlMetrics;
+import org.eindopdracht.resource.dto.CacheRegionDTO;
+import org.eindopdracht.resource.dto.HistogramDTO;
+import org.eindopdracht.resource.dto.PoolMetricsDTO;
+import org.eindopdracht.resource.dto.ReplicaDTO;
+import org.eindopdracht.resource.dto.RetentionDTO;
+import org.eindopdracht.resource.dto.ScreenSessionDTO;
+import org.eindopdracht.resource.dto.SqlStatementDTO;
+import org.eindopdracht.resource.dto.StartupDTO;
+import org.eindopdracht.resource.dto.StreamMetricsDTO;
+import org.eindopdracht.util.LatencyHistogram;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class MetricsService {
+    private static final int STARTUP_BEANS = 50;
+
+    private final PoolMetrics poolMetrics;
+    private final SqlMetrics sqlMetrics;
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+    private final RetentionJob retentionJob;
+    private final ApplicationStartup applicationStartup;
+    private final StreamService streamService;
+    private final ScreenBroadcaster screenBroadcaster;
+
+    public MetricsService(PoolMetrics poolMetrics, SqlMetrics sqlMetrics, DataSource dataSource,
+                          EntityManagerFactory entityManagerFactory, RetentionJob retentionJob,
+                          ApplicationStartup applicationStartup, StreamService streamService,
+                          ScreenBroadcaster screenBroadcaster) {
+        this.poolMetrics = poolMetrics;
+        this.sqlMetrics = sqlMetrics;
+        this.dataSource = dataSource;
+        this.entityManagerFactory = entityManagerFactory;
+        this.retentionJob = retentionJob;
+        this.applicationStartup = applicationStartup;
+        this.streamService = streamService;
+        this.screenBroadcaster = screenBroadcaster;
+    }
+
+    /**
+     * Returns the live state of the connection pool.
+     * The gauges are zero when no pool has registered yet.
+     *
+     * @return connection pool metrics
+     */
+    public PoolMetricsDTO getPoolMetrics() {
+        PoolStats stats = poolMetrics.getPoolStats();
+
+        return new PoolMetricsDTO(
+                poolMetrics.getPoolName(),
+                stats == null ? 0 : stats.getActiveConnections(),
+                stats == null ? 0 : stats.getIdleConnections(),
+                stats == null ? 0 : stats.getTotalConnections(),
+                stats == null ? 0 : stats.getPendingThreads(),
+                stats == null ? 0 : stats.getMinConnections(),
+                stats == null ? 0 : stats.getMaxConnections(),
+                poolMetrics.getTimeouts(),
+                mapHistogram(poolMetrics.getWaitTime()),
+                mapHistogram(poolMetrics.getUsageTime())
+        );
+    }
+
+    /**
+     * Returns the health of the primary and the read replicas.
+     * The list is empty when no replicas are configured.
+     *
+     * @return health per database target
+     */
+    public List<ReplicaDTO> getReplicas() {
+        List<ReplicaDTO> replicas = new ArrayList<>();
+        ReplicaRoutingDataSource routingDataSource = unwrap(ReplicaRoutingDataSource.class);
+        if (routingDataSource == null) {
+            return replicas;
+        }
+
+        for (ReplicaRoutingDataSource.Target target : routingDataSource.getTargets()) {
+            replicas.add(new ReplicaDTO(
+                    target.getName(),
+                    target.isHealthy(),
+                    target.getLagSeconds(),
+                    target.getLastError(),
+                    target.getLastCheck(),
+                    target.getConnections()
+            ));
+        }
+        return replicas;
+    }
+
+    /**
+     * Returns the hit and miss counters of every second-level cache region.
+     * Query regions show up after their first use.
+     *
+     * @return statistics per cache region, sorted by name
+     */
+    public List<CacheRegionDTO> getCacheRegions() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+
+        List<CacheRegionDTO> regions = new ArrayList<>();
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                regions.add(new CacheRegionDTO(
+                        regionName,
+                        region.getHitCount(),
+                        region.getMissCount(),
+                        region.getPutCount(),
+                        region.getElementCountInMemory()
+                ));
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * Returns the time spent per SQL statement and the endpoints that ran it.
+     *
+     * @return statistics per statement, the statement with the most total time first
+     */
+    public List<SqlStatementDTO> getStatements() {
+        List<SqlStatementDTO> statements = new ArrayList<>();
+        for (Map.Entry<String, SqlMetrics.Statement> entry : sqlMetrics.getStatements().entrySet()) {
+            SqlMetrics.Statement statement = entry.getValue();
+            statements.add(new SqlStatementDTO(
+                    entry.getKey(),
+                    statement.getRows(),
+                    statement.getLatency().getTotalMillis(),
+                    mapHistogram(statement.getLatency()),
+                    statement.getEndpoints()
+            ));
+        }
+        statements.sort(Comparator.comparingDouble(SqlStatementDTO::getTotalMillis).reversed());
+        return statements;
+    }
+
+    /**
+     * Returns the retention of every time based table and what the retention job purged.
+     *
+     * @return retention per table
+     */
+    public List<RetentionDTO> getRetention() {
+        List<RetentionDTO> tables = new ArrayList<>();
+        for (RetentionJob.Table table : retentionJob.getTables()) {
+            tables.add(new RetentionDTO(
+                    table.getName(),
+                    table.getDays(),
+                    table.isArchive(),
+                    table.getPurged(),
+                    table.getArchived(),
+                    table.getFailures(),
+                    table.getLastRun(),
+                    table.getLagSeconds()
+            ));
+        }
+        return tables;
+    }
+
+    /**
+     * Returns where the startup spent its time.
+     * Only the deployed application is profiled, otherwise the times are -1 and the maps empty.
+     *
+     * @return refresh time, time until the first request and the time per phase and of the slowest beans
+     */
+    public StartupDTO getStartup() {
+        if (!(applicationStartup instanceof StartupProfiler)) {
+            return new StartupDTO(-1, -1, Collections.emptyMap(), Collections.emptyMap());
+        }
+
+        StartupProfiler profiler = (StartupProfiler) applicationStartup;
+        return new StartupDTO(
+                profiler.getRefreshMillis(),
+                profiler.getFirstRequestMillis(),
+                profiler.getPhases(),
+                profiler.getBeans(STARTUP_BEANS)
+        );
+    }
+
+    /**
+     * Returns the open streams of GET /stream.
+     *
+     * @return number of open streams and how often a slow one lost its buffer
+     */
+    public StreamMetricsDTO getStreams() {
+        return new StreamMetricsDTO(streamService.getConnections(), streamService.getOverflows());
+    }
+
+    /**
+     * Returns the screens connected over the WebSocket endpoint.
+     *
+     * @return subscriptions, the last token sent and acked and the waiting messages per screen
+     */
+    public List<ScreenSessionDTO> getScreens() {
+        return screenBroadcaster.getSessions();
+    }
+
+    /**
+     * The data source bean is wrapped by {@link SqlMetrics}, look through it.
+     */
+    private <T> T unwrap(Class<T> type) {
+        try {
+            return dataSource.isWrapperFor(type) ? dataSource.unwrap(type) : null;
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+
+    private HistogramDTO mapHistogram(LatencyHistogram histogram) {
+        return new HistogramDTO(
+                histogram.getCount(),
+                histogram.getMeanMillis(),
+                histogram.getPercentileMillis(50),
+                histogram.getPercentileMillis(95),
+                histogram.getPercentileMillis(99),
+                histogram.getMaxMillis(),
+                histogram.getBuckets()
+        );
+    }
+}
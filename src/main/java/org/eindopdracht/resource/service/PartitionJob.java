@@ -0,0 +1,161 @@
+package org.eindopdracht.resource.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly partitions of userAvailability ahead of time, see changeSet 17.
+ * <p>
+ * Every month has a partition named after it, like p202611, holding the rows before the first day of the
+ * next month. Rows beyond the last month end up in pmax. changeSet 17 already creates the months up to three
+ * ahead, so a run splits the next months off pmax while it holds nothing but the few rows entered that far
+ * ahead, which hardly copies anything. Only a table with nothing but pmax, partitioned by hand, has its
+ * rows moved out of pmax by the first run, which copies the whole table once and locks it meanwhile.
+ * <p>
+ * {@link RetentionJob} drops the months that expired completely, which is a lot cheaper than deleting
+ * their rows. A dropped partition doesn't go through the repositories, so only tables that the
+ * {@link org.eindopdracht.resource.repository.ChangeJournal} doesn't track are partitioned. Other databases
+ * than MySQL aren't partitioned, there this does nothing.
+ */
+@Component
+public class PartitionJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionJob.class);
+    private static final List<String> TABLES = Collections.singletonList("userAvailability");
+    private static final Pattern MONTH = Pattern.compile("p\\d{6}");
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM", Locale.ROOT);
+    private static final String MAXVALUE = "pmax";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile Boolean mysql;
+
+    @Value("${database.partition.monthsAhead:3}")
+    private int monthsAhead;
+
+    public PartitionJob(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Scheduled(initialDelay = 60000, fixedDelayString = "${database.partition.intervalMillis:86400000}")
+    public void run() {
+        for (String table : TABLES) {
+            try {
+                List<YearMonth> months = missingMonths(partitions(table), YearMonth.now(), monthsAhead);
+                if (!months.isEmpty()) {
+                    jdbcTemplate.execute(reorganize(table, months));
+                    LOGGER.info("Added partitions {} up to {} to {}", months.get(0), months.get(months.size() - 1), table);
+                }
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Adding partitions to {} failed", table, ex);
+            }
+        }
+    }
+
+    /**
+     * Drop the partitions of which every row is older than the cutoff.
+     *
+     * @param table  name of the table
+     * @param cutoff rows before this moment may go
+     * @return number of rows that were dropped, 0 when the table isn't partitioned
+     */
+    public long dropBefore(String table, Date cutoff) {
+        if (!TABLES.contains(table)) {
+            return 0;
+        }
+
+        LocalDate day = cutoff.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        long dropped = 0;
+        for (String partition : expired(partitions(table), day)) {
+            Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table + " PARTITION (" + partition + ")", Long.class);
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + partition);
+            LOGGER.info("Dropped partition {} of {} with {} rows", partition, table, rows);
+            dropped += rows == null ? 0 : rows;
+        }
+        return dropped;
+    }
+
+    /**
+     * @return partitions of the table in order, empty when it isn't partitioned
+     */
+    private List<String> partitions(String table) {
+        if (!isMySql()) {
+            return Collections.emptyList();
+        }
+        return jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS"
+                + " WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL"
+                + " ORDER BY PARTITION_ORDINAL_POSITION", String.class, table);
+    }
+
+    private boolean isMySql() {
+        if (mysql == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            mysql = product != null && (product.toLowerCase(Locale.ROOT).contains("mysql") || product.toLowerCase(Locale.ROOT).contains("mariadb"));
+        }
+        return mysql;
+    }
+
+    /**
+     * @param partitions  current partitions in order
+     * @param now         current month
+     * @param monthsAhead months after the current one that should have a partition
+     * @return months to split off pmax, none when the table isn't partitioned
+     */
+    static List<YearMonth> missingMonths(List<String> partitions, YearMonth now, int monthsAhead) {
+        if (!partitions.contains(MAXVALUE)) {
+            return Collections.emptyList();
+        }
+
+        YearMonth last = null;
+        for (String partition : partitions) {
+            if (MONTH.matcher(partition).matches()) {
+                last = YearMonth.parse(partition, NAME);
+            }
+        }
+
+        List<YearMonth> months = new ArrayList<>();
+        for (YearMonth month = last == null ? now : last.plusMonths(1); !month.isAfter(now.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            months.add(month);
+        }
+        return months;
+    }
+
+    /**
+     * @param partitions current partitions
+     * @param cutoff     first day that has to stay
+     * @return the month partitions that end on or before the cutoff
+     */
+    static List<String> expired(List<String> partitions, LocalDate cutoff) {
+        List<String> expired = new ArrayList<>();
+        for (String partition : partitions) {
+            if (MONTH.matcher(partition).matches() && !YearMonth.parse(partition, NAME).plusMonths(1).atDay(1).isAfter(cutoff)) {
+                expired.add(partition);
+            }
+        }
+        return expired;
+    }
+
+    static String reorganize(String table, List<YearMonth> months) {
+        StringBuilder sql = new StringBuilder("ALTER TABLE ").append(table).append(" REORGANIZE PARTITION pmax INTO (");
+        for (YearMonth month : months) {
+            sql.append("PARTITION ").append(month.format(NAME))
+                    .append(" VALUES LESS THAN ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+        }
+        return sql.append("PARTITION pmax VALUES LESS THAN (MAXVALUE))").toString();
+    }
+}
@@ -4,8 +4,12 @@ import org.eindopdracht.resource.dto.PowerpointDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
+import org.eindopdracht.resource.exception.general.PreconditionFailedException;
 import org.eindopdracht.resource.mapper.PowerpointMapper;
+import org.eindopdracht.resource.model.Powerpoint;
 import org.eindopdracht.resource.repository.PowerpointRepository;
+import org.eindopdracht.util.Page;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,10 +18,12 @@ import java.util.List;
 public class PowerpointService {
     private final PowerpointRepository powerpointRepository;
     private final PowerpointMapper powerpointMapper;
+    private final TableVersions tableVersions;
 
-    public PowerpointService(PowerpointRepository roleRepository, PowerpointMapper powerpointMapper) {
+    public PowerpointService(PowerpointRepository roleRepository, PowerpointMapper powerpointMapper, TableVersions tableVersions) {
         this.powerpointRepository = roleRepository;
         this.powerpointMapper = powerpointMapper;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -29,6 +35,18 @@ public class PowerpointService {
         return powerpointMapper.mapFromEntityList(powerpointRepository.getPowerpoints());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of powerpoints.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of powerpoints with the cursor of the next page
+     */
+    public Page<PowerpointDTO> getPowerpoints(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(powerpointRepository.getPowerpoints(after, size + 1), size, PowerpointDTO::getId);
+    }
+
     /**
      * Maps Entity to DTO and returns a single powerpoint.
      *
@@ -50,13 +68,16 @@ public class PowerpointService {
      * @return response entity with posted powerpoint
      */
     public PowerpointDTO create(PowerpointDTO powerpointDTO) {
+        PowerpointDTO powerpoint;
         try {
-            return powerpointMapper.mapFromEntity(
+            powerpoint = powerpointMapper.mapFromEntity(
                     powerpointRepository.postPowerpoint(powerpointMapper.mapToEntity(powerpointDTO))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.POWERPOINT, TableVersions.Table.USER);
+        return powerpoint;
     }
 
     /**
@@ -67,11 +88,46 @@ public class PowerpointService {
      * @return response entity with put powerpoint
      */
     public PowerpointDTO update(PowerpointDTO powerpointDTO, Integer id) {
+        PowerpointDTO powerpoint;
         try {
-            return powerpointMapper.mapFromEntity(powerpointRepository.putPowerpoint(powerpointMapper.mapToEntity(powerpointDTO), id));
+            powerpoint = powerpointMapper.mapFromEntity(powerpointRepository.putPowerpoint(powerpointMapper.mapToEntity(powerpointDTO), id));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.POWERPOINT, TableVersions.Table.USER);
+        return powerpoint;
+    }
+
+    /**
+     * Maps DTO to Entity and puts a single powerpoint when it still has the given version.
+     * Without a version the powerpoint is put unconditionally.
+     *
+     * @param powerpointDTO powerpoint to put
+     * @param id            id of the powerpoint to put
+     * @param version       version the client read, null to skip the check
+     * @return the stored powerpoint with its new version
+     * @throws DataNotFoundException when the powerpoint doesn't exist
+     * @throws PreconditionFailedException when the powerpoint was changed in the meantime
+     */
+    public PowerpointDTO update(PowerpointDTO powerpointDTO, Integer id, Integer version) {
+        if (version == null) {
+            return update(powerpointDTO, id);
+        }
+
+        Powerpoint stored;
+        try {
+            stored = powerpointRepository.putPowerpoint(powerpointMapper.mapToEntity(powerpointDTO), id, version);
+        } catch (ObjectRetrievalFailureException ex) {
+            throw new DataNotFoundException("id: " + id);
+        } catch (Exception ex) {
+            throw new BadRequestException();
+        }
+        if (stored == null) {
+            throw new PreconditionFailedException("id: " + id + ", version: " + version);
+        }
+        tableVersions.bump(TableVersions.Table.POWERPOINT);
+
+        return powerpointMapper.mapFromEntity(stored);
     }
 
     /**
@@ -81,10 +137,13 @@ public class PowerpointService {
      * @return response entity with deleted powerpoint
      */
     public PowerpointDTO delete(Integer id) {
+        PowerpointDTO powerpoint;
         try {
-            return powerpointMapper.mapFromEntity(powerpointRepository.deletePowerpoint(id));
+            powerpoint = powerpointMapper.mapFromEntity(powerpointRepository.deletePowerpoint(id));
         } catch (Exception ex) {
             throw new NoContentException("id: " + id);
         }
+        tableVersions.bump(TableVersions.Table.POWERPOINT);
+        return powerpoint;
     }
 }
@@ -0,0 +1,281 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.repository.ConsultationRepository;
+import org.eindopdracht.resource.repository.EventRepository;
+import org.eindopdracht.resource.repository.RssFeedRepository;
+import org.eindopdracht.resource.repository.ScheduleRepository;
+import org.eindopdracht.resource.repository.UserAvailabilityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Purges the rows of the time based tables once they ended longer ago than the retention of their table,
+ * so the tables and the unfiltered list queries don't keep growing.
+ * <p>
+ * Every table has its own retention in days, 0 keeps the rows forever. Expired rows are deleted in batches,
+ * one short transaction per batch with a pause in between, so the job never holds locks for long. Scheduled
+ * runs are skipped during peak hours and stop when they run into them.
+ * <p>
+ * A table with archive enabled appends the rows of every batch to a NDJSON file in archiveDir, one file per
+ * table per day. The file is written before the delete commits, a batch that failed to delete is archived
+ * again by the next run. Partitioned tables that aren't archived drop their expired months at once, see
+ * {@link PartitionJob}, only the rest of the current month is deleted in batches.
+ */
+@Component
+public class RetentionJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetentionJob.class);
+    private static final String PREFIX = "database.retention.";
+
+    private final List<Table> tables = new ArrayList<>();
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExportWriter exportWriter;
+    private final PartitionJob partitionJob;
+    private final TableVersions tableVersions;
+
+    @Value("${database.retention.batchSize:200}")
+    private int batchSize;
+    @Value("${database.retention.pauseMillis:200}")
+    private long pauseMillis;
+    @Value("${database.retention.maxBatches:100}")
+    private int maxBatches;
+    @Value("${database.retention.peakHours:7-18}")
+    private String peakHours;
+    @Value("${database.retention.archiveDir:}")
+    private String archiveDir;
+
+    public RetentionJob(DataSource dataSource, PlatformTransactionManager transactionManager, Environment environment,
+                        ExportWriter exportWriter, PartitionJob partitionJob, TableVersions tableVersions, EventRepository eventRepository,
+                        RssFeedRepository rssFeedRepository, UserAvailabilityRepository userAvailabilityRepository,
+                        ScheduleRepository scheduleRepository, ConsultationRepository consultationRepository) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportWriter = exportWriter;
+        this.partitionJob = partitionJob;
+        this.tableVersions = tableVersions;
+
+        tables.add(new Table("event", "endDateTime", eventRepository::deleteAll, environment));
+        tables.add(new Table("rssFeed", "endDateTime", rssFeedRepository::deleteAll, environment));
+        tables.add(new Table("userAvailability", "date", userAvailabilityRepository::deleteAll, environment));
+        tables.add(new Table("schedule", "endDateTime", scheduleRepository::deleteAll, environment));
+        tables.add(new Table("consultation", "endDateTime", consultationRepository::deleteAll, environment));
+    }
+
+    /**
+     * @return the tables with their retention and what was purged so far
+     */
+    public List<Table> getTables() {
+        return Collections.unmodifiableList(tables);
+    }
+
+    @Scheduled(fixedDelayString = "${database.retention.intervalMillis:600000}",
+            initialDelayString = "${database.retention.intervalMillis:600000}")
+    public void scheduledRun() {
+        BooleanSupplier peak = () -> isPeakHour(peakHours, LocalTime.now().getHour());
+        if (!peak.getAsBoolean()) {
+            run(peak);
+        }
+    }
+
+    /**
+     * Purge every table once, regardless of the time of day.
+     */
+    public void run() {
+        run(() -> false);
+    }
+
+    private void run(BooleanSupplier stop) {
+        for (Table table : tables) {
+            if (table.days <= 0) {
+                continue;
+            }
+            if (table.archive && archiveDir.isEmpty()) {
+                LOGGER.warn("Retention of {} skipped, it should be archived but database.retention.archiveDir isn't set", table.name);
+                continue;
+            }
+
+            long purged = table.purged.sum();
+            try {
+                purge(table, stop);
+            } catch (RuntimeException ex) {
+                table.failures.increment();
+                LOGGER.warn("Retention of {} failed", table.name, ex);
+            } finally {
+                if (table.purged.sum() != purged) {
+                    tableVersions.bump(table.name);
+                }
+            }
+        }
+    }
+
+    private void purge(Table table, BooleanSupplier stop) {
+        Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(table.days));
+        if (!table.archive) {
+            table.purged.add(partitionJob.dropBefore(table.name, cutoff));
+        }
+
+        for (int batch = 0; batch < maxBatches && !stop.getAsBoolean(); batch++) {
+            Integer deleted = transactionTemplate.execute(status -> purgeBatch(table, cutoff));
+            if (deleted == null) {
+                break;
+            }
+            table.purged.add(deleted);
+            if (deleted < batchSize) {
+                break;
+            }
+            pause();
+        }
+
+        table.lagSeconds = lag(table, cutoff);
+        table.lastRun = new Date();
+    }
+
+    private int purgeBatch(Table table, Date cutoff) {
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM " + table.name + " WHERE " + table.column + " < :cutoff ORDER BY " + table.column + " LIMIT :limit",
+                new MapSqlParameterSource("cutoff", cutoff).addValue("limit", batchSize), Integer.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        if (table.archive) {
+            archive(table, ids);
+            table.archived.add(ids.size());
+        }
+        return table.delete.applyAsInt(ids);
+    }
+
+    private void archive(Table table, List<Integer> ids) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT * FROM " + table.name + " WHERE id IN (:ids) ORDER BY id", new MapSqlParameterSource("ids", ids));
+
+        File file = new File(archiveDir, table.name + "-" + LocalDate.now() + ".ndjson");
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file, true)) {
+            exportWriter.<Map<String, Object>>open(ExportWriter.Format.NDJSON, out, Collections.emptyMap()).accept(rows);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * How long the oldest expired row is overdue, 0 when the table is purged up to the cutoff.
+     */
+    private long lag(Table table, Date cutoff) {
+        Date oldest = jdbcTemplate.queryForObject("SELECT MIN(" + table.column + ") FROM " + table.name,
+                Collections.emptyMap(), Date.class);
+        return oldest == null || !oldest.before(cutoff) ? 0 : TimeUnit.MILLISECONDS.toSeconds(cutoff.getTime() - oldest.getTime());
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param peakHours hours to skip as start-end, like 7-18 for 07:00 up to 18:00, empty for none
+     * @param hour      hour of the day
+     * @return whether the hour falls in the peak hours, a range like 22-6 wraps around midnight
+     */
+    static boolean isPeakHour(String peakHours, int hour) {
+        if (peakHours == null || peakHours.trim().isEmpty()) {
+            return false;
+        }
+
+        String[] range = peakHours.trim().split("-");
+        int start = Integer.parseInt(range[0].trim());
+        int end = Integer.parseInt(range[1].trim());
+        return start <= end ? hour >= start && hour < end : hour >= start || hour < end;
+    }
+
+    /**
+     * Retention and purge statistics of one table.
+     */
+    public static class Table {
+        private final String name;
+        private final String column;
+        private final ToIntFunction<List<Integer>> delete;
+        private final int days;
+        private final boolean archive;
+        private final LongAdder purged = new LongAdder();
+        private final LongAdder archived = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile Date lastRun;
+        private volatile long lagSeconds;
+
+        Table(String name, String column, ToIntFunction<List<Integer>> delete, Environment environment) {
+            this.name = name;
+            this.column = column;
+            this.delete = delete;
+            this.days = environment.getProperty(PREFIX + name + ".days", Integer.class, 0);
+            this.archive = environment.getProperty(PREFIX + name + ".archive", Boolean.class, false);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getDays() {
+            return days;
+        }
+
+        public boolean isArchive() {
+            return archive;
+        }
+
+        public long getPurged() {
+            return purged.sum();
+        }
+
+        public long getArchived() {
+            return archived.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return end of the last run, null when it didn't run yet
+         */
+        public Date getLastRun() {
+            return lastRun;
+        }
+
+        /**
+         * @return seconds the oldest expired row was overdue after the last run
+         */
+        public long getLagSeconds() {
+            return lagSeconds;
+        }
+    }
+}
@@ -4,8 +4,12 @@ import org.eindopdracht.resource.dto.RoleDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
+import org.eindopdracht.resource.exception.general.PreconditionFailedException;
 import org.eindopdracht.resource.mapper.RoleMapper;
+import org.eindopdracht.resource.model.Role;
 import org.eindopdracht.resource.repository.RoleRepository;
+import org.eindopdracht.util.Page;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -29,6 +33,19 @@ public class RoleService {
         return roleMapper.mapFromEntityList(roleRepository.getRoles());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of roles.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of roles with the cursor of the next page
+     */
+    public Page<RoleDTO> getRoles(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(roleRepository.getRoles(after, size + 1), size, Role::getId)
+                .map(roleMapper::mapFromEntityList);
+    }
+
     /**
      * Maps Entity to DTO and returns a single role.
      *
@@ -74,6 +91,37 @@ public class RoleService {
         }
     }
 
+    /**
+     * Maps DTO to Entity and puts a single role when it still has the given version.
+     * Without a version the role is put unconditionally.
+     *
+     * @param roleDTO role to put
+     * @param id      id of the role to put
+     * @param version version the client read, null to skip the check
+     * @return the stored role with its new version
+     * @throws DataNotFoundException when the role doesn't exist
+     * @throws PreconditionFailedException when the role was changed in the meantime
+     */
+    public RoleDTO update(RoleDTO roleDTO, Integer id, Integer version) {
+        if (version == null) {
+            return update(roleDTO, id);
+        }
+
+        Role stored;
+        try {
+            stored = roleRepository.putRole(roleMapper.mapToEntity(roleDTO), id, version);
+        } catch (ObjectRetrievalFailureException ex) {
+            throw new DataNotFoundException("id: " + id);
+        } catch (Exception ex) {
+            throw new BadRequestException();
+        }
+        if (stored == null) {
+            throw new PreconditionFailedException("id: " + id + ", version: " + version);
+        }
+
+        return roleMapper.mapFromEntity(stored);
+    }
+
     /**
      * Maps Entity to DTO and deletes a single role.
      *
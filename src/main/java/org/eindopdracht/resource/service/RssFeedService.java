@@ -4,20 +4,27 @@ import org.eindopdracht.resource.dto.RssFeedDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
+import org.eindopdracht.resource.exception.general.PreconditionFailedException;
 import org.eindopdracht.resource.mapper.RssFeedMapper;
+import org.eindopdracht.resource.model.RssFeed;
 import org.eindopdracht.resource.repository.RssFeedRepository;
+import org.eindopdracht.util.Page;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
 import java.util.List;
 
 @Service
 public class RssFeedService {
     private final RssFeedRepository rssFeedRepository;
     private final RssFeedMapper rssFeedMapper;
+    private final TableVersions tableVersions;
 
-    public RssFeedService(RssFeedRepository rssFeedRepository, RssFeedMapper rssFeedMapper) {
+    public RssFeedService(RssFeedRepository rssFeedRepository, RssFeedMapper rssFeedMapper, TableVersions tableVersions) {
         this.rssFeedRepository = rssFeedRepository;
         this.rssFeedMapper = rssFeedMapper;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -29,6 +36,54 @@ public class RssFeedService {
         return rssFeedMapper.mapFromEntityList(rssFeedRepository.getRssFeeds());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of rss feeds.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of rss feeds with the cursor of the next page
+     */
+    public Page<RssFeedDTO> getRssFeeds(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(rssFeedRepository.getRssFeeds(after, size + 1), size, RssFeedDTO::getId);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the RSS feeds active right now, ordered by start.
+     *
+     * @param limit requested number of RSS feeds, at most {@link Page#MAX_LIMIT}
+     * @return list of active RSS feeds
+     */
+    public List<RssFeedDTO> getActiveRssFeeds(int limit) {
+        Date now = new Date();
+        return getRssFeedsBetween(now, now, limit);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the RSS feeds whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit requested number of RSS feeds, at most {@link Page#MAX_LIMIT}
+     * @return list of RSS feeds in the window
+     */
+    public List<RssFeedDTO> getRssFeedsBetween(Date from, Date to, int limit) {
+        if (from == null || to == null || from.after(to)) {
+            throw new BadRequestException();
+        }
+        return rssFeedRepository.getRssFeedsBetween(from, to, Page.clamp(limit));
+    }
+
+    /**
+     * Maps Entity to DTO and returns the next RSS feeds to start, ordered by start.
+     *
+     * @param limit requested number of RSS feeds, at most {@link Page#MAX_LIMIT}
+     * @return list of upcoming RSS feeds
+     */
+    public List<RssFeedDTO> getUpcomingRssFeeds(int limit) {
+        return rssFeedRepository.getUpcomingRssFeeds(new Date(), Page.clamp(limit));
+    }
+
     /**
      * Maps Entity to DTO and returns a single RSS feed.
      *
@@ -50,13 +105,16 @@ public class RssFeedService {
      * @return response entity with posted RSS feed
      */
     public RssFeedDTO create(RssFeedDTO rssFeedDTO) {
+        RssFeedDTO rssFeed;
         try {
-            return rssFeedMapper.mapFromEntity(
+            rssFeed = rssFeedMapper.mapFromEntity(
                     rssFeedRepository.postRssFeed(rssFeedMapper.mapToEntity(rssFeedDTO))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.RSS_FEED, TableVersions.Table.USER);
+        return rssFeed;
     }
 
     /**
@@ -67,11 +125,46 @@ public class RssFeedService {
      * @return response entity with put RSS feed
      */
     public RssFeedDTO update(RssFeedDTO rssFeedDTO, Integer id) {
+        RssFeedDTO rssFeed;
         try {
-            return rssFeedMapper.mapFromEntity(rssFeedRepository.putRssFeed(rssFeedMapper.mapToEntity(rssFeedDTO), id));
+            rssFeed = rssFeedMapper.mapFromEntity(rssFeedRepository.putRssFeed(rssFeedMapper.mapToEntity(rssFeedDTO), id));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.RSS_FEED, TableVersions.Table.USER);
+        return rssFeed;
+    }
+
+    /**
+     * Maps DTO to Entity and puts a single RSS feed when it still has the given version.
+     * Without a version the RSS feed is put unconditionally.
+     *
+     * @param rssFeedDTO RSS feed to put
+     * @param id         id of the RSS feed to put
+     * @param version    version the client read, null to skip the check
+     * @return the stored RSS feed with its new version
+     * @throws DataNotFoundException when the RSS feed doesn't exist
+     * @throws PreconditionFailedException when the RSS feed was changed in the meantime
+     */
+    public RssFeedDTO update(RssFeedDTO rssFeedDTO, Integer id, Integer version) {
+        if (version == null) {
+            return update(rssFeedDTO, id);
+        }
+
+        RssFeed stored;
+        try {
+            stored = rssFeedRepository.putRssFeed(rssFeedMapper.mapToEntity(rssFeedDTO), id, version);
+        } catch (ObjectRetrievalFailureException ex) {
+            throw new DataNotFoundException("id: " + id);
+        } catch (Exception ex) {
+            throw new BadRequestException();
+        }
+        if (stored == null) {
+            throw new PreconditionFailedException("id: " + id + ", version: " + version);
+        }
+        tableVersions.bump(TableVersions.Table.RSS_FEED);
+
+        return rssFeedMapper.mapFromEntity(stored);
     }
 
     /**
@@ -81,10 +174,13 @@ public class RssFeedService {
      * @return response entity with deleted RSS feed
      */
     public RssFeedDTO delete(Integer id) {
+        RssFeedDTO rssFeed;
         try {
-            return rssFeedMapper.mapFromEntity(rssFeedRepository.deleteRssFeed(id));
+            rssFeed = rssFeedMapper.mapFromEntity(rssFeedRepository.deleteRssFeed(id));
         } catch (Exception ex) {
             throw new NoContentException("id: " + id);
         }
+        tableVersions.bump(TableVersions.Table.RSS_FEED);
+        return rssFeed;
     }
 }
@@ -1,23 +1,33 @@
 package org.eindopdracht.resource.service;
 
+import org.eindopdracht.resource.dto.BatchResultDTO;
+import org.eindopdracht.resource.dto.DeleteResultDTO;
 import org.eindopdracht.resource.dto.ScheduleDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
 import org.eindopdracht.resource.mapper.ScheduleMapper;
+import org.eindopdracht.resource.model.Schedule;
 import org.eindopdracht.resource.repository.ScheduleRepository;
+import org.eindopdracht.util.Page;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
 import java.util.List;
 
 @Service
 public class ScheduleService {
     private final ScheduleRepository scheduleRepository;
     private final ScheduleMapper scheduleMapper;
+    private final BatchWriter batchWriter;
+    private final BulkDeleter bulkDeleter;
 
-    public ScheduleService(ScheduleRepository scheduleRepository, ScheduleMapper scheduleMapper) {
+    public ScheduleService(ScheduleRepository scheduleRepository, ScheduleMapper scheduleMapper, BatchWriter batchWriter,
+                           BulkDeleter bulkDeleter) {
         this.scheduleRepository = scheduleRepository;
         this.scheduleMapper = scheduleMapper;
+        this.batchWriter = batchWriter;
+        this.bulkDeleter = bulkDeleter;
     }
 
     /**
@@ -29,6 +39,55 @@ public class ScheduleService {
         return scheduleMapper.mapFromEntityList(scheduleRepository.get());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of schedules.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of schedules with the cursor of the next page
+     */
+    public Page<ScheduleDTO> getAll(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(scheduleRepository.get(after, size + 1), size, Schedule::getId)
+                .map(scheduleMapper::mapFromEntityList);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the schedules active right now, ordered by start.
+     *
+     * @param limit requested number of schedules, at most {@link Page#MAX_LIMIT}
+     * @return list of active schedules
+     */
+    public List<ScheduleDTO> getActive(int limit) {
+        Date now = new Date();
+        return getBetween(now, now, limit);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the schedules whose time window overlaps from - to, ordered by start.
+     *
+     * @param from  start of the window
+     * @param to    end of the window
+     * @param limit requested number of schedules, at most {@link Page#MAX_LIMIT}
+     * @return list of schedules in the window
+     */
+    public List<ScheduleDTO> getBetween(Date from, Date to, int limit) {
+        if (from == null || to == null || from.after(to)) {
+            throw new BadRequestException();
+        }
+        return scheduleMapper.mapFromEntityList(scheduleRepository.getBetween(from, to, Page.clamp(limit)));
+    }
+
+    /**
+     * Maps Entity to DTO and returns the next schedules to start, ordered by start.
+     *
+     * @param limit requested number of schedules, at most {@link Page#MAX_LIMIT}
+     * @return list of upcoming schedules
+     */
+    public List<ScheduleDTO> getUpcoming(int limit) {
+        return scheduleMapper.mapFromEntityList(scheduleRepository.getUpcoming(new Date(), Page.clamp(limit)));
+    }
+
     /**
      * Maps Entity to DTO and returns a single schedule.
      *
@@ -59,6 +118,16 @@ public class ScheduleService {
         }
     }
 
+    /**
+     * Validates all schedules up front and posts them in chunks.
+     *
+     * @param scheduleDTOs schedules to post
+     * @return result per schedule, in the order they were posted
+     */
+    public List<BatchResultDTO> persistAll(List<ScheduleDTO> scheduleDTOs) {
+        return batchWriter.write(scheduleDTOs, scheduleMapper::mapToEntity, scheduleRepository::postAll, Schedule::getId);
+    }
+
     /**
      * Maps Entity to DTO and puts a single schedule.
      *
@@ -87,4 +156,16 @@ public class ScheduleService {
             throw new NoContentException("id: " + id);
         }
     }
+
+    /**
+     * Deletes many schedules at once, either by id or all schedules that ended before a moment.
+     * The schedules aren't loaded, they are deleted in chunks of one transaction each.
+     *
+     * @param ids         ids of the schedules to delete, null to delete by time
+     * @param endedBefore delete the schedules that ended before this moment, null to delete by id
+     * @return number of deleted schedules
+     */
+    public DeleteResultDTO deleteAll(List<Integer> ids, Date endedBefore) {
+        return bulkDeleter.delete(ids, endedBefore, scheduleRepository::deleteAll, scheduleRepository::deleteEndedBefore);
+    }
 }
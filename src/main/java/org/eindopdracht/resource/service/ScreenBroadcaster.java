@@ -0,0 +1,420 @@
+package org.eindopdracht.resource.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.resource.dto.ChangeDTO;
+import org.eindopdracht.resource.dto.ScreenSessionDTO;
+import org.eindopdracht.resource.dto.TopicMessageDTO;
+import org.eindopdracht.resource.model.Content;
+import org.eindopdracht.resource.repository.ChangeJournal;
+import org.eindopdracht.resource.repository.ContentRespository;
+import org.eindopdracht.resource.repository.ContentTypeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Fans the changes out to the screens connected over the WebSocket endpoint, by topic. The topics are
+ * settings, events, powerpoints, rss and content/&lt;content type id&gt;.
+ * <p>
+ * Publishing never blocks: it only adds to the outbound queue of every subscribed session, the socket threads
+ * write them. A queue holds at most one message per topic, a new change to a topic that is still waiting is
+ * merged into it. When more than maxPendingIds ids of one topic are waiting, the ids are dropped and the
+ * message only says resync: call GET /sync. So a slow screen holds a few messages at most, and an idle one
+ * has no queue at all.
+ * <p>
+ * Every session is wrapped in a {@link ConcurrentWebSocketSessionDecorator}. A screen that doesn't take a
+ * message within sendTimeLimitMillis, or has more than bufferSizeLimit bytes waiting, is closed and reconnects.
+ * <p>
+ * A session subscribes to at most maxTopics topics, and only to the content types that exist. The endpoint is
+ * open to every screen, so the subscriptions can't grow without bound.
+ * <p>
+ * Screens ack the token of what they rendered, /metrics/screens shows how far behind every screen is.
+ */
+@Service
+public class ScreenBroadcaster implements ChangeListener {
+    public static final String SETTINGS = "settings";
+    public static final String EVENTS = "events";
+    public static final String POWERPOINTS = "powerpoints";
+    public static final String RSS = "rss";
+    public static final String CONTENT = "content/";
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScreenBroadcaster.class);
+    private static final Pattern TOPIC = Pattern.compile("settings|events|powerpoints|rss|content/\\d{1,9}");
+    private static final Map<String, String> TABLE_TOPICS = new HashMap<>();
+
+    static {
+        TABLE_TOPICS.put(ChangeJournal.GLOBAL_SETTINGS, SETTINGS);
+        TABLE_TOPICS.put(ChangeJournal.EVENT, EVENTS);
+        TABLE_TOPICS.put(ChangeJournal.POWERPOINT, POWERPOINTS);
+        TABLE_TOPICS.put(ChangeJournal.RSS_FEED, RSS);
+    }
+
+    private final Map<String, ScreenSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Set<ScreenSession>> subscribers = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SyncService syncService;
+    private final ContentRespository contentRespository;
+    private final ContentTypeRepository contentTypeRepository;
+    private final Executor executor;
+
+    @Value("${database.socket.maxPendingIds:100}")
+    private int maxPendingIds;
+    @Value("${database.socket.maxTopics:20}")
+    private int maxTopics;
+    @Value("${database.socket.maxConnections:5000}")
+    private int maxConnections;
+    @Value("${database.socket.sendTimeLimitMillis:10000}")
+    private int sendTimeLimitMillis;
+    @Value("${database.socket.bufferSizeLimit:524288}")
+    private int bufferSizeLimit;
+
+    public ScreenBroadcaster(SyncService syncService, ContentRespository contentRespository,
+                             ContentTypeRepository contentTypeRepository, @Qualifier("socketExecutor") Executor executor) {
+        this.syncService = syncService;
+        this.contentRespository = contentRespository;
+        this.contentTypeRepository = contentTypeRepository;
+        this.executor = executor;
+    }
+
+    /**
+     * @param topic name of a topic
+     * @return whether screens can subscribe to it
+     */
+    public static boolean isTopic(String topic) {
+        return topic != null && TOPIC.matcher(topic).matches();
+    }
+
+    /**
+     * @param session new WebSocket session
+     * @param screen  name of the screen, shown in the metrics
+     * @return false when maxConnections are open, the session should be closed
+     */
+    public boolean register(WebSocketSession session, String screen) {
+        if (sessions.size() >= maxConnections) {
+            return false;
+        }
+        ConcurrentWebSocketSessionDecorator decorated = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMillis, bufferSizeLimit);
+        sessions.put(session.getId(), new ScreenSession(decorated, screen));
+        return true;
+    }
+
+    public void unregister(WebSocketSession session) {
+        ScreenSession screenSession = sessions.remove(session.getId());
+        if (screenSession != null) {
+            unsubscribe(screenSession, screenSession.topics);
+        }
+    }
+
+    /**
+     * @param session WebSocket session
+     * @param topics  topics to add, checked with {@link #isTopic(String)}
+     * @return false when the session would have more than maxTopics topics or a content type doesn't exist,
+     * none of the topics are added then
+     */
+    public boolean subscribe(WebSocketSession session, Collection<String> topics) {
+        ScreenSession screenSession = sessions.get(session.getId());
+        if (screenSession == null) {
+            return true;
+        }
+        Set<String> updated = new HashSet<>(screenSession.topics);
+        updated.addAll(topics);
+        if (updated.size() > maxTopics || !contentTypesExist(updated, screenSession.topics)) {
+            return false;
+        }
+        screenSession.topics = Collections.unmodifiableSet(updated);
+        for (String topic : topics) {
+            subscribers.computeIfAbsent(topic, name -> ConcurrentHashMap.newKeySet()).add(screenSession);
+        }
+        // Unregistered meanwhile, it took its topics along before these were added
+        if (sessions.get(session.getId()) != screenSession) {
+            unsubscribe(screenSession, topics);
+        }
+        return true;
+    }
+
+    public void unsubscribe(WebSocketSession session, Collection<String> topics) {
+        ScreenSession screenSession = sessions.get(session.getId());
+        if (screenSession == null) {
+            return;
+        }
+        Set<String> updated = new HashSet<>(screenSession.topics);
+        updated.removeAll(topics);
+        screenSession.topics = Collections.unmodifiableSet(updated);
+        unsubscribe(screenSession, topics);
+    }
+
+    /**
+     * @param session WebSocket session
+     * @param token   sync token of what the screen rendered
+     */
+    public void ack(WebSocketSession session, String token) {
+        ScreenSession screenSession = sessions.get(session.getId());
+        if (screenSession != null) {
+            screenSession.ackedToken = token;
+            screenSession.ackedAt = System.currentTimeMillis();
+        }
+    }
+
+    @Override
+    public void onChanges(List<ChangeJournal.Entry> entries, String token) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        ChangeDTO changes = syncService.getChanges(entries);
+        for (Map.Entry<String, String> table : TABLE_TOPICS.entrySet()) {
+            publish(table.getValue(), token, changes.getUpserted().get(table.getKey()), changes.getDeleted().get(table.getKey()));
+        }
+
+        List<Integer> upserted = changes.getUpserted().get(ChangeJournal.CONTENT);
+        List<Integer> deleted = changes.getDeleted().get(ChangeJournal.CONTENT);
+        if (upserted != null && !upserted.isEmpty()) {
+            publishContent(token, upserted);
+        }
+        // The type of deleted content is gone with it, every content topic gets the ids
+        if (deleted != null && !deleted.isEmpty()) {
+            subscribers.keySet().stream()
+                    .filter(topic -> topic.startsWith(CONTENT))
+                    .forEach(topic -> publish(topic, token, null, deleted));
+        }
+    }
+
+    /**
+     * Queue a message for every subscriber of a topic.
+     *
+     * @param topic    topic of the change
+     * @param token    sync token up to the change
+     * @param upserted ids of the inserted or updated rows, may be null
+     * @param deleted  ids of the deleted rows, may be null
+     */
+    public void publish(String topic, String token, List<Integer> upserted, List<Integer> deleted) {
+        if ((upserted == null || upserted.isEmpty()) && (deleted == null || deleted.isEmpty())) {
+            return;
+        }
+        Set<ScreenSession> sessionsOfTopic = subscribers.get(topic);
+        if (sessionsOfTopic == null) {
+            return;
+        }
+        for (ScreenSession session : sessionsOfTopic) {
+            session.offer(topic, token, upserted, deleted);
+        }
+    }
+
+    /**
+     * @return every open session, with its subscriptions and how far it is behind
+     */
+    public List<ScreenSessionDTO> getSessions() {
+        return sessions.values().stream()
+                .map(ScreenSession::toDto)
+                .sorted((a, b) -> String.valueOf(a.getScreen()).compareTo(String.valueOf(b.getScreen())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Close the sessions of the screens that stopped reading. The decorator only checks its limits when the
+     * next message is sent, a screen nothing is published to would hold its socket thread until then.
+     */
+    @Scheduled(fixedDelayString = "${database.socket.sendTimeLimitMillis:10000}")
+    public void closeStalled() {
+        for (ScreenSession screenSession : sessions.values()) {
+            if (screenSession.session.getTimeSinceSendStarted() > sendTimeLimitMillis) {
+                try {
+                    // Closing writes a close frame, that can block as well
+                    executor.execute(screenSession::close);
+                } catch (RejectedExecutionException ex) {
+                    LOGGER.debug("Closing screen {} is left to the next check", screenSession.screen);
+                }
+            }
+        }
+    }
+
+    private void publishContent(String token, List<Integer> ids) {
+        boolean subscribed = subscribers.keySet().stream().anyMatch(topic -> topic.startsWith(CONTENT));
+        if (!subscribed) {
+            return;
+        }
+
+        try {
+            Map<Integer, List<Integer>> byType = contentRespository.getByIds(ids).stream()
+                    .collect(Collectors.groupingBy(content -> content.getContentType().getId(),
+                            Collectors.mapping(Content::getId, Collectors.toList())));
+            byType.forEach((type, idsOfType) -> publish(CONTENT + type, token, idsOfType, null));
+        } catch (RuntimeException ex) {
+            // Without the types every content topic gets the ids
+            LOGGER.warn("Reading the content types of changed content failed", ex);
+            subscribers.keySet().stream()
+                    .filter(topic -> topic.startsWith(CONTENT))
+                    .forEach(topic -> publish(topic, token, ids, null));
+        }
+    }
+
+    private boolean contentTypesExist(Set<String> topics, Set<String> subscribed) {
+        return topics.stream()
+                .filter(topic -> topic.startsWith(CONTENT) && !subscribed.contains(topic))
+                .allMatch(topic -> contentTypeRepository.getById(Integer.parseInt(topic.substring(CONTENT.length()))) != null);
+    }
+
+    private void unsubscribe(ScreenSession screenSession, Collection<String> topics) {
+        for (String topic : topics) {
+            subscribers.computeIfPresent(topic, (name, set) -> {
+                set.remove(screenSession);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * One screen with its outbound queue. The queue only exists while messages wait, at most one socket
+     * thread writes the session at a time.
+     */
+    private class ScreenSession {
+        private final ConcurrentWebSocketSessionDecorator session;
+        private final String screen;
+        private volatile Set<String> topics = Collections.emptySet();
+        private volatile String sentToken;
+        private volatile String ackedToken;
+        private volatile long ackedAt;
+        private volatile long resyncs;
+        // Guarded by this
+        private Map<String, TopicMessageDTO> pending;
+        private boolean sending;
+
+        ScreenSession(ConcurrentWebSocketSessionDecorator session, String screen) {
+            this.session = session;
+            this.screen = screen;
+        }
+
+        void offer(String topic, String token, List<Integer> upserted, List<Integer> deleted) {
+            synchronized (this) {
+                if (pending == null) {
+                    pending = new LinkedHashMap<>();
+                }
+                TopicMessageDTO message = pending.get(topic);
+                if (message == null) {
+                    message = new TopicMessageDTO(topic, token, new ArrayList<>(), new ArrayList<>(), false);
+                    pending.put(topic, message);
+                }
+                merge(message, token, upserted, deleted);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                synchronized (this) {
+                    sending = false;
+                }
+            }
+        }
+
+        /**
+         * Merge a change into a waiting message, a row in both lists counts by its last change.
+         */
+        private void merge(TopicMessageDTO message, String token, List<Integer> upserted, List<Integer> deleted) {
+            message.setToken(token);
+            if (message.isResync()) {
+                return;
+            }
+
+            Set<Integer> upserts = new LinkedHashSet<>(message.getUpserted());
+            Set<Integer> deletes = new LinkedHashSet<>(message.getDeleted());
+            if (upserted != null) {
+                deletes.removeAll(upserted);
+                upserts.addAll(upserted);
+            }
+            if (deleted != null) {
+                upserts.removeAll(deleted);
+                deletes.addAll(deleted);
+            }
+
+            if (upserts.size() + deletes.size() > maxPendingIds) {
+                message.setResync(true);
+                message.setUpserted(Collections.emptyList());
+                message.setDeleted(Collections.emptyList());
+                resyncs++;
+            } else {
+                message.setUpserted(new ArrayList<>(upserts));
+                message.setDeleted(new ArrayList<>(deletes));
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                TopicMessageDTO message;
+                synchronized (this) {
+                    if (pending == null || pending.isEmpty()) {
+                        pending = null;
+                        sending = false;
+                        return;
+                    }
+                    Iterator<TopicMessageDTO> iterator = pending.values().iterator();
+                    message = iterator.next();
+                    iterator.remove();
+                }
+
+                try {
+                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(message)));
+                    sentToken = message.getToken();
+                } catch (JsonProcessingException ex) {
+                    LOGGER.warn("Writing a message to screen {} failed", screen, ex);
+                } catch (IOException | RuntimeException ex) {
+                    LOGGER.debug("Sending to screen {} failed, closing it", screen, ex);
+                    close();
+                    return;
+                }
+            }
+        }
+
+        private void close() {
+            unregister(session);
+            synchronized (this) {
+                pending = null;
+                sending = false;
+            }
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ex) {
+                LOGGER.debug("Closing screen {} failed", screen, ex);
+            }
+        }
+
+        ScreenSessionDTO toDto() {
+            int waiting;
+            synchronized (this) {
+                waiting = pending == null ? 0 : pending.size();
+            }
+            return new ScreenSessionDTO(screen, new HashSet<>(topics), sentToken, ackedToken,
+                    ackedAt == 0 ? null : new Date(ackedAt), waiting, resyncs);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.database.CircuitBreaker;
+import org.eindopdracht.resource.dto.ContentDTO;
+import org.eindopdracht.resource.dto.EventDTO;
+import org.eindopdracht.resource.dto.GlobalSettingsDTO;
+import org.eindopdracht.resource.dto.ScheduleDTO;
+import org.eindopdracht.resource.exception.general.ServiceUnavailableException;
+import org.eindopdracht.util.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a copy of what the screens show, to serve while the database is unavailable, see {@link CircuitBreaker}.
+ * <p>
+ * Every refreshMillis the content, the settings and the events and schedules of the next horizonHours are read.
+ * While the circuit breaker is open the public screen endpoints answer from this copy, the active events and
+ * schedules are picked by the current time. Those responses have an Age header with the age of the snapshot in
+ * seconds and a Warning header saying they are stale.
+ */
+@Service
+public class SnapshotService {
+    public static final String STALE_WARNING = "110 - \"Response is Stale\"";
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final CircuitBreaker circuitBreaker;
+    private final ContentService contentService;
+    private final GlobalSettingsService globalSettingsService;
+    private final EventService eventService;
+    private final ScheduleService scheduleService;
+    private volatile Snapshot snapshot;
+
+    @Value("${database.snapshot.horizonHours:24}")
+    private int horizonHours;
+
+    public SnapshotService(CircuitBreaker circuitBreaker, ContentService contentService,
+                           GlobalSettingsService globalSettingsService, EventService eventService,
+                           ScheduleService scheduleService) {
+        this.circuitBreaker = circuitBreaker;
+        this.contentService = contentService;
+        this.globalSettingsService = globalSettingsService;
+        this.eventService = eventService;
+        this.scheduleService = scheduleService;
+    }
+
+    /**
+     * Take a new snapshot, unless the database is unavailable. The old one is kept when reading fails.
+     */
+    @Scheduled(fixedDelayString = "${database.snapshot.refreshMillis:60000}")
+    public void refresh() {
+        if (circuitBreaker.isOpen()) {
+            return;
+        }
+
+        try {
+            Date now = new Date();
+            Date horizon = new Date(now.getTime() + TimeUnit.HOURS.toMillis(horizonHours));
+            snapshot = new Snapshot(now,
+                    sorted(contentService.get(), ContentDTO::getId),
+                    sorted(globalSettingsService.getGlobalSettings(), GlobalSettingsDTO::getId),
+                    eventService.getBetween(now, horizon, Page.MAX_LIMIT),
+                    scheduleService.getBetween(now, horizon, Page.MAX_LIMIT));
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Taking a snapshot failed, keeping the one of {}", snapshot == null ? null : snapshot.takenAt, ex);
+        }
+    }
+
+    /**
+     * @return the last snapshot, null before the first one was taken
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Answer from the database, or from the snapshot while the circuit breaker is open.
+     *
+     * @param live   reads the response from the database
+     * @param cached builds the response from the snapshot
+     * @return response from the database, or from the snapshot with the Age and Warning headers
+     * @throws ServiceUnavailableException when the breaker is open and no snapshot was taken yet
+     */
+    public <T> ResponseEntity<T> serve(Supplier<ResponseEntity<T>> live, Function<Snapshot, ResponseEntity<T>> cached) {
+        if (!circuitBreaker.isOpen()) {
+            try {
+                return live.get();
+            } catch (RuntimeException ex) {
+                // Only fall back when this request is what opened the breaker
+                if (!circuitBreaker.isOpen()) {
+                    throw ex;
+                }
+            }
+        }
+
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new ServiceUnavailableException("the database is unavailable and there is no snapshot yet");
+        }
+
+        ResponseEntity<T> response = cached.apply(current);
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.AGE, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - current.takenAt.getTime())))
+                .header(HttpHeaders.WARNING, STALE_WARNING)
+                .body(response.getBody());
+    }
+
+    private static <T> List<T> sorted(List<T> items, ToIntFunction<T> id) {
+        return items.stream().sorted(Comparator.comparingInt(id)).collect(Collectors.toList());
+    }
+
+    /**
+     * What the screens showed when the snapshot was taken.
+     */
+    public static class Snapshot {
+        private final Date takenAt;
+        private final List<ContentDTO> content;
+        private final List<GlobalSettingsDTO> settings;
+        private final List<EventDTO> events;
+        private final List<ScheduleDTO> schedules;
+
+        Snapshot(Date takenAt, List<ContentDTO> content, List<GlobalSettingsDTO> settings, List<EventDTO> events,
+                 List<ScheduleDTO> schedules) {
+            this.takenAt = takenAt;
+            this.content = Collections.unmodifiableList(content);
+            this.settings = Collections.unmodifiableList(settings);
+            this.events = Collections.unmodifiableList(events);
+            this.schedules = Collections.unmodifiableList(schedules);
+        }
+
+        public Date getTakenAt() {
+            return takenAt;
+        }
+
+        /**
+         * @return one page of content, like {@link ContentService#get(int, int)}
+         */
+        public Page<ContentDTO> getContent(int after, int limit) {
+            return page(content, after, limit, ContentDTO::getId);
+        }
+
+        /**
+         * @return one page of settings, like {@link GlobalSettingsService#getGlobalSettings(int, int)}
+         */
+        public Page<GlobalSettingsDTO> getSettings(int after, int limit) {
+            return page(settings, after, limit, GlobalSettingsDTO::getId);
+        }
+
+        /**
+         * @return the events active at a moment, like {@link EventService#getActive(int)}
+         */
+        public List<EventDTO> getActiveEvents(Date now, int limit) {
+            return events.stream()
+                    .filter(event -> isActive(event.getStartDateTime(), event.getEndDateTime(), now))
+                    .limit(Page.clamp(limit))
+                    .collect(Collectors.toList());
+        }
+
+        /**
+         * @return the schedules active at a moment, like {@link ScheduleService#getActive(int)}
+         */
+        public List<ScheduleDTO> getActiveSchedules(Date now, int limit) {
+            return schedules.stream()
+                    .filter(schedule -> isActive(schedule.getStartDateTime(), schedule.getEndDateTime(), now))
+                    .limit(Page.clamp(limit))
+                    .collect(Collectors.toList());
+        }
+
+        private static boolean isActive(Date start, Date end, Date now) {
+            return start != null && end != null && !start.after(now) && !end.before(now);
+        }
+
+        private static <T> Page<T> page(List<T> items, int after, int limit, ToIntFunction<T> id) {
+            int size = Page.clamp(limit);
+            List<T> rows = items.stream()
+                    .filter(item -> id.applyAsInt(item) > after)
+                    .limit(size + 1L)
+                    .collect(Collectors.toList());
+            return Page.of(rows, size, id);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.eindopdracht.resource.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.database.CircuitBreaker;
+import org.eindopdracht.resource.dto.ChangeDTO;
+import org.eindopdracht.resource.exception.general.ServiceUnavailableException;
+import org.eindopdracht.resource.repository.ChangeJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes a notification to the screens connected to GET /stream whenever content, events, powerpoints, RSS
+ * feeds or global settings change, so they don't have to poll.
+ * <p>
+ * Every pollMillis the {@link ChangeJournal} is read once for all connections, so writes on every node are
+ * pushed. A change event has the sync token as id and the ids of the changed rows as data, the screen reads
+ * the rows with GET /sync. A screen that reconnects with Last-Event-ID gets what it missed in one event.
+ * When that is more than batchSize entries, or the token expired, it gets a sync event instead: call GET
+ * /sync with the last token.
+ * <p>
+ * Every connection has a buffer of bufferSize events, written by the stream threads. A screen that can't keep
+ * up loses its buffer to a single sync event, so a slow screen never holds more than that in memory. The sync
+ * event has no id, the screen syncs from the last event it did get. A write that hasn't finished after
+ * sendTimeoutMillis closes the stream, the screen reconnects with Last-Event-ID. A heartbeat comment is sent
+ * every heartbeatMillis, to keep proxies from closing an idle connection.
+ * <p>
+ * The entries are handed to every {@link ChangeListener} as well, so the journal is read once per poll.
+ */
+@Service
+public class StreamService {
+    public static final String CHANGE_EVENT = "change";
+    public static final String SYNC_EVENT = "sync";
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamService.class);
+    // Without an id, the Last-Event-ID of the screen stays at the last event it received
+    private static final Event SYNC = new Event(null, SYNC_EVENT, "{}");
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder overflows = new LongAdder();
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ChangeJournal changeJournal;
+    private final SyncService syncService;
+    private final CircuitBreaker circuitBreaker;
+    private final Executor executor;
+    private final ObjectProvider<ChangeListener> listeners;
+    // Id of the last journal entry pushed, -1 until the first poll
+    private volatile long cursor = -1;
+
+    @Value("${database.stream.timeoutMillis:1800000}")
+    private long timeoutMillis;
+    @Value("${database.stream.bufferSize:16}")
+    private int bufferSize;
+    @Value("${database.stream.batchSize:500}")
+    private int batchSize;
+    @Value("${database.stream.maxConnections:2000}")
+    private int maxConnections;
+    @Value("${database.stream.sendTimeoutMillis:10000}")
+    private long sendTimeoutMillis;
+
+    public StreamService(ChangeJournal changeJournal, SyncService syncService, CircuitBreaker circuitBreaker,
+                         @Qualifier("streamExecutor") Executor executor, ObjectProvider<ChangeListener> listeners) {
+        this.changeJournal = changeJournal;
+        this.syncService = syncService;
+        this.circuitBreaker = circuitBreaker;
+        this.executor = executor;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Open a stream. It ends after timeoutMillis, the screen reconnects with Last-Event-ID.
+     *
+     * @param lastEventId id of the last event the screen received, null for a new screen
+     * @return emitter of the stream
+     * @throws org.eindopdracht.resource.exception.general.BadRequestException when lastEventId is malformed
+     * @throws ServiceUnavailableException                                    when maxConnections are open
+     */
+    public SseEmitter open(String lastEventId) {
+        long[] token = lastEventId == null || lastEventId.isEmpty() ? null : SyncService.parseToken(lastEventId);
+        if (connections.size() >= maxConnections) {
+            throw new ServiceUnavailableException("there are too many open streams");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Connection connection = new Connection(emitter);
+        emitter.onCompletion(() -> connections.remove(connection));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(ex -> connections.remove(connection));
+        // Register first, a change after the cursor read below is pushed by the next poll
+        connections.add(connection);
+        if (token != null) {
+            resume(connection, token);
+        }
+        return emitter;
+    }
+
+    /**
+     * @return number of open streams
+     */
+    public int getConnections() {
+        return connections.size();
+    }
+
+    /**
+     * @return number of times a slow screen lost its buffer
+     */
+    public long getOverflows() {
+        return overflows.sum();
+    }
+
+    /**
+     * Push the journal entries written since the last poll to every stream.
+     */
+    @Scheduled(fixedDelayString = "${database.stream.pollMillis:1000}")
+    public void poll() {
+        if (circuitBreaker.isOpen()) {
+            return;
+        }
+
+        try {
+            if (cursor < 0) {
+                cursor = changeJournal.lastId();
+                return;
+            }
+
+            Date now = changeJournal.now();
+            List<ChangeJournal.Entry> entries;
+            do {
+                entries = changeJournal.after(cursor, syncService.getSettled(now), batchSize);
+                if (entries.isEmpty()) {
+                    break;
+                }
+                cursor = entries.get(entries.size() - 1).getId();
+                Event event = changeEvent(entries);
+                for (Connection connection : connections) {
+                    connection.offer(event);
+                }
+                List<ChangeJournal.Entry> changes = entries;
+                listeners.orderedStream().forEach(listener -> listener.onChanges(changes, event.id));
+            } while (entries.size() == batchSize);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Reading the change journal for the streams failed", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${database.stream.heartbeatMillis:15000}")
+    public void heartbeat() {
+        for (Connection connection : connections) {
+            connection.heartbeat();
+        }
+    }
+
+    /**
+     * Close the streams of the screens that stopped reading, nothing more is written to them.
+     */
+    @Scheduled(fixedDelayString = "${database.stream.sendTimeoutMillis:10000}")
+    public void closeStalled() {
+        long now = System.currentTimeMillis();
+        for (Connection connection : connections) {
+            connection.closeIfStalled(now);
+        }
+    }
+
+    /**
+     * Send what the screen missed, up to the cursor. Everything after it is pushed by the polls.
+     */
+    private void resume(Connection connection, long[] token) {
+        long upTo = cursor;
+        if (upTo < 0) {
+            connection.offer(SYNC);
+            return;
+        }
+
+        try {
+            Date now = changeJournal.now();
+            if (syncService.isExpired(token, now.getTime())) {
+                connection.offer(SYNC);
+                return;
+            }
+            List<ChangeJournal.Entry> entries = changeJournal.after(token[0], syncService.getSettled(now), batchSize + 1).stream()
+                    .filter(entry -> entry.getId() <= upTo)
+                    .collect(Collectors.toList());
+            if (entries.size() > batchSize) {
+                connection.offer(SYNC);
+            } else if (!entries.isEmpty()) {
+                connection.offer(changeEvent(entries));
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.debug("Resuming a stream failed", ex);
+            connection.offer(SYNC);
+        }
+    }
+
+    private Event changeEvent(List<ChangeJournal.Entry> entries) {
+        ChangeDTO changes = syncService.getChanges(entries);
+        try {
+            // Serialized once for all streams
+            return new Event(SyncService.token(entries.get(entries.size() - 1)), CHANGE_EVENT, objectMapper.writeValueAsString(changes));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * One event, shared by the streams. An {@link SseEmitter.SseEventBuilder} can only be sent once.
+     */
+    private static class Event {
+        private static final Event HEARTBEAT = new Event(null, null, null);
+
+        private final String id;
+        private final String name;
+        private final String data;
+
+        Event(String id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        SseEmitter.SseEventBuilder build() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().name(name).data(data);
+            return id == null ? builder : builder.id(id);
+        }
+    }
+
+    /**
+     * One open stream with its buffer. At most one stream thread writes it at a time.
+     */
+    private class Connection {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Start of the write in progress, 0 between writes
+        private volatile long writingSince;
+
+        Connection(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Event event) {
+            if (!buffer.offer(event)) {
+                // Too slow, what it missed is replaced by one sync event
+                buffer.clear();
+                buffer.offer(SYNC);
+                overflows.increment();
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            if (buffer.isEmpty() && buffer.offer(Event.HEARTBEAT)) {
+                schedule();
+            }
+        }
+
+        void closeIfStalled(long now) {
+            long since = writingSince;
+            if (since == 0 || now - since < sendTimeoutMillis) {
+                return;
+            }
+            LOGGER.debug("Closing a stream that didn't take a write for {} ms", now - since);
+            connections.remove(this);
+            buffer.clear();
+            emitter.completeWithError(new IOException("the screen stopped reading"));
+        }
+
+        private void schedule() {
+            if (!sending.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                sending.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                Event event;
+                while ((event = buffer.poll()) != null) {
+                    writingSince = System.currentTimeMillis();
+                    emitter.send(event.build());
+                    writingSince = 0;
+                }
+            } catch (Exception ex) {
+                // The container completes the emitter when the screen went away
+                LOGGER.debug("Writing to a stream failed", ex);
+                connections.remove(this);
+                buffer.clear();
+                return;
+            } finally {
+                writingSince = 0;
+                sending.set(false);
+            }
+            // An event offered while the last one was written
+            if (!buffer.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.dto.ChangeDTO;
+import org.eindopdracht.resource.dto.SyncDTO;
+import org.eindopdracht.resource.exception.general.BadRequestException;
+import org.eindopdracht.resource.mapper.ContentMapper;
+import org.eindopdracht.resource.mapper.EventMapper;
+import org.eindopdracht.resource.mapper.GlobalSettingsMapper;
+import org.eindopdracht.resource.repository.ChangeJournal;
+import org.eindopdracht.resource.repository.ContentRespository;
+import org.eindopdracht.resource.repository.EventRepository;
+import org.eindopdracht.resource.repository.GlobalSettingsRepository;
+import org.eindopdracht.resource.repository.PowerpointRepository;
+import org.eindopdracht.resource.repository.RssFeedRepository;
+import org.eindopdracht.util.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Delta sync of the screen resources, see {@link ChangeJournal}. A screen sends the token of its last sync
+ * and gets the rows that were inserted or updated since then, the ids of the rows that were deleted and a new
+ * token.
+ * <p>
+ * The token is the id of the last journal entry the client received and how old the entries after it are at
+ * least: the moment of that entry, or the settled moment when the client got everything. Tombstones are purged
+ * tombstoneDays after their change, a token older than that may have missed deletes: the answer is then a full
+ * sync with reset set, the client drops what it has. A sync without a token is a full sync as well.
+ * <p>
+ * Entries younger than lagMillis are held back until every transaction that could still commit before them
+ * has. Compaction runs every compactIntervalMillis, in batches of compactBatchSize.
+ */
+@Service
+public class SyncService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyncService.class);
+
+    private final ChangeJournal changeJournal;
+    private final Map<String, Function<Collection<Integer>, List<?>>> readers = new LinkedHashMap<>();
+
+    @Value("${database.sync.tombstoneDays:30}")
+    private int tombstoneDays;
+    @Value("${database.sync.lagMillis:2000}")
+    private long lagMillis;
+    @Value("${database.sync.compactBatchSize:500}")
+    private int compactBatchSize;
+    @Value("${database.sync.compactMaxBatches:100}")
+    private int compactMaxBatches;
+
+    public SyncService(ChangeJournal changeJournal, ContentRespository contentRespository, ContentMapper contentMapper,
+                       EventRepository eventRepository, EventMapper eventMapper, PowerpointRepository powerpointRepository,
+                       RssFeedRepository rssFeedRepository, GlobalSettingsRepository globalSettingsRepository,
+                       GlobalSettingsMapper globalSettingsMapper) {
+        this.changeJournal = changeJournal;
+
+        readers.put(ChangeJournal.CONTENT, ids -> contentMapper.mapFromEntityList(contentRespository.getByIds(ids)));
+        readers.put(ChangeJournal.EVENT, ids -> eventMapper.mapFromEntityList(eventRepository.getByIds(ids)));
+        readers.put(ChangeJournal.POWERPOINT, powerpointRepository::getByIds);
+        readers.put(ChangeJournal.RSS_FEED, rssFeedRepository::getByIds);
+        readers.put(ChangeJournal.GLOBAL_SETTINGS, ids -> globalSettingsMapper.mapFromEntityList(globalSettingsRepository.getByIds(ids)));
+    }
+
+    /**
+     * Read the changes since a token. A row that changed more than once is sent once, as it is now.
+     *
+     * @param since token of the last sync, null or empty for a full sync
+     * @param limit maximum number of journal entries to read
+     * @return changes and the token of the next sync, more is set when there are more changes waiting
+     * @throws BadRequestException when the token is malformed
+     */
+    public SyncDTO sync(String since, int limit) {
+        Date now = changeJournal.now();
+        long after = 0;
+        boolean reset = true;
+        if (since != null && !since.isEmpty()) {
+            long[] token = parseToken(since);
+            if (!isExpired(token, now.getTime())) {
+                after = token[0];
+                reset = false;
+            }
+        }
+
+        int size = Page.clamp(limit);
+        List<ChangeJournal.Entry> entries = changeJournal.after(after, getSettled(now), size + 1);
+        boolean more = entries.size() > size;
+        if (more) {
+            entries = entries.subList(0, size);
+        }
+
+        // A row that is gone by now has a tombstone in a later sync
+        ChangeDTO changes = getChanges(entries);
+        Map<String, List<?>> upserts = new TreeMap<>();
+        changes.getUpserted().forEach((table, ids) -> {
+            Function<Collection<Integer>, List<?>> reader = readers.get(table);
+            if (reader != null) {
+                upserts.put(table, reader.apply(ids));
+            }
+        });
+
+        long last = entries.isEmpty() ? after : entries.get(entries.size() - 1).getId();
+        // The next entries are at least as old as the last one sent, or younger than settled when none are left
+        long changedAt = more ? entries.get(entries.size() - 1).getChangedAt().getTime() : getSettled(now).getTime();
+        return new SyncDTO(token(last, changedAt), reset, more, upserts, changes.getDeleted());
+    }
+
+    /**
+     * Ids of the rows that changed. A row that changed more than once is only listed by its last entry.
+     *
+     * @param entries journal entries, oldest first
+     * @return ids of the upserted and of the deleted rows per table
+     */
+    public ChangeDTO getChanges(List<ChangeJournal.Entry> entries) {
+        Map<String, ChangeJournal.Entry> latest = new LinkedHashMap<>();
+        for (ChangeJournal.Entry entry : entries) {
+            latest.put(entry.getTable() + ":" + entry.getRowId(), entry);
+        }
+
+        Map<String, List<Integer>> upserted = new TreeMap<>();
+        Map<String, List<Integer>> deleted = new TreeMap<>();
+        for (ChangeJournal.Entry entry : latest.values()) {
+            (entry.isDeleted() ? deleted : upserted).computeIfAbsent(entry.getTable(), table -> new ArrayList<>()).add(entry.getRowId());
+        }
+        return new ChangeDTO(upserted, deleted);
+    }
+
+    /**
+     * @param now current moment by the database clock, see {@link ChangeJournal#now()}
+     * @return moment before which every journal entry has committed
+     */
+    public Date getSettled(Date now) {
+        return new Date(now.getTime() - lagMillis);
+    }
+
+    /**
+     * @param token parsed token
+     * @param now   current time in milliseconds
+     * @return whether tombstones after the token may have been purged
+     */
+    public boolean isExpired(long[] token, long now) {
+        // An entry committed up to lagMillis after a later id, it can be that much older
+        return token[1] - lagMillis < now - TimeUnit.DAYS.toMillis(tombstoneDays);
+    }
+
+    /**
+     * @param id        id of the last journal entry the client received
+     * @param changedAt moment of that entry in milliseconds, the entries after it are no older
+     * @return token for the next sync
+     */
+    public static String token(long id, long changedAt) {
+        return id + "." + changedAt;
+    }
+
+    /**
+     * @param entry last journal entry the client received
+     * @return token for the next sync
+     */
+    public static String token(ChangeJournal.Entry entry) {
+        return token(entry.getId(), entry.getChangedAt().getTime());
+    }
+
+    /**
+     * @param token token of a sync
+     * @return id of the last journal entry and the moment of that entry
+     * @throws BadRequestException when the token is malformed
+     */
+    public static long[] parseToken(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 2) {
+            throw new BadRequestException();
+        }
+        try {
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException();
+        }
+    }
+
+    /**
+     * Remove the superseded entries and the expired tombstones. Every batch is its own transaction.
+     */
+    @Scheduled(fixedDelayString = "${database.sync.compactIntervalMillis:600000}",
+            initialDelayString = "${database.sync.compactIntervalMillis:600000}")
+    public void compact() {
+        try {
+            int compacted = 0;
+            for (int batch = 0; batch < compactMaxBatches; batch++) {
+                int deleted = changeJournal.compact(compactBatchSize);
+                compacted += deleted;
+                if (deleted < compactBatchSize) {
+                    break;
+                }
+            }
+
+            Date before = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(tombstoneDays));
+            int purged = 0;
+            for (int batch = 0; batch < compactMaxBatches; batch++) {
+                int deleted = changeJournal.purgeTombstones(before, compactBatchSize);
+                purged += deleted;
+                if (deleted < compactBatchSize) {
+                    break;
+                }
+            }
+            LOGGER.debug("Compacted {} journal entries and purged {} tombstones", compacted, purged);
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Compacting the change journal failed", ex);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.database.CircuitBreaker;
+import org.eindopdracht.util.ETags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Version counter per table, bumped by the services after every write. The collection endpoints use them as
+ * ETag, a poll with an unchanged If-None-Match gets 304 Not Modified without touching the database.
+ * <p>
+ * The counters live in the tableVersion table, so every node tags the same data the same way, and are kept
+ * in memory. The row is the source of truth: a bump increments the row after the write committed and takes
+ * the new value from it, the memory only ever holds values read from the row. Writes on other nodes are
+ * picked up every refreshMillis. Until then another node may still answer 304 for a collection that just
+ * changed.
+ * <p>
+ * A collection that embeds another table, like the content of an event, is tagged with both counters. A write
+ * that cascades into another table bumps that one too. While the circuit breaker is open, or a bump failed to
+ * reach the row, the counters can't be trusted and those tables aren't tagged. A failed bump is retried by the
+ * next refresh. Nothing is tagged before the rows were read once.
+ */
+@Component
+public class TableVersions {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TableVersions.class);
+
+    public enum Table {
+        CONTENT_TYPE("contentType"),
+        CONTENT("content"),
+        EVENT("event"),
+        POWERPOINT("powerpoint"),
+        RSS_FEED("rssFeed"),
+        USER("user"),
+        GLOBAL_SETTINGS("globalSettings");
+
+        private final String tableName;
+
+        Table(String tableName) {
+            this.tableName = tableName;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        /**
+         * @param tableName name of a table in the database
+         * @return its counter, null for a table without one
+         */
+        public static Table forName(String tableName) {
+            return Arrays.stream(values()).filter(table -> table.tableName.equals(tableName)).findFirst().orElse(null);
+        }
+    }
+
+    private final Map<Table, AtomicLong> versions;
+    // Tables whose bump didn't reach the tableVersion row yet, with the generation that marked them
+    private final Map<Table, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+    private volatile boolean loaded;
+    private final JdbcTemplate jdbcTemplate;
+    private final CircuitBreaker circuitBreaker;
+
+    public TableVersions(DataSource dataSource, CircuitBreaker circuitBreaker) {
+        Map<Table, AtomicLong> map = new EnumMap<>(Table.class);
+        for (Table table : Table.values()) {
+            map.put(table, new AtomicLong());
+        }
+        this.versions = Collections.unmodifiableMap(map);
+        // Its own connections, a bump after a commit must not run in the transaction that just committed
+        this.jdbcTemplate = new JdbcTemplate(new DelegatingDataSource(dataSource));
+        this.circuitBreaker = circuitBreaker;
+        // Without the rows every counter is 0, which would tag every collection the same on every node
+        try {
+            readAll();
+        } catch (DataAccessException ex) {
+            LOGGER.debug("Reading the table versions failed, they aren't tagged until the next refresh", ex);
+        }
+    }
+
+    /**
+     * @return the current version of every table
+     */
+    public Map<Table, Long> getVersions() {
+        return versions.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get(), (a, b) -> a, () -> new EnumMap<>(Table.class)));
+    }
+
+    /**
+     * @param table a table
+     * @return its current version
+     */
+    public long get(Table table) {
+        return versions.get(table).get();
+    }
+
+    /**
+     * @param tables tables a collection is read from
+     * @return the version of each of them, like 12.3, it changes whenever one of them changes
+     */
+    public String tag(Table... tables) {
+        return Arrays.stream(tables).map(table -> String.valueOf(get(table))).collect(Collectors.joining("."));
+    }
+
+    /**
+     * @param tables tables a collection is read from
+     * @return false while the breaker is open, before the rows were read or when a bump of one of them didn't
+     * reach the database
+     */
+    public boolean isKnown(Table... tables) {
+        return loaded && !circuitBreaker.isOpen() && Arrays.stream(tables).noneMatch(pending::containsKey);
+    }
+
+    /**
+     * Call after a write succeeded. Inside a transaction the bump waits until it commits, a rollback doesn't
+     * bump. Never throws, the write itself already happened.
+     *
+     * @param tables tables the write changed
+     */
+    public void bump(Table... tables) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    write(Arrays.asList(tables));
+                }
+            });
+            return;
+        }
+        write(Arrays.asList(tables));
+    }
+
+    /**
+     * @param tableName name of a table in the database, nothing happens for a table without a counter
+     */
+    public void bump(String tableName) {
+        Table table = Table.forName(tableName);
+        if (table != null) {
+            bump(table);
+        }
+    }
+
+    /**
+     * Pick up the writes of the other nodes, and retry the bumps that failed.
+     */
+    @Scheduled(fixedDelayString = "${database.tableVersions.refreshMillis:1000}")
+    public void refresh() {
+        if (circuitBreaker.isOpen()) {
+            return;
+        }
+
+        if (!pending.isEmpty()) {
+            write(new ArrayList<>(pending.keySet()));
+        }
+        try {
+            readAll();
+        } catch (DataAccessException ex) {
+            LOGGER.debug("Reading the table versions failed", ex);
+        }
+    }
+
+    /**
+     * Tag the response with the version of the tables and check it against If-None-Match.
+     * Every page and filter gets its own tag, the request parameters are part of it.
+     *
+     * @param request current request
+     * @param tables  tables the collection is read from
+     * @return true when the client has the current version, the response is 304 and the handler returns null
+     */
+    public boolean checkNotModified(WebRequest request, Table... tables) {
+        if (!isKnown(tables)) {
+            return false;
+        }
+
+        StringBuilder query = new StringBuilder();
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) ->
+                query.append(name).append('=').append(String.join(",", values)).append('&'));
+        return request.checkNotModified(ETags.ofCollection(tag(tables), query.toString()));
+    }
+
+    /**
+     * Increment the rows and read them back. Until that succeeds the tables stay pending and aren't tagged.
+     */
+    private void write(List<Table> tables) {
+        // Marked first, and only this mark is cleared: a bump that fails meanwhile marks the tables again with
+        // a newer generation, so they stay pending even when this one succeeds
+        long generation = mark(tables);
+        if (circuitBreaker.isOpen()) {
+            return;
+        }
+
+        String names = tables.stream().map(table -> "'" + table.tableName + "'").collect(Collectors.joining(","));
+        try {
+            jdbcTemplate.update("UPDATE tableVersion SET version = version + 1 WHERE name IN (" + names + ")");
+        } catch (DataAccessException ex) {
+            mark(tables);
+            LOGGER.warn("Bumping the version of {} failed, they aren't tagged until it succeeds", tables, ex);
+            return;
+        }
+        try {
+            merge("SELECT name, version FROM tableVersion WHERE name IN (" + names + ")");
+            tables.forEach(table -> pending.remove(table, generation));
+        } catch (DataAccessException ex) {
+            // Still marked, the old tags would match the changed rows. The next refresh bumps them once more
+            LOGGER.warn("Reading the version of {} failed, they aren't tagged until it succeeds", tables, ex);
+        }
+    }
+
+    private long mark(List<Table> tables) {
+        long generation = generations.incrementAndGet();
+        tables.forEach(table -> pending.put(table, generation));
+        return generation;
+    }
+
+    private void readAll() {
+        merge("SELECT name, version FROM tableVersion");
+        loaded = true;
+    }
+
+    /**
+     * Only values read from the rows are kept, the highest one wins when reads race.
+     */
+    private void merge(String sql) {
+        jdbcTemplate.query(sql, row -> {
+            Table table = Table.forName(row.getString("name"));
+            if (table != null) {
+                versions.get(table).accumulateAndGet(row.getLong("version"), Math::max);
+            }
+        });
+    }
+}
@@ -1,23 +1,38 @@
 package org.eindopdracht.resource.service;
 
+import org.eindopdracht.resource.dto.BatchResultDTO;
 import org.eindopdracht.resource.dto.UserAvailabilityDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
 import org.eindopdracht.resource.mapper.UserAvailabilityMapper;
+import org.eindopdracht.resource.model.UserAvailability;
 import org.eindopdracht.resource.repository.UserAvailabilityRepository;
+import org.eindopdracht.util.Page;
 import org.springframework.stereotype.Service;
 
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Service
 public class UserAvailabilityService {
     private final UserAvailabilityRepository userAvailabilityRepository;
     private final UserAvailabilityMapper userAvailabilityMapper;
+    private final BatchWriter batchWriter;
+    private final ExportWriter exportWriter;
+    private final TableVersions tableVersions;
 
-    public UserAvailabilityService(UserAvailabilityRepository userAvailabilityRepository, UserAvailabilityMapper userAvailabilityMapper) {
+    public UserAvailabilityService(UserAvailabilityRepository userAvailabilityRepository, UserAvailabilityMapper userAvailabilityMapper,
+                                   BatchWriter batchWriter, ExportWriter exportWriter, TableVersions tableVersions) {
         this.userAvailabilityRepository = userAvailabilityRepository;
         this.userAvailabilityMapper = userAvailabilityMapper;
+        this.batchWriter = batchWriter;
+        this.exportWriter = exportWriter;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -29,6 +44,49 @@ public class UserAvailabilityService {
         return userAvailabilityMapper.mapFromEntityList(userAvailabilityRepository.getUserAvailabilities());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of user availabilities.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of user availabilities with the cursor of the next page
+     */
+    public Page<UserAvailabilityDTO> getUserAvailabilities(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(userAvailabilityRepository.getUserAvailabilities(after, size + 1), size, UserAvailabilityDTO::getId);
+    }
+
+    /**
+     * Maps Entity to DTO and returns the user availabilities with a date between from and to, ordered by date.
+     *
+     * @param from  first date, inclusive
+     * @param to    last date, inclusive
+     * @param limit requested number of user availabilities, at most {@link Page#MAX_LIMIT}
+     * @return list of user availabilities in the window
+     */
+    public List<UserAvailabilityDTO> getUserAvailabilitiesBetween(Date from, Date to, int limit) {
+        if (from == null || to == null || from.after(to)) {
+            throw new BadRequestException();
+        }
+        return userAvailabilityRepository.getUserAvailabilitiesBetween(from, to, Page.clamp(limit));
+    }
+
+    /**
+     * Writes all user availabilities, ordered by id, while they are read from the database.
+     *
+     * @param format format of the export
+     * @param out    response body
+     */
+    public void export(ExportWriter.Format format, OutputStream out) {
+        Map<String, Function<UserAvailabilityDTO, Object>> columns = new LinkedHashMap<>();
+        columns.put("id", UserAvailabilityDTO::getId);
+        columns.put("user_id", availability -> availability.getUser().getId());
+        columns.put("user_name", availability -> availability.getUser().getName());
+        columns.put("date", UserAvailabilityDTO::getDate);
+
+        userAvailabilityRepository.export(exportWriter.getChunkSize(), exportWriter.open(format, out, columns));
+    }
+
     /**
      * Maps Entity to DTO and returns a single user availability.
      *
@@ -50,13 +108,31 @@ public class UserAvailabilityService {
      * @return response entity with posted user availability
      */
     public UserAvailabilityDTO create(UserAvailabilityDTO userAvailabilityDTO) {
+        UserAvailabilityDTO userAvailability;
         try {
-            return userAvailabilityMapper.mapFromEntity(
+            userAvailability = userAvailabilityMapper.mapFromEntity(
                     userAvailabilityRepository.postUserAvailability(userAvailabilityMapper.mapToEntity(userAvailabilityDTO))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.USER);
+        return userAvailability;
+    }
+
+    /**
+     * Validates all user availabilities up front and posts them in chunks.
+     *
+     * @param userAvailabilityDTOs user availabilities to post
+     * @return result per user availability, in the order they were posted
+     */
+    public List<BatchResultDTO> createAll(List<UserAvailabilityDTO> userAvailabilityDTOs) {
+        try {
+            return batchWriter.write(userAvailabilityDTOs, userAvailabilityMapper::mapToEntity, userAvailabilityRepository::postUserAvailabilities, UserAvailability::getId);
+        } finally {
+            // The chunks that committed before a failure did change rows
+            tableVersions.bump(TableVersions.Table.USER);
+        }
     }
 
     /**
@@ -67,11 +143,14 @@ public class UserAvailabilityService {
      * @return response entity with put user availability
      */
     public UserAvailabilityDTO update(UserAvailabilityDTO userAvailabilityDTO, Integer id) {
+        UserAvailabilityDTO userAvailability;
         try {
-            return userAvailabilityMapper.mapFromEntity(userAvailabilityRepository.putUserAvailability(userAvailabilityMapper.mapToEntity(userAvailabilityDTO), id));
+            userAvailability = userAvailabilityMapper.mapFromEntity(userAvailabilityRepository.putUserAvailability(userAvailabilityMapper.mapToEntity(userAvailabilityDTO), id));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.USER);
+        return userAvailability;
     }
 
     /**
@@ -81,10 +160,13 @@ public class UserAvailabilityService {
      * @return response entity with deleted user availability
      */
     public UserAvailabilityDTO delete(Integer id) {
+        UserAvailabilityDTO userAvailability;
         try {
-            return userAvailabilityMapper.mapFromEntity(userAvailabilityRepository.deleteUserAvailability(id));
+            userAvailability = userAvailabilityMapper.mapFromEntity(userAvailabilityRepository.deleteUserAvailability(id));
         } catch (Exception ex) {
             throw new NoContentException("id: " + id);
         }
+        tableVersions.bump(TableVersions.Table.USER);
+        return userAvailability;
     }
 }
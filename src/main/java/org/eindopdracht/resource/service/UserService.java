@@ -4,8 +4,12 @@ import org.eindopdracht.resource.dto.UserDTO;
 import org.eindopdracht.resource.exception.general.BadRequestException;
 import org.eindopdracht.resource.exception.general.DataNotFoundException;
 import org.eindopdracht.resource.exception.general.NoContentException;
+import org.eindopdracht.resource.exception.general.PreconditionFailedException;
 import org.eindopdracht.resource.mapper.UserMapper;
+import org.eindopdracht.resource.model.User;
 import org.eindopdracht.resource.repository.UserRepository;
+import org.eindopdracht.util.Page;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,10 +18,12 @@ import java.util.List;
 public class UserService {
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final TableVersions tableVersions;
 
-    public UserService(UserRepository userRepository, UserMapper userMapper) {
+    public UserService(UserRepository userRepository, UserMapper userMapper, TableVersions tableVersions) {
         this.userRepository = userRepository;
         this.userMapper = userMapper;
+        this.tableVersions = tableVersions;
     }
 
     /**
@@ -29,6 +35,19 @@ public class UserService {
         return userMapper.mapFromEntityList(userRepository.getUsers());
     }
 
+    /**
+     * Maps Entity to DTO and returns one page of users.
+     *
+     * @param after id of the last item of the previous page, 0 for the first page
+     * @param limit requested page size, at most {@link Page#MAX_LIMIT}
+     * @return page of users with the cursor of the next page
+     */
+    public Page<UserDTO> getUsers(int after, int limit) {
+        int size = Page.clamp(limit);
+        return Page.of(userRepository.getUsers(after, size + 1), size, User::getId)
+                .map(userMapper::mapFromEntityList);
+    }
+
     /**
      * Maps Entity to DTO and returns a single user.
      *
@@ -50,13 +69,16 @@ public class UserService {
      * @return response entity with posted user
      */
     public UserDTO create(UserDTO userDTO) {
+        UserDTO user;
         try {
-            return userMapper.mapFromEntity(
+            user = userMapper.mapFromEntity(
                     userRepository.postUser(userMapper.mapToEntity(userDTO))
             );
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.USER);
+        return user;
     }
 
     /**
@@ -67,11 +89,46 @@ public class UserService {
      * @return response entity with put user
      */
     public UserDTO update(UserDTO userDTO, Integer id) {
+        UserDTO user;
         try {
-            return userMapper.mapFromEntity(userRepository.putUser(userMapper.mapToEntity(userDTO), id));
+            user = userMapper.mapFromEntity(userRepository.putUser(userMapper.mapToEntity(userDTO), id));
         } catch (Exception ex) {
             throw new BadRequestException();
         }
+        tableVersions.bump(TableVersions.Table.USER);
+        return user;
+    }
+
+    /**
+     * Maps DTO to Entity and puts a single user when it still has the given version.
+     * Without a version the user is put unconditionally.
+     *
+     * @param userDTO user to put
+     * @param id      id of the user to put
+     * @param version version the client read, null to skip the check
+     * @return the stored user with its new version
+     * @throws DataNotFoundException when the user doesn't exist
+     * @throws PreconditionFailedException when the user was changed in the meantime
+     */
+    public UserDTO update(UserDTO userDTO, Integer id, Integer version) {
+        if (version == null) {
+            return update(userDTO, id);
+        }
+
+        User stored;
+        try {
+            stored = userRepository.putUser(userMapper.mapToEntity(userDTO), id, version);
+        } catch (ObjectRetrievalFailureException ex) {
+            throw new DataNotFoundException("id: " + id);
+        } catch (Exception ex) {
+            throw new BadRequestException();
+        }
+        if (stored == null) {
+            throw new PreconditionFailedException("id: " + id + ", version: " + version);
+        }
+        tableVersions.bump(TableVersions.Table.USER);
+
+        return userMapper.mapFromEntity(stored);
     }
 
     /**
@@ -81,10 +138,13 @@ public class UserService {
      * @return response entity with deleted user
      */
     public UserDTO delete(Integer id) {
+        UserDTO user;
         try {
-            return userMapper.mapFromEntity(userRepository.deleteUser(id));
+            user = userMapper.mapFromEntity(userRepository.deleteUser(id));
         } catch (Exception ex) {
             throw new NoContentException("id: " + id);
         }
+        tableVersions.bump(TableVersions.Table.USER);
+        return user;
     }
 }
@@ -0,0 +1,60 @@
+package org.eindopdracht.util;
+
+import org.eindopdracht.resource.exception.general.BadRequestException;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Entity tags for the versioned resources. The tag is the version column in quotes, like "3".
+ * A client sends the tag it received back in If-Match, the update only happens when the version is unchanged.
+ * Collections are tagged with the version of their tables, see {@link org.eindopdracht.resource.service.TableVersions}.
+ */
+public final class ETags {
+    private ETags() {
+    }
+
+    /**
+     * @param version version of the entity
+     * @return value of the ETag header
+     */
+    public static String of(int version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param versions version of each table behind a collection, see {@link org.eindopdracht.resource.service.TableVersions#tag}
+     * @param query    request parameters, every page has its own tag
+     * @return value of the ETag header, like "12.3-5f3a"
+     */
+    public static String ofCollection(String versions, String query) {
+        return "\"" + versions + "-" + Integer.toHexString(query.hashCode()) + "\"";
+    }
+
+    /**
+     * @param body serialized response, for a response that isn't built from versioned tables alone
+     * @return value of the ETag header, a hash of the body
+     */
+    public static String ofBody(byte[] body) {
+        return "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+
+    /**
+     * @param ifMatch value of the If-Match header, may be null
+     * @return the expected version, null when the header is absent or "*"
+     * @throws BadRequestException when the header isn't a tag sent by this API
+     */
+    public static Integer parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().isEmpty() || "*".equals(ifMatch.trim())) {
+            return null;
+        }
+
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new BadRequestException();
+        }
+        try {
+            return Integer.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.eindopdracht.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * One page of a keyset paginated list.
+ * Repositories return up to limit + 1 rows ordered by id, the extra row only tells there is a next page.
+ * The cursor is the id of the last item, the next page starts after it.
+ *
+ * @param <T> type of the items
+ */
+public class Page<T> {
+    public static final String DEFAULT_LIMIT = "100";
+    public static final int MAX_LIMIT = 500;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<T> items;
+    private final int limit;
+    private final Integer next;
+
+    private Page(List<T> items, int limit, Integer next) {
+        this.items = items;
+        this.limit = limit;
+        this.next = next;
+    }
+
+    /**
+     * Keep the requested page size between 1 and {@link #MAX_LIMIT}.
+     *
+     * @param limit requested page size
+     * @return page size to query
+     */
+    public static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Build a page from the rows a repository returned for limit + 1.
+     *
+     * @param rows   up to limit + 1 rows ordered by id
+     * @param limit  page size
+     * @param cursor id of a row
+     * @return page with at most limit items
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> cursor) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, limit, null);
+        }
+
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, limit, cursor.applyAsInt(items.get(limit - 1)));
+    }
+
+    /**
+     * @param mapper maps all items at once, for example a mapper's mapFromEntityList
+     * @return page with the mapped items and the same cursor
+     */
+    public <R> Page<R> map(Function<List<T>, List<R>> mapper) {
+        return new Page<>(mapper.apply(items), limit, next);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return id to pass as after for the next page, null on the last page
+     */
+    public Integer getNext() {
+        return next;
+    }
+
+    /**
+     * The body stays a plain list, so existing clients keep working.
+     * The cursor of the next page is sent in the X-Next-Cursor header and as a Link to the next page.
+     *
+     * @return response entity with the items of this page
+     */
+    public ResponseEntity<List<T>> toResponseEntity() {
+        if (next == null) {
+            return ResponseEntity.ok(items);
+        }
+
+        String nextPage = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after", next)
+                .replaceQueryParam("limit", limit)
+                .toUriString();
+
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, String.valueOf(next))
+                .header(HttpHeaders.LINK, "<" + nextPage + ">; rel=\"next\"")
+                .body(items);
+    }
+}
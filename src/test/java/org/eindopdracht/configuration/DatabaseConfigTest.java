@@ -1,13 +1,18 @@
 package org.eindopdracht.configuration;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import liquibase.integration.spring.SpringLiquibase;
+import org.eindopdracht.database.CircuitBreaker;
+import org.eindopdracht.database.PoolMetrics;
+import org.eindopdracht.database.SqlMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.http.MediaType;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -17,6 +22,7 @@ import org.springframework.web.servlet.config.annotation.ContentNegotiationConfi
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import javax.cache.CacheManager;
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
 import java.util.Properties;
@@ -32,20 +38,22 @@ public class DatabaseConfigTest implements WebMvcConfigurer {
     }
 
     @Bean
-    public DataSource dataSource() {
-        DriverManagerDataSource ds = new DriverManagerDataSource();
-        ds.setDriverClassName("org.h2.Driver");
-        ds.setUrl("jdbc:h2:mem:unit-testing-jpa;DB_CLOSE_DELAY=-1;MODE=MySQL");
-
-        ds.setUsername("test");
-        ds.setPassword("test");
-        return ds;
+    public DataSource dataSource(PoolMetrics poolMetrics, SqlMetrics sqlMetrics, CircuitBreaker circuitBreaker) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("dashboard");
+        config.setDriverClassName("org.h2.Driver");
+        config.setJdbcUrl("jdbc:h2:mem:unit-testing-jpa;DB_CLOSE_DELAY=-1;MODE=MySQL");
+
+        config.setUsername("test");
+        config.setPassword("test");
+        config.setMaximumPoolSize(4);
+        config.setMetricsTrackerFactory(poolMetrics);
+        return sqlMetrics.wrap(circuitBreaker.wrap(new HikariDataSource(config)));
     }
 
     @Bean
-    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource) {
+    public LocalContainerEntityManagerFactoryBean entityManagerFactory(DataSource dataSource, CacheManager hibernateCacheManager) {
         final HibernateJpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
-        vendorAdapter.setShowSql(true);
         vendorAdapter.setGenerateDdl(true);
 
         final LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
@@ -54,6 +62,7 @@ public class DatabaseConfigTest implements WebMvcConfigurer {
         em.setDataSource(dataSource);
         em.setPersistenceUnitName("EmFactory");
         em.setJpaProperties(additionalProperties());
+        em.getJpaPropertyMap().put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
 
         return em;
     }
@@ -69,6 +78,22 @@ public class DatabaseConfigTest implements WebMvcConfigurer {
         Properties properties = new Properties();
         properties.setProperty("hibernate.hbm2ddl.auto", "none");
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+
+        // Second-level and query cache for the reference tables, the regions come from hibernateCacheManager
+        properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+        properties.setProperty("hibernate.cache.use_query_cache", "true");
+        properties.setProperty("hibernate.cache.region.factory_class", "jcache");
+        properties.setProperty("hibernate.javax.cache.missing_cache_strategy", "fail");
+        properties.setProperty("hibernate.generate_statistics", "true");
+
+        // Group inserts and updates per table. Only the bulk repositories send them in JDBC batches, they switch
+        // it on for their session: a batch of one row is slower than a plain insert
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+
+        // Hold the connection until the session closes at the end of the transaction. Spring marks the connection
+        // of a read-only transaction read-only and resets it afterwards, which needs the session to still hold it.
+        properties.setProperty("hibernate.connection.handling_mode", "DELAYED_ACQUISITION_AND_HOLD");
         return properties;
     }
 
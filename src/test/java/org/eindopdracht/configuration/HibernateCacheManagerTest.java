@@ -0,0 +1,34 @@
+package org.eindopdracht.configuration;
+
+import org.ehcache.Cache;
+import org.ehcache.config.ResourceType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.cache.CacheManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HibernateCacheManagerTest {
+    @Test
+    void regionWithoutItsOwnSizeTakesTheGlobalOne() {
+        DatabaseConfig config = new DatabaseConfig();
+        ReflectionTestUtils.setField(config, "cacheHeapEntries", 500L);
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("database.cache.globalSettings.heapEntries", "10")
+                .withProperty("database.cache.default-update-timestamps-region.heapEntries", "50");
+
+        try (CacheManager cacheManager = config.hibernateCacheManager(environment)) {
+            assertEquals(10, heapEntries(cacheManager, "globalSettings"));
+            assertEquals(50, heapEntries(cacheManager, "default-update-timestamps-region"));
+            assertEquals(500, heapEntries(cacheManager, "contentType"));
+            assertEquals(500, heapEntries(cacheManager, "globalSettings.queries"));
+        }
+    }
+
+    private static long heapEntries(CacheManager cacheManager, String region) {
+        return cacheManager.getCache(region).unwrap(Cache.class).getRuntimeConfiguration()
+                .getResourcePools().getPoolForResource(ResourceType.Core.HEAP).getSize();
+    }
+}
@@ -0,0 +1,44 @@
+package org.eindopdracht.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringJUnitWebConfig(classes = DatabaseConfigTest.class)
+@ActiveProfiles("lazy")
+@Transactional
+class LazyInitConfigTest {
+    @Autowired
+    private WebApplicationContext webContext;
+
+    @Test
+    void controllersAreCreatedOnFirstRequest() throws Exception {
+        ConfigurableListableBeanFactory beanFactory = ((ConfigurableApplicationContext) webContext).getBeanFactory();
+        assertTrue(beanFactory.getBeanDefinition("roleController").isLazyInit());
+        assertTrue(beanFactory.getBeanDefinition("roleMapperComponent").isLazyInit());
+        assertFalse(beanFactory.containsSingleton("roleController"));
+        // Scheduling is set up when the bean is created
+        assertFalse(beanFactory.getBeanDefinition("retentionJob").isLazyInit());
+        assertEquals("false", webContext.getEnvironment().getProperty("springfox.documentation.auto-startup"));
+
+        MockMvcBuilders.webAppContextSetup(webContext).build()
+                .perform(get("/roles/1").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1));
+        assertTrue(beanFactory.containsSingleton("roleController"));
+    }
+}
@@ -0,0 +1,64 @@
+package org.eindopdracht.configuration;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Time from creating the context until the first request was answered, with and without the lazy profile.
+ * Every start creates a new context on the database of the other tests, the first start of each kind only warms
+ * up the JVM. The best of a few rounds evens out the noise of a shared machine.
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class StartupBenchmarkTest {
+    private static final int ROUNDS = 5;
+
+    @Test
+    void lazyProfileAnswersTheFirstRequestSooner() throws Exception {
+        start(false);
+        start(true);
+
+        StartupProfiler eager = null;
+        StartupProfiler lazy = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            eager = faster(eager, start(false));
+            lazy = faster(lazy, start(true));
+        }
+
+        System.out.printf("first request: eager %d ms (refresh %d ms), lazy %d ms (refresh %d ms), best of %d rounds%n",
+                eager.getFirstRequestMillis(), eager.getRefreshMillis(),
+                lazy.getFirstRequestMillis(), lazy.getRefreshMillis(), ROUNDS);
+        assertTrue(lazy.getFirstRequestMillis() < eager.getFirstRequestMillis());
+    }
+
+    private static StartupProfiler faster(StartupProfiler best, StartupProfiler profiler) {
+        return best == null || profiler.getFirstRequestMillis() < best.getFirstRequestMillis() ? profiler : best;
+    }
+
+    private static StartupProfiler start(boolean lazy) throws Exception {
+        StartupProfiler profiler = new StartupProfiler();
+        try (AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext()) {
+            context.setApplicationStartup(profiler);
+            context.setServletContext(new MockServletContext());
+            if (lazy) {
+                context.getEnvironment().setActiveProfiles("lazy");
+            }
+            context.register(DatabaseConfigTest.class);
+            context.refresh();
+
+            MockMvcBuilders.webAppContextSetup(context).build()
+                    .perform(get("/roles/1").contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+            profiler.requestHandled();
+        }
+        return profiler;
+    }
+}
@@ -0,0 +1,57 @@
+package org.eindopdracht.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StartupProfilerTest {
+    @Test
+    void recordsPhasesAndBeans() {
+        StartupProfiler profiler = new StartupProfiler();
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.setApplicationStartup(profiler);
+            context.register(SlowConfig.class);
+            assertEquals(-1, profiler.getRefreshMillis());
+            context.refresh();
+        }
+
+        assertTrue(profiler.getRefreshMillis() >= 150);
+        assertTrue(profiler.getPhases().get("spring.context.refresh") >= 150);
+        // The time of a bean leaves out its dependencies
+        assertTrue(profiler.getBeans(10).get("slow") >= 100);
+        assertTrue(profiler.getBeans(10).get("dependent") < 100);
+        assertTrue(profiler.getBeans(10).get("dependent") >= 50);
+        assertEquals("slow", profiler.getBeans(1).keySet().iterator().next());
+    }
+
+    @Test
+    void firstRequest() {
+        StartupProfiler profiler = new StartupProfiler();
+        assertEquals(-1, profiler.getFirstRequestMillis());
+
+        profiler.requestHandled();
+        long firstRequest = profiler.getFirstRequestMillis();
+        assertTrue(firstRequest >= 0);
+        profiler.requestHandled();
+        assertEquals(firstRequest, profiler.getFirstRequestMillis());
+    }
+
+    @Configuration
+    static class SlowConfig {
+        @Bean
+        public String slow() throws InterruptedException {
+            Thread.sleep(100);
+            return "slow";
+        }
+
+        @Bean
+        public Integer dependent(String slow) throws InterruptedException {
+            Thread.sleep(50);
+            return slow.length();
+        }
+    }
+}
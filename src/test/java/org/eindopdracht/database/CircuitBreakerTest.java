@@ -0,0 +1,117 @@
+package org.eindopdracht.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+    private DownDataSource database;
+    private CircuitBreaker circuitBreaker;
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void setup() {
+        database = new DownDataSource();
+        circuitBreaker = new CircuitBreaker();
+        ReflectionTestUtils.setField(circuitBreaker, "failureThreshold", 3);
+        dataSource = circuitBreaker.wrap(database);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.down = false;
+        new JdbcTemplate(database).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void opensAfterFailuresInARow() {
+        database.down = true;
+        for (int i = 0; i < 3; i++) {
+            assertFalse(circuitBreaker.isOpen());
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        }
+
+        assertTrue(circuitBreaker.isOpen());
+        assertEquals(3, database.attempts);
+
+        // Fails fast without asking the database
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(3, database.attempts);
+    }
+
+    @Test
+    void successResetsFailures() throws SQLException {
+        database.down = true;
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+
+        database.down = false;
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject("SELECT 1", Integer.class));
+
+        database.down = true;
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    void statementErrorsDontCount() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (int i = 0; i < 5; i++) {
+                assertThrows(SQLException.class, () -> connection.prepareStatement("SELEC 1").execute());
+            }
+        }
+
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    void probeClosesWhenDatabaseIsBack() {
+        database.down = true;
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        }
+
+        circuitBreaker.probe();
+        assertTrue(circuitBreaker.isOpen());
+
+        database.down = false;
+        circuitBreaker.probe();
+        assertFalse(circuitBreaker.isOpen());
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject("SELECT 1", Integer.class));
+    }
+
+    /**
+     * H2 database that refuses connections while down, like a pool that timed out.
+     */
+    private static class DownDataSource extends DriverManagerDataSource {
+        private boolean down;
+        private int attempts;
+
+        DownDataSource() {
+            super("jdbc:h2:mem:circuit-breaker;DB_CLOSE_DELAY=-1");
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                attempts++;
+                throw new SQLTransientConnectionException("Connection is not available, request timed out");
+            }
+            return super.getConnection();
+        }
+    }
+}
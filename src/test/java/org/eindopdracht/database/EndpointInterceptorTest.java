@@ -0,0 +1,38 @@
+package org.eindopdracht.database;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EndpointInterceptorTest {
+    private final EndpointInterceptor interceptor = new EndpointInterceptor(0);
+
+    @Test
+    void endpointOfTheMappedPattern() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/event/5");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/event/{id}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, null);
+        assertEquals("GET /event/{id}", EndpointInterceptor.current());
+
+        interceptor.afterCompletion(request, response, null, null);
+        assertNull(EndpointInterceptor.current());
+    }
+
+    @Test
+    void asyncRequestLeavesItsThreadClean() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/stream");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, null);
+        // The thread goes back to the pool, afterCompletion runs on the thread of the async dispatch
+        interceptor.afterConcurrentHandlingStarted(request, response, null);
+
+        assertNull(EndpointInterceptor.current());
+    }
+}
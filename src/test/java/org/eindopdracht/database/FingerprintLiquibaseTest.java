@@ -0,0 +1,109 @@
+package org.eindopdracht.database;
+
+import liquibase.exception.LiquibaseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FingerprintLiquibaseTest {
+    private final DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:fingerprint;MODE=MySQL;DB_CLOSE_DELAY=-1");
+
+    @AfterEach
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void skipsUnchangedChangelog() throws LiquibaseException {
+        FingerprintLiquibase first = run(true);
+        assertFalse(first.isSkipped());
+        assertEquals(first.fingerprint(), new JdbcTemplate(dataSource).queryForObject(
+                "SELECT fingerprint FROM changelogFingerprint WHERE id = 1", String.class));
+
+        assertTrue(run(true).isSkipped());
+    }
+
+    @Test
+    void runsChangedChangelog() throws LiquibaseException {
+        run(true);
+        new JdbcTemplate(dataSource).update("UPDATE changelogFingerprint SET fingerprint = 'old'");
+
+        assertFalse(run(true).isSkipped());
+        assertTrue(run(true).isSkipped());
+    }
+
+    @Test
+    void fingerprintDisabled() throws LiquibaseException {
+        run(true);
+
+        assertFalse(run(false).isSkipped());
+    }
+
+    @Test
+    void skipsUnchangedProductionChangelog() throws LiquibaseException {
+        assertFalse(run("classpath:changelog_master.xml", true).isSkipped());
+        assertTrue(run("classpath:changelog_master.xml", true).isSkipped());
+    }
+
+    @Test
+    void fingerprintCoversIncludedFiles(@TempDir Path dir) throws IOException {
+        write(dir.resolve("master.xml"), "<include file=\"child.xml\" relativeToChangelogFile=\"true\"/>");
+        write(dir.resolve("child.xml"), "<changeSet id=\"1\" author=\"test\"><sqlFile path=\"data.sql\" relativeToChangelogFile=\"true\"/></changeSet>");
+        Files.write(dir.resolve("data.sql"), "SELECT 1;".getBytes(StandardCharsets.UTF_8));
+        FingerprintLiquibase liquibase = changelog(dir.resolve("master.xml").toUri().toString());
+
+        String before = liquibase.fingerprint();
+        Files.write(dir.resolve("data.sql"), "SELECT 2;".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(before, liquibase.fingerprint());
+
+        String beforeChild = liquibase.fingerprint();
+        write(dir.resolve("child.xml"), "<changeSet id=\"2\" author=\"test\"/>");
+        assertNotEquals(beforeChild, liquibase.fingerprint());
+    }
+
+    @Test
+    void includeAllFails(@TempDir Path dir) throws IOException {
+        write(dir.resolve("master.xml"), "<includeAll path=\"changes/\" relativeToChangelogFile=\"true\"/>");
+
+        assertThrows(IllegalStateException.class, () -> changelog(dir.resolve("master.xml").toUri().toString()).fingerprint());
+    }
+
+    private FingerprintLiquibase run(boolean fingerprintEnabled) throws LiquibaseException {
+        return run("classpath:test_master.xml", fingerprintEnabled);
+    }
+
+    private FingerprintLiquibase run(String changeLog, boolean fingerprintEnabled) throws LiquibaseException {
+        FingerprintLiquibase liquibase = changelog(changeLog);
+        liquibase.setDataSource(dataSource);
+        liquibase.setFingerprintEnabled(fingerprintEnabled);
+        liquibase.afterPropertiesSet();
+        return liquibase;
+    }
+
+    private static FingerprintLiquibase changelog(String changeLog) {
+        FingerprintLiquibase liquibase = new FingerprintLiquibase();
+        liquibase.setChangeLog(changeLog);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        return liquibase;
+    }
+
+    private static void write(Path file, String body) throws IOException {
+        Files.write(file, ("<databaseChangeLog xmlns=\"http://www.liquibase.org/xml/ns/dbchangelog\">" + body + "</databaseChangeLog>")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+}
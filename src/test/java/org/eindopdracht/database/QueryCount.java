@@ -0,0 +1,28 @@
+package org.eindopdracht.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Assertions on the number of SQL statements the current thread ran.
+ * MockMvc requests run on the test thread and reset the count themselves, so after a perform the count
+ * holds the statements of that request. Call {@link #reset()} before code that isn't a request.
+ * Statements Hibernate only sends on flush, like inserts, are counted once they're flushed.
+ */
+public final class QueryCount {
+    private QueryCount() {
+    }
+
+    public static void reset() {
+        StatementCounter.reset();
+    }
+
+    public static void assertQueryCount(int expected) {
+        assertEquals(expected, StatementCounter.getStatements(), "number of SQL statements");
+    }
+
+    public static void assertMaxQueryCount(int max) {
+        int statements = StatementCounter.getStatements();
+        assertTrue(statements <= max, "expected at most " + max + " SQL statements, but ran " + statements);
+    }
+}
@@ -0,0 +1,108 @@
+package org.eindopdracht.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaRoutingDataSourceTest {
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setup() {
+        primary = createDatabase("routing-primary");
+        replica = createDatabase("routing-replica");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new JdbcTemplate(primary).execute("DROP ALL OBJECTS");
+        new JdbcTemplate(replica).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() {
+        routingDataSource = createRouting(replicas(replica), null);
+
+        assertEquals("routing-replica", select(true));
+        assertEquals("routing-primary", select(false));
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        new JdbcTemplate(replica).execute("CREATE TABLE lag (seconds INT)");
+        new JdbcTemplate(replica).execute("INSERT INTO lag VALUES (2)");
+        routingDataSource = createRouting(replicas(replica), "SELECT seconds FROM lag");
+
+        assertEquals("routing-replica", select(true));
+
+        new JdbcTemplate(replica).execute("UPDATE lag SET seconds = 60");
+        routingDataSource.checkHealth();
+
+        assertFalse(routingDataSource.getTargets().get(1).isHealthy());
+        assertEquals(60, routingDataSource.getTargets().get(1).getLagSeconds());
+        assertEquals("routing-primary", select(true));
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToPrimary() {
+        DataSource unreachable = new DriverManagerDataSource("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE", "test", "test");
+        routingDataSource = createRouting(replicas(unreachable), null);
+
+        assertFalse(routingDataSource.getTargets().get(1).isHealthy());
+        assertTrue(routingDataSource.getTargets().get(0).isHealthy());
+        assertEquals("routing-primary", select(true));
+    }
+
+    @Test
+    void readsAreSpreadOverHealthyReplicas() {
+        DataSource second = createDatabase("routing-second");
+        routingDataSource = createRouting(replicas(replica, second), null);
+
+        assertEquals("routing-replica", select(true));
+        assertEquals("routing-second", select(true));
+        assertEquals("routing-replica", select(true));
+
+        new JdbcTemplate(second).execute("DROP ALL OBJECTS");
+    }
+
+    private String select(boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(routingDataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(routingDataSource).queryForObject("SELECT name FROM origin", String.class));
+    }
+
+    private ReplicaRoutingDataSource createRouting(Map<String, DataSource> replicas, String lagQuery) {
+        return new ReplicaRoutingDataSource(primary, replicas, lagQuery, 5, 0);
+    }
+
+    private Map<String, DataSource> replicas(DataSource... dataSources) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (DataSource dataSource : dataSources) {
+            replicas.put("replica-" + (replicas.size() + 1), dataSource);
+        }
+        return replicas;
+    }
+
+    private DataSource createDatabase(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "test", "test");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE origin (name VARCHAR(50))");
+        jdbcTemplate.update("INSERT INTO origin VALUES (?)", name);
+        return dataSource;
+    }
+}
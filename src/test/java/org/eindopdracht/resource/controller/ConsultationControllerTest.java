@@ -10,6 +10,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
@@ -19,6 +20,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -110,4 +112,23 @@ class ConsultationControllerTest {
                 .andExpect(jsonPath("$.startDateTime").value("08-11-2021 00:00:00"))
                 .andExpect(jsonPath("$.endDateTime").value("08-12-2022 00:00:00"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void exportCsv() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/consultation/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("id,startDateTime,endDateTime,user_ids\r\n1,")));
+    }
+
+    @Test
+    void deleteAllEndedBefore() throws Exception {
+        // Only the second consultation ended before June 2022, its userConsultation row goes with it
+        mockMvc.perform(delete("/consultation").param("endedBefore", "01-06-2022 00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1));
+    }
+}
@@ -1,19 +1,28 @@
 package org.eindopdracht.resource.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.database.CircuitBreaker;
 import org.eindopdracht.resource.model.Content;
 import org.eindopdracht.resource.model.ContentType;
+import org.eindopdracht.resource.service.SnapshotService;
+import org.eindopdracht.util.Page;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.sql.DataSource;
+
+import static org.hamcrest.CoreMatchers.not;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -23,6 +32,15 @@ class ContentControllerTest {
     @Autowired
     private WebApplicationContext webContext;
 
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    @Autowired
+    private DataSource dataSource;
+
     private MockMvc mockMvc;
 
     @BeforeEach
@@ -86,4 +104,84 @@ class ContentControllerTest {
                 .andExpect(jsonPath("$.contentType.name").value("Text"))
                 .andExpect(jsonPath("$.path").value("Put Path"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFromSnapshotWhileDatabaseIsDown() throws Exception {
+        snapshotService.refresh();
+        ReflectionTestUtils.setField(circuitBreaker, "open", true);
+        try {
+            this.mockMvc.perform(get("/content?limit=1").contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.AGE))
+                    .andExpect(header().string(HttpHeaders.WARNING, SnapshotService.STALE_WARNING))
+                    .andExpect(header().string(Page.NEXT_CURSOR_HEADER, "1"))
+                    .andExpect(jsonPath("$.[0].path").value("Location Path"));
+        } finally {
+            ReflectionTestUtils.setField(circuitBreaker, "open", false);
+        }
+    }
+
+    @Test
+    void getWithoutSnapshotWhileDatabaseIsDown() throws Exception {
+        ReflectionTestUtils.setField(snapshotService, "snapshot", null);
+        ReflectionTestUtils.setField(circuitBreaker, "open", true);
+        try {
+            this.mockMvc.perform(get("/content").contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            ReflectionTestUtils.setField(circuitBreaker, "open", false);
+        }
+    }
+
+    @Test
+    void getNotModified() throws Exception {
+        String eTag = this.mockMvc.perform(get("/content").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(get("/content").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Another page has another tag
+        this.mockMvc.perform(get("/content?limit=1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    // The table version is bumped when the write commits, so this one has to commit and put the row back
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void getModifiedAfterPut() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        long lastChange = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM changeJournal", Long.class);
+        String eTag = this.mockMvc.perform(get("/content").contentType(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        ContentType contentType = new ContentType();
+        contentType.setName("Text");
+        contentType.setId(1);
+
+        Content content = new Content();
+        content.setContentType(contentType);
+        content.setPath("Put Path");
+
+        this.mockMvc.perform(put("/content/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(content)))
+                .andExpect(status().isOk());
+        try {
+            this.mockMvc.perform(get("/content").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                    .andExpect(jsonPath("$.[0].path").value("Put Path"));
+        } finally {
+            content.setPath("Location Path");
+            this.mockMvc.perform(put("/content/1")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(new ObjectMapper().writeValueAsString(content)))
+                    .andExpect(status().isOk());
+            jdbcTemplate.update("DELETE FROM changeJournal WHERE id > ?", lastChange);
+        }
+    }
+}
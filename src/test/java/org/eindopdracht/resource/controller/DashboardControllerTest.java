@@ -0,0 +1,120 @@
+package org.eindopdracht.resource.controller;
+
+import org.eindopdracht.database.CircuitBreaker;
+import org.eindopdracht.resource.service.DashboardService;
+import org.eindopdracht.resource.service.SnapshotService;
+import org.eindopdracht.resource.service.TableVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+@Transactional
+class DashboardControllerTest {
+    @Autowired
+    private WebApplicationContext webContext;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private TableVersions tableVersions;
+
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.webContext).build();
+        ReflectionTestUtils.setField(dashboardService, "payload", null);
+    }
+
+    @Test
+    void getAll() throws Exception {
+        this.mockMvc.perform(get("/dashboard"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.settings").isNotEmpty())
+                .andExpect(jsonPath("$.contentTypes").isNotEmpty())
+                .andExpect(jsonPath("$.content[0].path").value("Location Path"))
+                .andExpect(jsonPath("$.content[0].contentType.id").value(1))
+                .andExpect(jsonPath("$.powerpoints").isArray())
+                .andExpect(jsonPath("$.events").isArray())
+                .andExpect(jsonPath("$.rssFeeds").isArray())
+                .andExpect(jsonPath("$.schedules").isArray())
+                .andExpect(jsonPath("$.consultations").isArray())
+                .andExpect(jsonPath("$.truncated").isEmpty());
+    }
+
+    @Test
+    void getNotModified() throws Exception {
+        String eTag = this.mockMvc.perform(get("/dashboard"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        this.mockMvc.perform(get("/dashboard").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    // The bump has to reach the tableVersion row, inside the test transaction it would wait for a commit
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void rebuildAfterWrite() throws Exception {
+        String eTag = this.mockMvc.perform(get("/dashboard"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        Object payload = ReflectionTestUtils.getField(dashboardService, "payload");
+
+        this.mockMvc.perform(get("/dashboard")).andExpect(status().isOk());
+        assertSame(payload, ReflectionTestUtils.getField(dashboardService, "payload"));
+
+        tableVersions.bump(TableVersions.Table.CONTENT);
+        // Nothing committed changed, the rebuilt payload keeps its tag
+        this.mockMvc.perform(get("/dashboard").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        assertNotSame(payload, ReflectionTestUtils.getField(dashboardService, "payload"));
+    }
+
+    @Test
+    void getStaleWhileDatabaseIsDown() throws Exception {
+        this.mockMvc.perform(get("/dashboard")).andExpect(status().isOk());
+        ReflectionTestUtils.setField(circuitBreaker, "open", true);
+        try {
+            this.mockMvc.perform(get("/dashboard"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.AGE))
+                    .andExpect(header().string(HttpHeaders.WARNING, SnapshotService.STALE_WARNING))
+                    .andExpect(jsonPath("$.content[0].path").value("Location Path"));
+        } finally {
+            ReflectionTestUtils.setField(circuitBreaker, "open", false);
+        }
+    }
+
+    @Test
+    void getWithoutPayloadWhileDatabaseIsDown() throws Exception {
+        ReflectionTestUtils.setField(circuitBreaker, "open", true);
+        try {
+            this.mockMvc.perform(get("/dashboard"))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            ReflectionTestUtils.setField(circuitBreaker, "open", false);
+        }
+    }
+}
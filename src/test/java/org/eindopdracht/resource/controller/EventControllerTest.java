@@ -11,10 +11,13 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -42,6 +45,42 @@ class EventControllerTest {
                 .andExpect(jsonPath("$.[0].duration").value(2000));
     }
 
+    @Test
+    void getPage() throws Exception {
+        this.mockMvc.perform(get("/event?limit=1").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$.[0].id").value(1))
+                .andExpect(header().string("X-Next-Cursor", "1"))
+                .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/event?after=1&limit=1>; rel=\"next\""));
+
+        this.mockMvc.perform(get("/event?limit=1&after=1").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$.[0].id").value(2))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
+    @Test
+    void getBetween() throws Exception {
+        this.mockMvc.perform(get("/event/between")
+                        .param("from", "01-01-2022 00:00:00")
+                        .param("to", "02-01-2022 00:00:00")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$.[0].description").value("Test"));
+    }
+
+    @Test
+    void getBetweenReversed() throws Exception {
+        this.mockMvc.perform(get("/event/between")
+                        .param("from", "02-01-2022 00:00:00")
+                        .param("to", "01-01-2022 00:00:00")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getById() throws Exception {
         this.mockMvc.perform(get("/event/1").contentType(MediaType.APPLICATION_JSON))
@@ -112,4 +151,63 @@ class EventControllerTest {
                 .andExpect(jsonPath("$.description").value("Test"))
                 .andExpect(jsonPath("$.duration").value(2000L));
     }
-}
\ No newline at end of file
+
+    @Test
+    void exportNdjson() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/event/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"events.ndjson\""))
+                .andExpect(content().string(startsWith("{\"id\":1,")))
+                .andExpect(content().string(containsString("\"description\":\"Test\"")));
+    }
+
+    @Test
+    void exportCsv() throws Exception {
+        MvcResult result = this.mockMvc.perform(get("/event/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+                .andExpect(content().string(startsWith("id,user_id,content_id,content_path,description,startDateTime,endDateTime,duration\r\n1,")));
+    }
+
+    @Test
+    void exportUnknownFormat() throws Exception {
+        this.mockMvc.perform(get("/event/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void deleteAllByIds() throws Exception {
+        this.mockMvc.perform(delete("/event").param("ids", "1", "2", "2", "999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+    }
+
+    @Test
+    void deleteAllEndedBefore() throws Exception {
+        this.mockMvc.perform(delete("/event").param("endedBefore", "01-01-2020 00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(0));
+
+        this.mockMvc.perform(delete("/event").param("endedBefore", "01-01-2023 00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(2));
+    }
+
+    @Test
+    void deleteAllWithoutFilter() throws Exception {
+        this.mockMvc.perform(delete("/event"))
+                .andExpect(status().isBadRequest());
+
+        this.mockMvc.perform(delete("/event").param("ids", "1").param("endedBefore", "01-01-2023 00:00:00"))
+                .andExpect(status().isBadRequest());
+    }
+}
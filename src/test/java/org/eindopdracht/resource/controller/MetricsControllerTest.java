@@ -0,0 +1,111 @@
+package org.eindopdracht.resource.controller;
+
+import org.eindopdracht.database.StatementHeaderAdvice;
+import org.eindopdracht.resource.service.DashboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.hamcrest.CoreMatchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+@TestPropertySource(properties = "database.statementBudget.headers=true")
+@Transactional
+class MetricsControllerTest {
+    @Autowired
+    private WebApplicationContext webContext;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.webContext).build();
+    }
+
+    @Test
+    void getPoolMetrics() throws Exception {
+        this.mockMvc.perform(get("/metrics/pool").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(jsonPath("$.poolName").value("dashboard"))
+                .andExpect(jsonPath("$.maxConnections").value(4))
+                .andExpect(jsonPath("$.activeConnections").isNumber())
+                .andExpect(jsonPath("$.waitTime.p99Millis").isNumber())
+                .andExpect(jsonPath("$.timeouts").value(0));
+    }
+
+    @Test
+    void getReplicas() throws Exception {
+        this.mockMvc.perform(get("/metrics/replicas").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void getCacheRegions() throws Exception {
+        this.mockMvc.perform(get("/contenttype").contentType(MediaType.APPLICATION_JSON));
+
+        this.mockMvc.perform(get("/metrics/cache").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.region == 'contentType')].hits").exists())
+                .andExpect(jsonPath("$[?(@.region == 'contentType.queries')].misses").exists());
+    }
+
+    @Test
+    void getStatements() throws Exception {
+        this.mockMvc.perform(get("/event").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(get("/metrics/sql").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].latency.count").isNumber())
+                .andExpect(jsonPath("$[?(@.sql =~ /select .* from event .*/)].endpoints['GET /event']").exists());
+    }
+
+    @Test
+    void statementHeaders() throws Exception {
+        // The first request also fills the second-level cache
+        this.mockMvc.perform(get("/event").contentType(MediaType.APPLICATION_JSON));
+
+        this.mockMvc.perform(get("/event").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(StatementHeaderAdvice.STATEMENTS_HEADER, "1"))
+                .andExpect(header().exists(StatementHeaderAdvice.MILLIS_HEADER));
+    }
+
+    @Test
+    void dashboardStatementsAreCounted() throws Exception {
+        // The sections are read on the dashboard threads
+        ReflectionTestUtils.setField(dashboardService, "payload", null);
+        this.mockMvc.perform(get("/dashboard"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(StatementHeaderAdvice.STATEMENTS_HEADER, not("0")));
+
+        this.mockMvc.perform(get("/metrics/sql").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.sql =~ /select .* from event .*/)].endpoints['GET /dashboard']").exists());
+    }
+
+    @Test
+    void getStartupOutsideDeployment() throws Exception {
+        // The test context isn't profiled, only the deployed one is
+        this.mockMvc.perform(get("/metrics/startup").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refreshMillis").value(-1))
+                .andExpect(jsonPath("$.beans").isEmpty());
+    }
+}
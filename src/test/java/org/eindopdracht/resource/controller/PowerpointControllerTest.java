@@ -78,4 +78,32 @@ public class PowerpointControllerTest {
                 .andExpect(jsonPath("$.path").value("test"));
 
     }
+
+    @Test
+    public void testPutPowerpointIfMatch() throws Exception {
+        Powerpoint pp = new Powerpoint();
+        User user = new User();
+
+        user.setId(1);
+        pp.setUser(user);
+        pp.setPath("test");
+        String content = new ObjectMapper().writeValueAsString(pp);
+
+        mockMvc.perform(put("/powerpoint/1")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(content)
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.path").value("test"))
+                // The stored row is returned, the request only carried the id of the user
+                .andExpect(jsonPath("$.user.name").value("Madlyaza"));
+
+        mockMvc.perform(put("/powerpoint/1")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(content)
+                        .contentType("application/json"))
+                .andExpect(status().isPreconditionFailed());
+    }
 }
@@ -80,4 +80,57 @@ public class RoleControllerTest {
                 .andExpect(jsonPath("$.role").value("test"));
 
     }
+
+    @Test
+    public void testPutRoleIfMatch() throws Exception {
+        Role role = new Role();
+        role.setRole("test");
+        String content = new ObjectMapper().writeValueAsString(role);
+
+        mockMvc.perform(get("/roles/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        mockMvc.perform(put("/roles/1")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(content)
+                        .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.role").value("test"))
+                .andExpect(jsonPath("$.version").value(1));
+
+        // The first put changed the version, the same ETag is stale now
+        mockMvc.perform(put("/roles/1")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(content)
+                        .contentType("application/json"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testPutRoleIfMatchUnknown() throws Exception {
+        Role role = new Role();
+        role.setRole("test");
+
+        // Only a role that exists can have another version
+        mockMvc.perform(put("/roles/999")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(new ObjectMapper().writeValueAsString(role))
+                        .contentType("application/json"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testPutRoleInvalidIfMatch() throws Exception {
+        Role role = new Role();
+        role.setRole("test");
+
+        mockMvc.perform(put("/roles/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+                        .content(new ObjectMapper().writeValueAsString(role))
+                        .contentType("application/json"))
+                .andExpect(status().isBadRequest());
+    }
 }
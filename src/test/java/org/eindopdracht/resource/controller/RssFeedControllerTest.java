@@ -42,6 +42,8 @@ public class RssFeedControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.[0].link").value("test"))
                 .andExpect(jsonPath("$.[0].startDateTime").value("08-12-2021 00:00:00"))
+                .andExpect(jsonPath("$.[0].user.id").value(1))
+                .andExpect(jsonPath("$.[0].user.name").value("Madlyaza"))
                 .andExpect(jsonPath("$.[1].link").value("test2"));
     }
 
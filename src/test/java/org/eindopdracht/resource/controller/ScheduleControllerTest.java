@@ -65,10 +65,10 @@ public class ScheduleControllerTest {
     public void getSchedulesTest() throws Exception {
         this.mockMvc.perform(get("/schedule").contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.[1].title").value("Mooie titel post"))
-                .andExpect(jsonPath("$.[1].description").value("Mooie beschrijving post"))
-                .andExpect(jsonPath("$.[1].startDateTime").value("08-12-2022 00:00:00"))
-                .andExpect(jsonPath("$.[1].endDateTime").value("08-12-2022 00:00:00"))
+                .andExpect(jsonPath("$.[0].title").value("Mooie titel post"))
+                .andExpect(jsonPath("$.[0].description").value("Mooie beschrijving post"))
+                .andExpect(jsonPath("$.[0].startDateTime").value("08-12-2022 00:00:00"))
+                .andExpect(jsonPath("$.[0].endDateTime").value("08-12-2022 00:00:00"))
                 .andReturn();
     }
 
@@ -127,4 +127,47 @@ public class ScheduleControllerTest {
                 .andExpect(jsonPath("$.endDateTime").value("10-01-2022 15:50:10"))
                 .andReturn();
     }
+
+    @Test
+    public void postBatchTest() throws Exception {
+        List<Schedule> schedules = Arrays.asList(createSchedule("Batch titel 1"), createSchedule("Batch titel 2"));
+
+        mockMvc.perform(post("/schedule/batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(schedules)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$.[0].status").value("created"))
+                .andExpect(jsonPath("$.[0].id").isNumber())
+                .andExpect(jsonPath("$.[1].index").value(1))
+                .andExpect(jsonPath("$.[1].status").value("created"))
+                .andReturn();
+    }
+
+    @Test
+    public void postInvalidBatchTest() throws Exception {
+        List<Schedule> schedules = Arrays.asList(createSchedule("Batch titel 1"), createSchedule(""));
+
+        mockMvc.perform(post("/schedule/batch")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(schedules)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.[0].status").value("skipped"))
+                .andExpect(jsonPath("$.[1].status").value("invalid"))
+                .andExpect(jsonPath("$.[1].errors[0]").value("title must not be blank"))
+                .andReturn();
+    }
+
+    private Schedule createSchedule(String title) throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
+
+        Schedule schedule = new Schedule();
+        schedule.setTitle(title);
+        schedule.setDescription("Mooie beschrijving batch");
+        schedule.setStartDateTime(sdf.parse("10-01-2022 15:40:10"));
+        schedule.setEndDateTime(sdf.parse("10-01-2022 15:50:10"));
+        return schedule;
+    }
 }
@@ -0,0 +1,240 @@
+package org.eindopdracht.resource.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.resource.model.Content;
+import org.eindopdracht.resource.model.ContentType;
+import org.eindopdracht.resource.service.ScreenBroadcaster;
+import org.eindopdracht.resource.service.StreamService;
+import org.eindopdracht.resource.service.SyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+@Transactional
+class ScreenSocketHandlerTest {
+    @Autowired
+    private WebApplicationContext webContext;
+
+    @Autowired
+    private ScreenSocketHandler screenSocketHandler;
+
+    @Autowired
+    private ScreenBroadcaster screenBroadcaster;
+
+    @Autowired
+    private StreamService streamService;
+
+    @Autowired
+    private SyncService syncService;
+
+    private final List<StubWebSocketSession> sessions = new ArrayList<>();
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.webContext).build();
+        // The changes of a test are written just before it polls
+        ReflectionTestUtils.setField(syncService, "lagMillis", -1000L);
+        ReflectionTestUtils.setField(streamService, "cursor", -1L);
+        streamService.poll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReflectionTestUtils.setField(syncService, "lagMillis", 2000L);
+        ReflectionTestUtils.setField(screenBroadcaster, "maxPendingIds", 100);
+        ReflectionTestUtils.setField(screenBroadcaster, "sendTimeLimitMillis", 10000);
+        ReflectionTestUtils.setField(screenBroadcaster, "maxTopics", 20);
+        for (StubWebSocketSession session : sessions) {
+            screenSocketHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+    }
+
+    @Test
+    void contentByType() throws Exception {
+        StubWebSocketSession text = connect("text", "{\"type\": \"subscribe\", \"topics\": [\"content/1\"]}");
+        StubWebSocketSession other = connect("other", "{\"type\": \"subscribe\", \"topics\": [\"content/2\", \"settings\"]}");
+
+        putContent();
+        streamService.poll();
+
+        await(() -> text.getMessages().size() == 1);
+        assertTrue(text.getLastMessage().contains("\"topic\":\"content/1\""), text.getLastMessage());
+        assertTrue(text.getLastMessage().contains("\"upserted\":[1]"), text.getLastMessage());
+        assertTrue(other.getMessages().isEmpty());
+    }
+
+    @Test
+    void ackShowsInMetrics() throws Exception {
+        connect("lobby", "{\"type\": \"subscribe\", \"topics\": [\"events\"]}",
+                "{\"type\": \"ack\", \"token\": \"5.1000\"}");
+
+        this.mockMvc.perform(get("/metrics/screens"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].screen").value("lobby"))
+                .andExpect(jsonPath("$[0].topics[0]").value("events"))
+                .andExpect(jsonPath("$[0].ackedToken").value("5.1000"));
+    }
+
+    @Test
+    void coalesceWhileSending() throws Exception {
+        StubWebSocketSession session = connect("slow", "{\"type\": \"subscribe\", \"topics\": [\"settings\"]}");
+        CountDownLatch slow = new CountDownLatch(1);
+        session.setSlow(slow);
+
+        screenBroadcaster.publish(ScreenBroadcaster.SETTINGS, "1.0", Arrays.asList(1), null);
+        awaitSending("slow");
+        screenBroadcaster.publish(ScreenBroadcaster.SETTINGS, "2.0", Arrays.asList(2), null);
+        screenBroadcaster.publish(ScreenBroadcaster.SETTINGS, "3.0", null, Arrays.asList(1, 3));
+        slow.countDown();
+
+        await(() -> session.getMessages().size() == 2);
+        assertTrue(session.getLastMessage().contains("\"token\":\"3.0\""), session.getLastMessage());
+        assertTrue(session.getLastMessage().contains("\"upserted\":[2],\"deleted\":[1,3]"), session.getLastMessage());
+    }
+
+    @Test
+    void resyncWhenTooFarBehind() throws Exception {
+        ReflectionTestUtils.setField(screenBroadcaster, "maxPendingIds", 2);
+        StubWebSocketSession session = connect("behind", "{\"type\": \"subscribe\", \"topics\": [\"rss\"]}");
+        CountDownLatch slow = new CountDownLatch(1);
+        session.setSlow(slow);
+
+        screenBroadcaster.publish(ScreenBroadcaster.RSS, "1.0", Arrays.asList(1), null);
+        awaitSending("behind");
+        for (int id = 2; id <= 4; id++) {
+            screenBroadcaster.publish(ScreenBroadcaster.RSS, id + ".0", Arrays.asList(id), null);
+        }
+        slow.countDown();
+
+        await(() -> session.getMessages().size() == 2);
+        assertTrue(session.getLastMessage().contains("\"upserted\":[],\"deleted\":[],\"resync\":true"), session.getLastMessage());
+    }
+
+    @Test
+    void closeStalled() throws Exception {
+        StubWebSocketSession session = connect("stalled", "{\"type\": \"subscribe\", \"topics\": [\"events\"]}");
+        CountDownLatch slow = new CountDownLatch(1);
+        session.setSlow(slow);
+        try {
+            screenBroadcaster.publish(ScreenBroadcaster.EVENTS, "1.0", Arrays.asList(1), null);
+            awaitSending("stalled");
+            screenBroadcaster.closeStalled();
+            assertTrue(session.isOpen());
+
+            ReflectionTestUtils.setField(screenBroadcaster, "sendTimeLimitMillis", 0);
+            // Until the socket thread is inside the send
+            await(() -> {
+                screenBroadcaster.closeStalled();
+                return !session.isOpen();
+            });
+            assertEquals(CloseStatus.SESSION_NOT_RELIABLE, session.getCloseStatus());
+            assertTrue(screenBroadcaster.getSessions().stream().noneMatch(dto -> "stalled".equals(dto.getScreen())));
+        } finally {
+            slow.countDown();
+        }
+    }
+
+    @Test
+    void unknownTopic() throws Exception {
+        StubWebSocketSession session = connect("wrong", "{\"type\": \"subscribe\", \"topics\": [\"users\"]}");
+
+        assertEquals(CloseStatus.BAD_DATA.getCode(), session.getCloseStatus().getCode());
+    }
+
+    @Test
+    void subscriptionOverTheCap() throws Exception {
+        ReflectionTestUtils.setField(screenBroadcaster, "maxTopics", 2);
+
+        StubWebSocketSession within = connect("within", "{\"type\": \"subscribe\", \"topics\": [\"settings\", \"content/1\"]}",
+                "{\"type\": \"subscribe\", \"topics\": [\"settings\"]}");
+        StubWebSocketSession over = connect("over", "{\"type\": \"subscribe\", \"topics\": [\"settings\", \"content/1\"]}",
+                "{\"type\": \"subscribe\", \"topics\": [\"events\"]}");
+
+        assertNull(within.getCloseStatus());
+        assertEquals(CloseStatus.BAD_DATA.getCode(), over.getCloseStatus().getCode());
+        assertEquals(1, screenBroadcaster.getSessions().size());
+    }
+
+    @Test
+    void unknownContentType() throws Exception {
+        StubWebSocketSession session = connect("wrong", "{\"type\": \"subscribe\", \"topics\": [\"content/999\"]}");
+
+        assertEquals(CloseStatus.BAD_DATA.getCode(), session.getCloseStatus().getCode());
+        assertTrue(screenBroadcaster.getSessions().isEmpty());
+    }
+
+    @Test
+    void malformedCommand() throws Exception {
+        StubWebSocketSession session = connect("wrong", "subscribe");
+
+        assertEquals(CloseStatus.BAD_DATA.getCode(), session.getCloseStatus().getCode());
+    }
+
+    private StubWebSocketSession connect(String screen, String... commands) throws Exception {
+        StubWebSocketSession session = new StubWebSocketSession(screen + "-" + sessions.size(), screen);
+        sessions.add(session);
+        screenSocketHandler.afterConnectionEstablished(session);
+        for (String command : commands) {
+            screenSocketHandler.handleMessage(session, new TextMessage(command));
+        }
+        return session;
+    }
+
+    private void putContent() throws Exception {
+        ContentType contentType = new ContentType();
+        contentType.setName("Text");
+        contentType.setId(1);
+        Content content = new Content();
+        content.setContentType(contentType);
+        content.setPath("Pushed Path");
+        this.mockMvc.perform(put("/content/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(content)))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Wait until a socket thread took the first message, the next ones queue up behind it.
+     */
+    private void awaitSending(String screen) throws InterruptedException {
+        await(() -> screenBroadcaster.getSessions().stream()
+                .anyMatch(session -> screen.equals(session.getScreen()) && session.getPending() == 0));
+    }
+
+    /**
+     * The messages are written by the socket threads.
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
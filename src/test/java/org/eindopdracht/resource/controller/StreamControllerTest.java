@@ -0,0 +1,198 @@
+package org.eindopdracht.resource.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.eindopdracht.resource.model.Content;
+import org.eindopdracht.resource.model.ContentType;
+import org.eindopdracht.resource.repository.ChangeJournal;
+import org.eindopdracht.resource.service.StreamService;
+import org.eindopdracht.resource.service.SyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+@Transactional
+class StreamControllerTest {
+    @Autowired
+    private WebApplicationContext webContext;
+
+    @Autowired
+    private StreamService streamService;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private ChangeJournal changeJournal;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.webContext).build();
+        // The changes of a test are written just before it polls
+        ReflectionTestUtils.setField(syncService, "lagMillis", -1000L);
+        ReflectionTestUtils.setField(streamService, "cursor", -1L);
+        // The streams of the other tests are never closed
+        ((Set<?>) ReflectionTestUtils.getField(streamService, "connections")).clear();
+        streamService.poll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReflectionTestUtils.setField(syncService, "lagMillis", 2000L);
+    }
+
+    @Test
+    void pushChange() throws Exception {
+        MockHttpServletResponse response = this.mockMvc.perform(get("/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        putContent();
+        streamService.poll();
+
+        String events = await(response, "event:change");
+        assertTrue(events.contains("\"upserted\":{\"content\":[1]"), events);
+    }
+
+    @Test
+    void resumeFromLastEventId() throws Exception {
+        String lastEventId = SyncService.token(changeJournal.lastId(), System.currentTimeMillis());
+        putContent();
+        streamService.poll();
+
+        MockHttpServletResponse response = this.mockMvc.perform(get("/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(StreamController.LAST_EVENT_ID_HEADER, lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        String events = await(response, "event:change");
+        assertTrue(events.contains("\"upserted\":{\"content\":[1]"), events);
+    }
+
+    @Test
+    void resumeExpired() throws Exception {
+        MockHttpServletResponse response = this.mockMvc.perform(get("/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(StreamController.LAST_EVENT_ID_HEADER, "1.0"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        await(response, "event:" + StreamService.SYNC_EVENT);
+    }
+
+    @Test
+    void malformedLastEventId() throws Exception {
+        this.mockMvc.perform(get("/stream")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(StreamController.LAST_EVENT_ID_HEADER, "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void heartbeat() throws Exception {
+        MockHttpServletResponse response = this.mockMvc.perform(get("/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        streamService.heartbeat();
+
+        await(response, ":heartbeat");
+    }
+
+    @Test
+    void overflowSyncKeepsLastEventId() throws Exception {
+        ReflectionTestUtils.setField(streamService, "bufferSize", 1);
+        MockHttpServletResponse response;
+        try {
+            response = this.mockMvc.perform(get("/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                    .andExpect(request().asyncStarted())
+                    .andReturn().getResponse();
+        } finally {
+            ReflectionTestUtils.setField(streamService, "bufferSize", 16);
+        }
+        Object connection = connection();
+        long overflows = streamService.getOverflows();
+        // The screen isn't reading, the second change doesn't fit
+        ((AtomicBoolean) ReflectionTestUtils.getField(connection, "sending")).set(true);
+        putContent();
+        streamService.poll();
+        putContent();
+        streamService.poll();
+
+        ((AtomicBoolean) ReflectionTestUtils.getField(connection, "sending")).set(false);
+        ReflectionTestUtils.invokeMethod(connection, "schedule");
+
+        String events = await(response, "event:" + StreamService.SYNC_EVENT);
+        assertFalse(events.contains("id:"), events);
+        assertEquals(overflows + 1, streamService.getOverflows());
+    }
+
+    @Test
+    void closeStalled() throws Exception {
+        this.mockMvc.perform(get("/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        Object connection = connection();
+
+        streamService.closeStalled();
+        assertEquals(1, streamService.getConnections());
+
+        ReflectionTestUtils.setField(connection, "writingSince", System.currentTimeMillis() - 60000);
+        streamService.closeStalled();
+        assertEquals(0, streamService.getConnections());
+    }
+
+    private Object connection() {
+        Set<?> connections = (Set<?>) ReflectionTestUtils.getField(streamService, "connections");
+        assertEquals(1, connections.size());
+        return connections.iterator().next();
+    }
+
+    private void putContent() throws Exception {
+        ContentType contentType = new ContentType();
+        contentType.setName("Text");
+        contentType.setId(1);
+        Content content = new Content();
+        content.setContentType(contentType);
+        content.setPath("Streamed Path");
+        this.mockMvc.perform(put("/content/1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(content)))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * The events are written by the stream threads.
+     */
+    private static String await(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String events = response.getContentAsString();
+        while (!events.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            events = response.getContentAsString();
+        }
+        assertTrue(events.contains(expected), events);
+        return events;
+    }
+}
@@ -0,0 +1,145 @@
+package org.eindopdracht.resource.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A screen connected to the WebSocket endpoint, without a container. Keeps what it was sent, a latch can
+ * hold up every send to play a slow screen.
+ */
+public class StubWebSocketSession implements WebSocketSession {
+    private final String id;
+    private final URI uri;
+    private final List<String> messages = new CopyOnWriteArrayList<>();
+    private volatile CountDownLatch slow;
+    private volatile CloseStatus closeStatus;
+
+    public StubWebSocketSession(String id, String screen) {
+        this.id = id;
+        this.uri = URI.create("ws://localhost/screen?screen=" + screen);
+    }
+
+    public List<String> getMessages() {
+        return messages;
+    }
+
+    public String getLastMessage() {
+        return messages.isEmpty() ? null : messages.get(messages.size() - 1);
+    }
+
+    public CloseStatus getCloseStatus() {
+        return closeStatus;
+    }
+
+    /**
+     * @param slow every send waits until it counts down, null sends at once
+     */
+    public void setSlow(CountDownLatch slow) {
+        this.slow = slow;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        CountDownLatch latch = slow;
+        if (latch != null) {
+            try {
+                latch.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        messages.add(((TextMessage) message).getPayload());
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return new HashMap<>();
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return 0;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return 0;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return closeStatus == null;
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        closeStatus = status;
+    }
+}
@@ -0,0 +1,157 @@
+package org.eindopdracht.resource.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import org.eindopdracht.resource.model.Content;
+import org.eindopdracht.resource.model.ContentType;
+import org.eindopdracht.resource.repository.ChangeJournal;
+import org.eindopdracht.resource.service.SyncService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+@Transactional
+class SyncControllerTest {
+    @Autowired
+    private WebApplicationContext webContext;
+
+    @Autowired
+    private SyncService syncService;
+
+    @Autowired
+    private ChangeJournal changeJournal;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() {
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(this.webContext).build();
+        // The changes of a test are written just before it syncs
+        ReflectionTestUtils.setField(syncService, "lagMillis", -1000L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReflectionTestUtils.setField(syncService, "lagMillis", 2000L);
+    }
+
+    @Test
+    void fullSync() throws Exception {
+        this.mockMvc.perform(get("/sync"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(true))
+                .andExpect(jsonPath("$.more").value(false))
+                .andExpect(jsonPath("$.token").isString())
+                .andExpect(jsonPath("$.upserts.content[0].path").value("Location Path"))
+                .andExpect(jsonPath("$.upserts.event").isNotEmpty())
+                .andExpect(jsonPath("$.upserts.globalSettings").isNotEmpty());
+    }
+
+    @Test
+    void pagedSync() throws Exception {
+        String token = JsonPath.read(this.mockMvc.perform(get("/sync").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.more").value(true))
+                .andExpect(jsonPath("$.upserts.content.length()").value(1))
+                .andReturn().getResponse().getContentAsString(), "$.token");
+
+        this.mockMvc.perform(get("/sync").param("since", token).param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(false))
+                .andExpect(jsonPath("$.upserts.content[0].id").value(2));
+    }
+
+    @Test
+    void syncOnlyChanges() throws Exception {
+        String token = JsonPath.read(this.mockMvc.perform(get("/sync"))
+                .andReturn().getResponse().getContentAsString(), "$.token");
+
+        this.mockMvc.perform(get("/sync").param("since", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(false))
+                .andExpect(jsonPath("$.upserts").isEmpty())
+                .andExpect(jsonPath("$.deleted").isEmpty());
+
+        ContentType contentType = new ContentType();
+        contentType.setName("Text");
+        contentType.setId(1);
+        Content content = new Content();
+        content.setContentType(contentType);
+        content.setPath("Synced Path");
+        this.mockMvc.perform(put("/content/2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(content)))
+                .andExpect(status().isOk());
+        this.mockMvc.perform(delete("/event/2"))
+                .andExpect(status().isOk());
+
+        this.mockMvc.perform(get("/sync").param("since", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.upserts.content.length()").value(1))
+                .andExpect(jsonPath("$.upserts.content[0].path").value("Synced Path"))
+                .andExpect(jsonPath("$.deleted.event", hasItem(2)))
+                .andExpect(jsonPath("$.deleted.content", hasItem(1)))
+                .andExpect(jsonPath("$.upserts.powerpoint").doesNotExist());
+    }
+
+    @Test
+    void expiredTokenResets() throws Exception {
+        this.mockMvc.perform(get("/sync").param("since", "1000.0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(true))
+                .andExpect(jsonPath("$.upserts.content").isNotEmpty());
+    }
+
+    @Test
+    void tokenOfOldEntryExpires() throws Exception {
+        // The token is new, but the tombstones after the entry it points at may be gone already
+        entityManager.createNativeQuery("UPDATE changeJournal SET changedAt = :changedAt")
+                .setParameter("changedAt", new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31)))
+                .executeUpdate();
+        String token = JsonPath.read(this.mockMvc.perform(get("/sync").param("limit", "1"))
+                .andExpect(jsonPath("$.more").value(true))
+                .andReturn().getResponse().getContentAsString(), "$.token");
+
+        this.mockMvc.perform(get("/sync").param("since", token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reset").value(true));
+    }
+
+    @Test
+    void malformedToken() throws Exception {
+        this.mockMvc.perform(get("/sync").param("since", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void compact() throws Exception {
+        this.mockMvc.perform(delete("/event/2"))
+                .andExpect(status().isOk());
+
+        // The upserts of event 2 and of its content are superseded by their tombstones
+        assertEquals(2, changeJournal.compact(100));
+        assertEquals(0, changeJournal.compact(100));
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
@@ -19,6 +20,7 @@ import org.springframework.web.context.WebApplicationContext;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -106,4 +108,15 @@ public class UserAvailabilityControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.date").value("08-12-2021 05:05:05"));
     }
+
+    @Test
+    public void testExportUserAvailabilities() throws Exception {
+        MvcResult result = mockMvc.perform(get("/availability/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("{\"id\":1,\"user\":{\"id\":1,")));
+    }
 }
@@ -15,6 +15,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import static org.eindopdracht.database.QueryCount.assertQueryCount;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -40,6 +41,14 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.[0].email").value("thijs"));
     }
 
+    @Test
+    public void testGetUsersQueryCount() throws Exception {
+        mockMvc.perform(get("/users").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        assertQueryCount(1);
+    }
+
     @Test
     public void testGetUser() throws Exception {
         mockMvc.perform(get("/users/1"))
@@ -0,0 +1,83 @@
+package org.eindopdracht.resource.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The transactions of these tests commit, the journal entries they leave are deleted afterwards.
+ */
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+class ChangeJournalTest {
+    @Autowired
+    private ChangeJournal changeJournal;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private long lastId;
+
+    @BeforeEach
+    void setUp() {
+        lastId = changeJournal.lastId();
+        ReflectionTestUtils.setField((Object) AopTestUtils.getTargetObject(changeJournal), "lagMillis", 200L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField((Object) AopTestUtils.getTargetObject(changeJournal), "lagMillis", 2000L);
+        new JdbcTemplate(dataSource).update("DELETE FROM changeJournal WHERE id > ?", lastId);
+    }
+
+    @Test
+    void commitWithinLag() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                changeJournal.upsert(ChangeJournal.CONTENT, 1));
+
+        assertEquals(1, entriesAfterSetUp());
+    }
+
+    @Test
+    void commitAfterLagIsRolledBack() {
+        // A reader may already have moved past the entry by the time it would commit
+        assertThrows(TransientDataAccessResourceException.class, () ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    changeJournal.upsert(ChangeJournal.CONTENT, 1);
+                    try {
+                        Thread.sleep(150);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+
+        assertEquals(0, entriesAfterSetUp());
+    }
+
+    @Test
+    void nowIsTheDatabaseClock() {
+        long now = System.currentTimeMillis();
+
+        assertEquals(now, changeJournal.now().getTime(), 1000);
+    }
+
+    // Rolled back inserts leave gaps in the ids, so the entries are counted
+    private long entriesAfterSetUp() {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM changeJournal WHERE id > ?", Long.class, lastId);
+    }
+}
@@ -1,6 +1,8 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.ContentType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +10,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -19,6 +22,9 @@ public class ContentTypeRepositoryTest {
     @Autowired
     private ContentTypeRepository contentTypeRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     void getAllContent() throws Exception {
         List<ContentType> contentTypeList = contentTypeRepository.get();
@@ -61,4 +67,28 @@ public class ContentTypeRepositoryTest {
 
         assertEquals("Text", deletedContentType.getName());
     }
+
+    @Test
+    void getIsCached() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        contentTypeRepository.get();
+        long hits = statistics.getQueryRegionStatistics("contentType.queries").getHitCount();
+
+        List<ContentType> contentTypeList = contentTypeRepository.get();
+
+        assertEquals(3, contentTypeList.size());
+        assertEquals(hits + 1, statistics.getQueryRegionStatistics("contentType.queries").getHitCount());
+    }
+
+    @Test
+    void persistInvalidatesCachedList() throws Exception {
+        contentTypeRepository.get();
+        ContentType contentType = new ContentType();
+        contentType.setName("New content type");
+        contentTypeRepository.persist(contentType);
+
+        List<ContentType> contentTypeList = contentTypeRepository.get();
+
+        assertEquals(4, contentTypeList.size());
+    }
 }
@@ -1,5 +1,6 @@
 package org.eindopdracht.resource.repository;
 
+import org.eindopdracht.database.QueryCount;
 import org.eindopdracht.resource.model.Event;
 import org.eindopdracht.resource.model.Content;
 import org.eindopdracht.resource.model.ContentType;
@@ -9,13 +10,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.context.transaction.BeforeTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import static org.eindopdracht.database.QueryCount.assertQueryCount;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 @ExtendWith(SpringExtension.class)
@@ -25,6 +35,22 @@ public class EventRepositoryTest {
     @Autowired
     private EventRepository eventRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Read-write cache entries are only visible to transactions that started after they were cached,
+     * so the content types are cached before the test transaction starts.
+     */
+    @BeforeTransaction
+    void warmCache() {
+        new TransactionTemplate(transactionManager).execute(status ->
+                entityManager.createQuery("SELECT c FROM Content c", Content.class).getResultList());
+    }
+
     @Test
     void getAllEvents() {
         List<Event> eventList = eventRepository.get();
@@ -105,4 +131,70 @@ public class EventRepositoryTest {
         assertNull(putEvent.getEndDateTime());
     }
 
+    @Test
+    void getBetween() throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
+
+        List<Event> events = eventRepository.getBetween(sdf.parse("01-01-2022 00:00:00"), sdf.parse("02-01-2022 00:00:00"), 10);
+        List<Event> ended = eventRepository.getBetween(sdf.parse("01-01-2023 00:00:00"), sdf.parse("02-01-2023 00:00:00"), 10);
+
+        assertEquals(2, events.size());
+        assertEquals(0, ended.size());
+    }
+
+    @Test
+    void getUpcoming() throws Exception {
+        Date now = new Date();
+        Event event = new Event();
+        event.setContent(eventRepository.getById(1).getContent());
+        event.setUser_id(1);
+        event.setDescription("Upcoming");
+        event.setStartDateTime(new Date(now.getTime() + 60_000));
+        event.setEndDateTime(new Date(now.getTime() + 120_000));
+        eventRepository.persist(event);
+
+        List<Event> events = eventRepository.getUpcoming(now, 10);
+
+        assertEquals(1, events.size());
+        assertEquals("Upcoming", events.get(0).getDescription());
+    }
+
+    @Test
+    void getStatementCount() {
+        for (int contentId = 1; contentId <= 3; contentId++) {
+            Event event = new Event();
+            event.setContent(entityManager.getReference(Content.class, contentId));
+            event.setUser_id(1);
+            event.setDescription("Content " + contentId);
+            entityManager.persist(event);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        // Content types come from the second-level cache, see warmCache
+        eventRepository.get(0, 100);
+        entityManager.clear();
+
+        QueryCount.reset();
+
+        assertEquals(5, eventRepository.get(0, 100).size());
+        assertQueryCount(1);
+    }
+
+    @Test
+    void exportClearsEveryChunk() {
+        List<Event> firstChunk = new ArrayList<>();
+        int[] rows = {0};
+
+        eventRepository.export(1, chunk -> {
+            assertEquals(1, chunk.size());
+            assertNotNull(chunk.get(0).getContent());
+            if (firstChunk.isEmpty()) {
+                firstChunk.addAll(chunk);
+            }
+            rows[0] += chunk.size();
+        });
+
+        assertEquals(eventRepository.get().size(), rows[0]);
+        assertFalse(entityManager.contains(firstChunk.get(0)));
+    }
 }
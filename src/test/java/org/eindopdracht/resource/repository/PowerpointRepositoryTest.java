@@ -1,5 +1,6 @@
 package org.eindopdracht.resource.repository;
 
+import org.eindopdracht.database.QueryCount;
 import org.eindopdracht.resource.model.Powerpoint;
 import org.eindopdracht.resource.model.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,8 +13,11 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.util.List;
 
+import static org.eindopdracht.database.QueryCount.assertQueryCount;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -24,6 +28,9 @@ public class PowerpointRepositoryTest {
     @Autowired
     private PowerpointRepository repository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private Powerpoint powerpoint;
     private User user;
 
@@ -75,4 +82,22 @@ public class PowerpointRepositoryTest {
     public void testMethodDeletePowerpoint() {
         repository.deletePowerpoint(1);
     }
+
+    @Test
+    @DisplayName("Testing if repository.getPowerpoints() fetches the users in the same query")
+    void getPowerpointsStatementCount() {
+        for (int userId = 1; userId <= 3; userId++) {
+            Powerpoint powerpoint = new Powerpoint();
+            powerpoint.setUser(entityManager.getReference(User.class, userId));
+            powerpoint.setPath("user " + userId);
+            entityManager.persist(powerpoint);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        QueryCount.reset();
+
+        assertEquals(4, repository.getPowerpoints().size());
+        assertQueryCount(1);
+    }
 }
@@ -0,0 +1,94 @@
+package org.eindopdracht.resource.repository;
+
+import org.eindopdracht.resource.dto.RssFeedDTO;
+import org.eindopdracht.resource.mapper.RssFeedMapper;
+import org.eindopdracht.resource.model.RssFeed;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the memory allocated to read a list of rss feeds as entities and map them, with selecting them
+ * straight into DTOs. The persistence context is cleared after every read, like it is after every request.
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+@Transactional
+class ProjectionBenchmarkTest {
+    private static final int ROWS = 1000;
+    private static final int REQUESTS = 50;
+    private static final int FIRST_ID = 1_000_000;
+
+    @Autowired
+    private RssFeedRepository rssFeedRepository;
+
+    @Autowired
+    private RssFeedMapper rssFeedMapper;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void setup() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{FIRST_ID + i, "https://example.com/" + i, new Date(), new Date()});
+        }
+        new JdbcTemplate(dataSource).batchUpdate(
+                "INSERT INTO rssFeed (id, user_id, link, startDateTime, endDateTime) VALUES (?, 1, ?, ?, ?)", rows);
+    }
+
+    @Test
+    void projectionAllocatesLessThanEntities() {
+        Supplier<List<RssFeedDTO>> entities = () -> rssFeedMapper.mapFromEntityList(
+                entityManager.createQuery("SELECT r FROM RssFeed r WHERE r.id >= :first ORDER BY r.id", RssFeed.class)
+                        .setParameter("first", FIRST_ID)
+                        .getResultList());
+        Supplier<List<RssFeedDTO>> projection = () -> rssFeedRepository.getRssFeeds(FIRST_ID - 1, ROWS);
+
+        measure(entities);
+        measure(projection);
+
+        long entityBytes = measure(entities);
+        long projectionBytes = measure(projection);
+
+        System.out.printf("entities: %d KB/request, projection: %d KB/request, %.1fx%n",
+                entityBytes / 1024, projectionBytes / 1024, (double) entityBytes / projectionBytes);
+        assertTrue(projectionBytes < entityBytes);
+    }
+
+    /**
+     * @return bytes allocated by this thread per request
+     */
+    private long measure(Supplier<List<RssFeedDTO>> request) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals(ROWS, request.get().size());
+            entityManager.clear();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - start) / REQUESTS;
+    }
+}
@@ -0,0 +1,65 @@
+package org.eindopdracht.resource.repository;
+
+import org.eindopdracht.resource.model.Event;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what a read-only transaction turns off in Hibernate.
+ * Not transactional itself, every test starts its own transaction like a repository method does.
+ * The JDBC connection is marked read-only as well, but H2 ignores that so it can't be checked here.
+ */
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+class ReadOnlyTransactionTest {
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    public void setup() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void readOnlyTransaction() {
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            Event event = entityManager.find(Event.class, 1);
+
+            assertEquals(FlushMode.MANUAL, session.getHibernateFlushMode());
+            assertTrue(session.isDefaultReadOnly());
+            // Read-only entities have no snapshot and are skipped by dirty checking
+            assertTrue(session.isReadOnly(event));
+        });
+    }
+
+    @Test
+    void readWriteTransaction() {
+        transaction.executeWithoutResult(status -> {
+            Session session = entityManager.unwrap(Session.class);
+            Event event = entityManager.find(Event.class, 1);
+
+            assertEquals(FlushMode.AUTO, session.getHibernateFlushMode());
+            assertFalse(session.isDefaultReadOnly());
+            assertFalse(session.isReadOnly(event));
+        });
+    }
+}
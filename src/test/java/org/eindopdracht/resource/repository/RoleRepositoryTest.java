@@ -6,6 +6,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectRetrievalFailureException;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
@@ -15,6 +16,8 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(SpringExtension.class)
 @SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
@@ -61,6 +64,22 @@ public class RoleRepositoryTest {
         assertEquals("test", roletest.getRole());
     }
 
+    @Test
+    @DisplayName("Testing if putRole with a version only changes the entry once for that version")
+    public void testMethodPutRoleWithVersion() {
+        assertEquals(1, roleRepository.putRole(this.role, 1, 0).getVersion());
+        assertNull(roleRepository.putRole(this.role, 1, 0));
+        Role stored = roleRepository.putRole(this.role, 1, 1);
+        assertEquals(2, stored.getVersion());
+        assertEquals("test", stored.getRole());
+    }
+
+    @Test
+    @DisplayName("Testing if putRole with a version refuses a role that doesn't exist")
+    public void testMethodPutRoleWithVersionUnknown() {
+        assertThrows(ObjectRetrievalFailureException.class, () -> roleRepository.putRole(this.role, 999, 0));
+    }
+
     @Test
     @DisplayName("Testing if deleteRole works")
     public void testMethodDeleteRole() {
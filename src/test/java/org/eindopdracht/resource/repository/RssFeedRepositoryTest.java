@@ -1,5 +1,6 @@
 package org.eindopdracht.resource.repository;
 
+import org.eindopdracht.database.QueryCount;
 import org.eindopdracht.resource.model.RssFeed;
 import org.eindopdracht.resource.model.User;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,10 +12,13 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
 import java.util.Date;
 import java.util.List;
 
+import static org.eindopdracht.database.QueryCount.assertQueryCount;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -26,6 +30,9 @@ public class RssFeedRepositoryTest {
     @Autowired
     private RssFeedRepository repository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private User user;
     private RssFeed feed;
 
@@ -82,4 +89,24 @@ public class RssFeedRepositoryTest {
     public void testMethodDeleteRssFeed() {
         repository.deleteRssFeed(1);
     }
+
+    @Test
+    @DisplayName("Testing if repository.getRssFeeds() fetches the users in the same query")
+    void getRssFeedsStatementCount() {
+        for (int userId = 1; userId <= 3; userId++) {
+            RssFeed rssFeed = new RssFeed();
+            rssFeed.setUser(entityManager.getReference(User.class, userId));
+            rssFeed.setLink("user " + userId);
+            rssFeed.setStartDateTime(new Date());
+            rssFeed.setEndDateTime(new Date());
+            entityManager.persist(rssFeed);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        QueryCount.reset();
+
+        assertEquals(5, repository.getRssFeeds().size());
+        assertQueryCount(1);
+    }
 }
@@ -1,8 +1,11 @@
 package org.eindopdracht.resource.repository;
 
 
+import org.eindopdracht.database.QueryCount;
 import org.eindopdracht.resource.model.User;
 import org.eindopdracht.resource.model.Schedule;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
@@ -13,12 +16,15 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManagerFactory;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
+import static org.eindopdracht.database.QueryCount.assertQueryCount;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @ExtendWith(SpringExtension.class)
@@ -29,6 +35,9 @@ public class ScheduleRepositoryTest {
     @Autowired
     private ScheduleRepository scheduleRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Test
     @Order(1)
     void getScheduleByIDTest() {
@@ -56,6 +65,16 @@ public class ScheduleRepositoryTest {
         assertEquals("Mooie beschrijving post", scheduleList.get(1).getDescription());
     }
 
+    @Test
+    void toStringDoesNotLoadUserCollectionsTest() {
+        List<Schedule> scheduleList = scheduleRepository.get();
+
+        QueryCount.reset();
+        assertEquals(true, scheduleList.toString().contains("Madlyaza"));
+        scheduleList.get(0).getUsers().get(0).hashCode();
+        assertQueryCount(0);
+    }
+
     @Test
     void postScheduleTest() throws Exception {
         User user = new User();
@@ -106,4 +125,49 @@ public class ScheduleRepositoryTest {
         assertEquals(endDateTime, puttedSchedule.getEndDateTime());
     }
 
+    @Test
+    void postAllIsBatchedTest() {
+        List<Schedule> schedules = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Schedule schedule = new Schedule();
+            schedule.setTitle("Batch " + i);
+            schedule.setDescription("Batch");
+            schedule.setStartDateTime(new Date());
+            schedule.setEndDateTime(new Date());
+            schedules.add(schedule);
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long statements = statistics.getPrepareStatementCount();
+
+        List<Schedule> persisted = scheduleRepository.postAll(schedules);
+
+        // Two blocks of 50 ids and two JDBC batches of 50 inserts, instead of an insert per row
+        assertEquals(true, statistics.getPrepareStatementCount() - statements < 10);
+        assertEquals(100, persisted.stream().mapToInt(Schedule::getId).distinct().count());
+        assertEquals(true, persisted.get(0).getId() > 1);
+    }
+
+    @Test
+    void getBetweenTest() throws ParseException {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
+
+        List<Schedule> schedules = scheduleRepository.getBetween(sdf.parse("08-12-2022 00:00:00"), sdf.parse("08-12-2022 00:00:00"), 10);
+
+        assertEquals(2, schedules.size());
+        assertEquals(1, schedules.get(0).getId());
+        assertEquals(0, scheduleRepository.getUpcoming(sdf.parse("09-12-2022 00:00:00"), 10).size());
+    }
+
+    @Test
+    void deleteEndedBeforeInChunksTest() throws ParseException {
+        SimpleDateFormat sdf = new SimpleDateFormat("dd-MM-yyyy HH:mm:ss");
+        Date before = sdf.parse("01-01-2023 00:00:00");
+
+        // Both schedules have a userSchedule row, the foreign key would fail when those weren't deleted first
+        assertEquals(1, scheduleRepository.deleteEndedBefore(before, 1));
+        assertEquals(1, scheduleRepository.deleteEndedBefore(before, 1));
+        assertEquals(0, scheduleRepository.deleteEndedBefore(before, 1));
+        assertEquals(0, scheduleRepository.get().size());
+    }
 }
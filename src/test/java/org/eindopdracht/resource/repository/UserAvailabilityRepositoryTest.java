@@ -1,5 +1,6 @@
 package org.eindopdracht.resource.repository;
 
+import org.eindopdracht.database.QueryCount;
 import org.eindopdracht.resource.model.User;
 import org.eindopdracht.resource.model.UserAvailability;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,16 +8,21 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
 import java.util.Date;
 import java.util.List;
 
+import static org.eindopdracht.database.QueryCount.assertQueryCount;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @ExtendWith(SpringExtension.class)
 @SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
@@ -26,6 +32,9 @@ public class UserAvailabilityRepositoryTest {
     @Autowired
     private UserAvailabilityRepository userAvailabilityRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private User user;
     private UserAvailability ua;
 
@@ -73,9 +82,38 @@ public class UserAvailabilityRepositoryTest {
         assertEquals("test2", userAvailability.getUser().getName());
     }
 
+    @Test
+    @DisplayName("Testing if an availability of a user that doesn't exist is refused")
+    void postAndPutWithUnknownUser() {
+        User unknown = new User();
+        unknown.setId(999);
+        this.ua.setUser(unknown);
+
+        assertThrows(DataRetrievalFailureException.class, () -> userAvailabilityRepository.postUserAvailability(this.ua));
+        assertThrows(DataRetrievalFailureException.class, () -> userAvailabilityRepository.putUserAvailability(this.ua, 1));
+    }
+
     @Test
     @DisplayName("Testing if deleteUserAvailability works")
     public void testMethodDeleteUserAvailability() {
         userAvailabilityRepository.deleteUserAvailability(1);
     }
+
+    @Test
+    @DisplayName("Testing if userAvailabilityRepository.getUserAvailabilities() fetches the users in the same query")
+    void getUserAvailabilitiesStatementCount() {
+        for (int userId = 1; userId <= 3; userId++) {
+            UserAvailability userAvailability = new UserAvailability();
+            userAvailability.setUser(entityManager.getReference(User.class, userId));
+            userAvailability.setDate(new Date());
+            entityManager.persist(userAvailability);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        QueryCount.reset();
+
+        assertEquals(5, userAvailabilityRepository.getUserAvailabilities().size());
+        assertQueryCount(1);
+    }
 }
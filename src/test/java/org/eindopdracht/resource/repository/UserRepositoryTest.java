@@ -1,6 +1,7 @@
 package org.eindopdracht.resource.repository;
 
 import org.eindopdracht.resource.model.User;
+import org.eindopdracht.resource.model.UserAvailability;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,11 +11,15 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.transaction.Transactional;
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @ExtendWith(SpringExtension.class)
 @SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
@@ -24,6 +29,9 @@ public class UserRepositoryTest {
     @Autowired
     private UserRepository userRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private User user;
 
 
@@ -72,4 +80,22 @@ public class UserRepositoryTest {
         userRepository.deleteUser(1);
     }
 
+    @Test
+    @DisplayName("Testing if deleteUser deletes the availabilities of the user")
+    void deleteUserDeletesAvailabilities() {
+        User posted = userRepository.postUser(this.user);
+        UserAvailability availability = new UserAvailability();
+        availability.setUser(posted);
+        availability.setDate(new Date());
+        entityManager.persist(availability);
+        entityManager.flush();
+        entityManager.clear();
+
+        userRepository.deleteUser(posted.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertNull(entityManager.find(UserAvailability.class, availability.getId()));
+        assertNull(entityManager.find(User.class, posted.getId()));
+    }
 }
@@ -0,0 +1,104 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.dto.BatchResultDTO;
+import org.eindopdracht.resource.dto.ScheduleDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares posting schedules one by one with the bulk path.
+ * Not transactional on purpose, every single post and every chunk has to commit like it does in production.
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+class BatchBenchmarkTest {
+    private static final int ROWS = 2000;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private int lastId;
+
+    @BeforeEach
+    public void setup() {
+        lastId = new JdbcTemplate(dataSource).queryForObject("SELECT COALESCE(MAX(id), 0) FROM schedule", Integer.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM schedule WHERE id > ?", lastId);
+    }
+
+    @Test
+    void batchIsFasterThanSingleRows() {
+        scheduleService.persistAll(createSchedules(100, "warmup"));
+
+        long start = System.nanoTime();
+        for (ScheduleDTO schedule : createSchedules(ROWS, "single")) {
+            scheduleService.persist(schedule);
+        }
+        long single = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<BatchResultDTO> results = scheduleService.persistAll(createSchedules(ROWS, "batch"));
+        long batch = System.nanoTime() - start;
+
+        assertEquals(ROWS, results.size());
+        System.out.printf("single: %d rows/s, batch: %d rows/s, %.1fx%n",
+                rowsPerSecond(single), rowsPerSecond(batch), (double) single / batch);
+        assertTrue(batch < single);
+    }
+
+    /**
+     * Single posts reserve their ids in blocks as well. Run this one against a checkout with IDENTITY ids to
+     * compare, the best of a few rounds evens out the noise of a shared machine.
+     */
+    @Test
+    void singleRowsPerSecond() {
+        for (ScheduleDTO schedule : createSchedules(200, "warmup")) {
+            scheduleService.persist(schedule);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (ScheduleDTO schedule : createSchedules(ROWS / ROUNDS, "single")) {
+                scheduleService.persist(schedule);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        System.out.printf("single: %d rows/s, best of %d rounds%n", rowsPerSecond(best) / ROUNDS, ROUNDS);
+    }
+
+    private long rowsPerSecond(long nanos) {
+        return ROWS * TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    private List<ScheduleDTO> createSchedules(int count, String title) {
+        List<ScheduleDTO> schedules = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            schedules.add(new ScheduleDTO(0, null, title + " " + i, "Benchmark", new Date(), new Date()));
+        }
+        return schedules;
+    }
+}
@@ -0,0 +1,28 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.dto.BatchResultDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchWriterTest {
+    @Test
+    void itemThatCantBeMappedFailsOnItsOwn() {
+        BatchWriter batchWriter = new BatchWriter(Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(batchWriter, "chunkSize", 500);
+        ReflectionTestUtils.setField(batchWriter, "maxItems", 10000);
+
+        List<BatchResultDTO> results = batchWriter.write(Arrays.asList("1", "two", "3"), Integer::valueOf,
+                entities -> entities, Integer::intValue);
+
+        assertEquals(Arrays.asList(BatchResultDTO.CREATED, BatchResultDTO.FAILED, BatchResultDTO.CREATED),
+                results.stream().map(BatchResultDTO::getStatus).collect(Collectors.toList()));
+        assertEquals(Integer.valueOf(3), results.get(2).getId());
+    }
+}
@@ -0,0 +1,69 @@
+package org.eindopdracht.resource.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PartitionJobTest {
+    @Test
+    void firstRunStartsAtCurrentMonth() {
+        assertEquals(Arrays.asList(YearMonth.of(2026, 11), YearMonth.of(2026, 12), YearMonth.of(2027, 1)),
+                PartitionJob.missingMonths(Collections.singletonList("pmax"), YearMonth.of(2026, 11), 2));
+    }
+
+    @Test
+    void laterRunsContinueAfterLastMonth() {
+        assertEquals(Collections.singletonList(YearMonth.of(2027, 2)),
+                PartitionJob.missingMonths(Arrays.asList("p202611", "p202612", "p202701", "pmax"), YearMonth.of(2026, 12), 2));
+        assertEquals(Collections.emptyList(),
+                PartitionJob.missingMonths(Arrays.asList("p202611", "p202612", "p202701", "pmax"), YearMonth.of(2026, 11), 2));
+    }
+
+    @Test
+    void afterTheMigrationOnlyNewMonthsAreAdded() {
+        // changeSet 17 on 15 October 2026
+        List<String> migrated = Arrays.asList("p202609", "p202610", "p202611", "p202612", "p202701", "pmax");
+
+        assertEquals(Collections.emptyList(), PartitionJob.missingMonths(migrated, YearMonth.of(2026, 10), 3));
+        assertEquals(Collections.singletonList(YearMonth.of(2027, 2)), PartitionJob.missingMonths(migrated, YearMonth.of(2026, 11), 3));
+    }
+
+    @Test
+    void notPartitioned() {
+        assertEquals(Collections.emptyList(), PartitionJob.missingMonths(Collections.emptyList(), YearMonth.of(2026, 11), 2));
+    }
+
+    @Test
+    void expiredMonths() {
+        // p202610 holds rows before 1 November, p202611 has rows after the cutoff
+        assertEquals(Arrays.asList("p202609", "p202610"),
+                PartitionJob.expired(Arrays.asList("p202609", "p202610", "p202611", "pmax"), LocalDate.of(2026, 11, 1)));
+        assertEquals(Collections.singletonList("p202609"),
+                PartitionJob.expired(Arrays.asList("p202609", "p202610", "p202611", "pmax"), LocalDate.of(2026, 10, 31)));
+    }
+
+    @Test
+    void reorganize() {
+        assertEquals("ALTER TABLE userAvailability REORGANIZE PARTITION pmax INTO ("
+                        + "PARTITION p202612 VALUES LESS THAN ('2027-01-01'), "
+                        + "PARTITION p202701 VALUES LESS THAN ('2027-02-01'), "
+                        + "PARTITION pmax VALUES LESS THAN (MAXVALUE))",
+                PartitionJob.reorganize("userAvailability", Arrays.asList(YearMonth.of(2026, 12), YearMonth.of(2027, 1))));
+    }
+
+    @Test
+    void otherDatabasesAreLeftAlone() {
+        PartitionJob partitionJob = new PartitionJob(new DriverManagerDataSource("jdbc:h2:mem:partition;MODE=MySQL"));
+
+        partitionJob.run();
+        assertEquals(0, partitionJob.dropBefore("userAvailability", new Date()));
+    }
+}
@@ -0,0 +1,96 @@
+package org.eindopdracht.resource.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The job joins the test transaction, so the purged rows are rolled back afterwards.
+ */
+@Transactional
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+@TestPropertySource(properties = {
+        "database.retention.consultation.days=30",
+        "database.retention.consultation.archive=true",
+        "database.retention.batchSize=1",
+        "database.retention.pauseMillis=0",
+        "database.retention.archiveDir=${java.io.tmpdir}/dashboard-retention-test"
+})
+class RetentionJobTest {
+    @Autowired
+    private RetentionJob retentionJob;
+
+    @Value("${java.io.tmpdir}/dashboard-retention-test")
+    private String archiveDir;
+
+    @AfterEach
+    public void tearDown() {
+        File file = archiveFile();
+        if (file.exists()) {
+            file.delete();
+        }
+    }
+
+    @Test
+    void purgesAndArchivesExpiredRows() throws IOException {
+        retentionJob.run();
+
+        RetentionJob.Table consultation = table("consultation");
+        // Both consultations ended in 2022, deleted one per batch
+        assertEquals(2, consultation.getPurged());
+        assertEquals(2, consultation.getArchived());
+        assertEquals(0, consultation.getFailures());
+        assertEquals(0, consultation.getLagSeconds());
+        assertNotNull(consultation.getLastRun());
+
+        List<String> lines = Files.readAllLines(archiveFile().toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        // Oldest first, consultation 2 ended before consultation 1
+        assertTrue(lines.get(0).toLowerCase().startsWith("{\"id\":2,"));
+        assertTrue(lines.get(1).toLowerCase().startsWith("{\"id\":1,"));
+
+        // Tables without a retention are kept
+        assertEquals(0, table("event").getDays());
+        assertEquals(0, table("event").getPurged());
+        assertEquals(null, table("event").getLastRun());
+    }
+
+    @Test
+    void isPeakHour() {
+        assertTrue(RetentionJob.isPeakHour("7-18", 7));
+        assertTrue(RetentionJob.isPeakHour("7-18", 17));
+        assertFalse(RetentionJob.isPeakHour("7-18", 18));
+        assertFalse(RetentionJob.isPeakHour("7-18", 3));
+        assertTrue(RetentionJob.isPeakHour("22-6", 23));
+        assertTrue(RetentionJob.isPeakHour("22-6", 5));
+        assertFalse(RetentionJob.isPeakHour("22-6", 12));
+        assertFalse(RetentionJob.isPeakHour("", 12));
+    }
+
+    private RetentionJob.Table table(String name) {
+        return retentionJob.getTables().stream()
+                .filter(table -> table.getName().equals(name))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private File archiveFile() {
+        return new File(archiveDir, "consultation-" + LocalDate.now() + ".ndjson");
+    }
+}
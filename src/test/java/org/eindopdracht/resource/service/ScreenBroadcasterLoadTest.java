@@ -0,0 +1,117 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.resource.controller.ScreenSocketHandler;
+import org.eindopdracht.resource.controller.StubWebSocketSession;
+import org.eindopdracht.resource.dto.ScreenSessionDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the WebSocket endpoint with simulated screens, connected to the handler without a container.
+ * Run with: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringJUnitWebConfig(classes = org.eindopdracht.configuration.DatabaseConfigTest.class)
+class ScreenBroadcasterLoadTest {
+    private static final int SCREENS = 5000;
+    private static final int SLOW_SCREENS = 50;
+    private static final int CHANGES = 200;
+
+    @Autowired
+    private ScreenSocketHandler screenSocketHandler;
+
+    @Autowired
+    private ScreenBroadcaster screenBroadcaster;
+
+    private final List<StubWebSocketSession> sessions = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() {
+        for (StubWebSocketSession session : sessions) {
+            screenSocketHandler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+    }
+
+    @Test
+    void idleScreensAreCheap() throws Exception {
+        long before = usedHeap();
+        connect(SCREENS);
+        long perScreen = (usedHeap() - before) / SCREENS;
+
+        System.out.printf("idle screens: %d bytes per screen, stub session included%n", perScreen);
+        assertEquals(SCREENS, screenBroadcaster.getSessions().size());
+        assertTrue(perScreen < 4096);
+    }
+
+    @Test
+    void slowScreensDontHoldUpTheFanOut() throws Exception {
+        connect(SCREENS);
+        CountDownLatch slow = new CountDownLatch(1);
+        for (int i = 0; i < SLOW_SCREENS; i++) {
+            sessions.get(i).setSlow(slow);
+        }
+
+        long start = System.nanoTime();
+        for (int change = 1; change <= CHANGES; change++) {
+            screenBroadcaster.publish(ScreenBroadcaster.EVENTS, change + ".0", Collections.singletonList(change), null);
+        }
+        long publish = System.nanoTime() - start;
+
+        // Everything a slow screen missed is merged into one waiting message
+        for (ScreenSessionDTO session : screenBroadcaster.getSessions()) {
+            assertTrue(session.getPending() <= 1);
+        }
+        slow.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!allReceived(CHANGES + ".0") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long delivered = System.nanoTime() - start;
+        long messages = sessions.stream().mapToLong(session -> session.getMessages().size()).sum();
+
+        System.out.printf("fan-out: %d changes to %d screens published in %d ms, delivered in %d ms, %d messages instead of %d%n",
+                CHANGES, SCREENS, TimeUnit.NANOSECONDS.toMillis(publish), TimeUnit.NANOSECONDS.toMillis(delivered),
+                messages, (long) CHANGES * SCREENS);
+        assertTrue(allReceived(CHANGES + ".0"));
+    }
+
+    private void connect(int screens) throws Exception {
+        for (int i = 0; i < screens; i++) {
+            StubWebSocketSession session = new StubWebSocketSession("load-" + i, "load-" + i);
+            sessions.add(session);
+            screenSocketHandler.afterConnectionEstablished(session);
+            screenSocketHandler.handleMessage(session, new TextMessage("{\"type\": \"subscribe\", \"topics\": [\"settings\", \"events\", \"content/1\"]}"));
+        }
+    }
+
+    private boolean allReceived(String token) {
+        return sessions.stream().allMatch(session -> {
+            String last = session.getLastMessage();
+            return last != null && last.contains("\"token\":\"" + token + "\"");
+        });
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,180 @@
+package org.eindopdracht.resource.service;
+
+import org.eindopdracht.database.CircuitBreaker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.eindopdracht.util.ETags;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableVersionsTest {
+    private DataSource dataSource;
+
+    @BeforeEach
+    public void setup() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:table-versions;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE tableVersion (name VARCHAR(64) PRIMARY KEY, version BIGINT NOT NULL)");
+        jdbcTemplate.execute("INSERT INTO tableVersion VALUES ('content', 0), ('contentType', 0), ('event', 5)");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    void bumpIsSeenByOtherNodes() {
+        TableVersions node = new TableVersions(dataSource, new CircuitBreaker());
+        TableVersions otherNode = new TableVersions(dataSource, new CircuitBreaker());
+
+        node.bump(TableVersions.Table.CONTENT);
+        assertEquals(1, node.get(TableVersions.Table.CONTENT));
+        assertEquals(0, otherNode.get(TableVersions.Table.CONTENT));
+
+        otherNode.refresh();
+        assertEquals(1, otherNode.get(TableVersions.Table.CONTENT));
+        assertEquals(5, otherNode.get(TableVersions.Table.EVENT));
+    }
+
+    @Test
+    void bumpTakesOverWritesOfOtherNodes() {
+        TableVersions node = new TableVersions(dataSource, new CircuitBreaker());
+        TableVersions otherNode = new TableVersions(dataSource, new CircuitBreaker());
+
+        otherNode.bump(TableVersions.Table.CONTENT);
+        otherNode.bump(TableVersions.Table.CONTENT);
+        node.bump(TableVersions.Table.CONTENT, TableVersions.Table.CONTENT_TYPE);
+
+        assertEquals(3, node.get(TableVersions.Table.CONTENT));
+        assertEquals("3.1", node.tag(TableVersions.Table.CONTENT, TableVersions.Table.CONTENT_TYPE));
+    }
+
+    @Test
+    void tagKeepsTheCountersApart() {
+        TableVersions node = new TableVersions(dataSource, new CircuitBreaker());
+
+        node.bump(TableVersions.Table.CONTENT);
+        String tag = node.tag(TableVersions.Table.CONTENT, TableVersions.Table.CONTENT_TYPE);
+        node.bump(TableVersions.Table.CONTENT_TYPE);
+
+        assertEquals("1.0", tag);
+        assertEquals("1.1", node.tag(TableVersions.Table.CONTENT, TableVersions.Table.CONTENT_TYPE));
+    }
+
+    @Test
+    void bumpWaitsForCommit() {
+        TableVersions node = new TableVersions(dataSource, new CircuitBreaker());
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transaction.executeWithoutResult(status -> {
+            node.bump(TableVersions.Table.CONTENT);
+            assertEquals(0, node.get(TableVersions.Table.CONTENT));
+        });
+        assertEquals(1, node.get(TableVersions.Table.CONTENT));
+
+        transaction.executeWithoutResult(status -> {
+            node.bump(TableVersions.Table.CONTENT);
+            status.setRollbackOnly();
+        });
+        assertEquals(1, node.get(TableVersions.Table.CONTENT));
+        assertEquals(1L, new JdbcTemplate(dataSource).queryForObject("SELECT version FROM tableVersion WHERE name = 'content'", Long.class));
+    }
+
+    @Test
+    void notTaggedBeforeTheRowsWereRead() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("ALTER TABLE tableVersion RENAME TO tableVersionMoved");
+        TableVersions node = new TableVersions(dataSource, new CircuitBreaker());
+        assertFalse(node.isKnown(TableVersions.Table.EVENT));
+
+        jdbcTemplate.execute("ALTER TABLE tableVersionMoved RENAME TO tableVersion");
+        node.refresh();
+        assertTrue(node.isKnown(TableVersions.Table.EVENT));
+        assertEquals(5, node.get(TableVersions.Table.EVENT));
+    }
+
+    @Test
+    void bumpThatFailsWhileAnotherSucceedsStaysPending() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean failing = new AtomicBoolean();
+        DataSource gated = new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if ("slow".equals(Thread.currentThread().getName())) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (failing.get()) {
+                    throw new SQLException("connection refused");
+                }
+                return super.getConnection();
+            }
+        };
+        TableVersions node = new TableVersions(gated, new CircuitBreaker());
+
+        // The slow bump is marked and waits for its connection, the other one fails meanwhile
+        Thread slow = new Thread(() -> node.bump(TableVersions.Table.CONTENT), "slow");
+        slow.start();
+        entered.await();
+        failing.set(true);
+        node.bump(TableVersions.Table.CONTENT);
+        failing.set(false);
+        release.countDown();
+        slow.join();
+
+        assertEquals(1, node.get(TableVersions.Table.CONTENT));
+        assertFalse(node.isKnown(TableVersions.Table.CONTENT));
+
+        node.refresh();
+        assertEquals(2, node.get(TableVersions.Table.CONTENT));
+        assertTrue(node.isKnown(TableVersions.Table.CONTENT));
+    }
+
+    @Test
+    void failedBumpIsNotTaggedUntilRetried() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        TableVersions node = new TableVersions(dataSource, new CircuitBreaker());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETags.ofCollection("0", ""));
+
+        jdbcTemplate.execute("ALTER TABLE tableVersion RENAME TO tableVersionMoved");
+        node.bump("content");
+        node.bump("schedule");
+        node.refresh();
+
+        assertEquals(0, node.get(TableVersions.Table.CONTENT));
+        assertFalse(node.isKnown(TableVersions.Table.CONTENT));
+        assertTrue(node.isKnown(TableVersions.Table.EVENT));
+        assertFalse(node.checkNotModified(new ServletWebRequest(request), TableVersions.Table.CONTENT));
+
+        jdbcTemplate.execute("ALTER TABLE tableVersionMoved RENAME TO tableVersion");
+        node.refresh();
+
+        assertEquals(1, node.get(TableVersions.Table.CONTENT));
+        assertTrue(node.isKnown(TableVersions.Table.CONTENT));
+    }
+}